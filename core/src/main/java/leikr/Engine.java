@@ -25,10 +25,12 @@ import java.util.logging.Logger;
 import leikr.controls.LeikrController;
 import leikr.controls.LeikrKeyboard;
 import leikr.controls.LeikrMouse;
+import leikr.loaders.MapLoadHandle;
 import leikr.managers.LeikrAudioManager;
 import leikr.managers.LeikrDataManager;
 import leikr.managers.LeikrScreenManager;
 import leikr.managers.LeikrSystemManager;
+import leikr.managers.SpatialHash;
 import org.mini2Dx.core.Graphics;
 import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.graphics.Color;
@@ -73,11 +75,27 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
      * @param f
      */
     public final void preCreate(int mSprites, LeikrSystemManager sys, FitViewport viewport, FrameBuffer f) {
-        lAudio = LeikrAudioManager.getLeikrAudioManager();
-        lScreen = LeikrScreenManager.getLeikrScreenManager(mSprites);
+        preCreate(mSprites, sys, viewport, f, true);
+    }
+
+    /**
+     * preCreate used by the code only hot reload.
+     *
+     * @param mSprites maximum allowed sprites to draw at one time
+     * @param sys object used to interact with the Leikr lSystem at runtime
+     * @param viewport
+     * @param f
+     * @param reloadAssets false to keep the sprites, images, maps and audio
+     * loaded by the previous Engine
+     */
+    public final void preCreate(int mSprites, LeikrSystemManager sys, FitViewport viewport, FrameBuffer f, boolean reloadAssets) {
+        lAudio = LeikrAudioManager.getLeikrAudioManager(reloadAssets);
+        lScreen = LeikrScreenManager.getLeikrScreenManager(mSprites, reloadAssets);
         lData = new LeikrDataManager();
         lScreen.preCreate(f, viewport);
         lSystem = sys;
+        //colliders of the previous program or Engine are stale
+        lSystem.clearColliders(SpatialHash.DEFAULT_CELL_SIZE);
         active = true;
         try {
             lControllerA = LeikrController.getLeikrControllerListenerA();
@@ -121,6 +139,15 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
         lScreen.preRender(g);
     }
 
+    /**
+     * postRender
+     *
+     * run just after the Engine render method while the frame is still bound.
+     */
+    public final void postRender() {
+        lScreen.postRender();
+    }
+
     /*
      * Override functions for game scripting. 
      */
@@ -150,12 +177,28 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
 
     //disposes the game objects on exit
     public final void dispose() {
-        if (lAudio != null) {
-            lAudio.dispose();
-        }
+        dispose(false);
+    }
 
-        if (lScreen != null) {
-            lScreen.dispose();
+    /**
+     * Disposes the Engine.
+     *
+     * @param keepAssets true to only stop the audio and leave the loaded assets
+     * for the next Engine of a code only hot reload
+     */
+    public final void dispose(boolean keepAssets) {
+        if (keepAssets) {
+            if (lAudio != null) {
+                lAudio.stopAudio();
+            }
+        } else {
+            if (lAudio != null) {
+                lAudio.dispose();
+            }
+
+            if (lScreen != null) {
+                lScreen.dispose();
+            }
         }
 
         //Debugging for ARM-GameShell
@@ -175,8 +218,58 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
     public int getUsedSprites() {
         return lScreen.getUsedSprites();
     }
+
+    public int getDrawnCount() {
+        return lScreen.getDrawnCount();
+    }
+
+    public int getCulledCount() {
+        return lScreen.getCulledCount();
+    }
     //end custom prop functions
 
+    //start camera methods
+    public final void setCamera(float x, float y) {
+        lScreen.setCamera(x, y);
+    }
+
+    public final void setCamera(double x, double y) {
+        lScreen.setCamera(x, y);
+    }
+
+    public final void setCamera(BigDecimal x, BigDecimal y) {
+        lScreen.setCamera(x, y);
+    }
+
+    public final void setCamera(float x, float y, float zoom) {
+        lScreen.setCamera(x, y, zoom);
+    }
+
+    public final void setCamera(double x, double y, double zoom) {
+        lScreen.setCamera(x, y, zoom);
+    }
+
+    public final void setCamera(BigDecimal x, BigDecimal y, BigDecimal zoom) {
+        lScreen.setCamera(x, y, zoom);
+    }
+
+    public final void resetCamera() {
+        lScreen.resetCamera();
+    }
+
+    public final float getCameraX() {
+        return lScreen.getCameraX();
+    }
+
+    public final float getCameraY() {
+        return lScreen.getCameraY();
+    }
+
+    public final float getCameraZoom() {
+        return lScreen.getCameraZoom();
+    }
+    //end camera methods
+
     /**
      * Returns the FPS as an int
      *
@@ -208,14 +301,38 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
         lScreen.loadImages();
     }
 
+    public final void drawTexture(String name, float x, float y) {
+        lScreen.drawTexture(name, x, y);
+    }
+
+    public final void drawTexture(String name, double x, double y) {
+        lScreen.drawTexture(name, x, y);
+    }
+
     public final void drawTexture(String name, BigDecimal x, BigDecimal y) {
         lScreen.drawTexture(name, x, y);
     }
 
+    public final void drawTexture(String name, float x, float y, float w, float h) {
+        lScreen.drawTexture(name, x, y, w, h);
+    }
+
+    public final void drawTexture(String name, double x, double y, double w, double h) {
+        lScreen.drawTexture(name, x, y, w, h);
+    }
+
     public final void drawTexture(String name, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
         lScreen.drawTexture(name, x, y, w, h);
     }
 
+    public final void drawTexture(String name, float x, float y, float w, float h, boolean flipv) {
+        lScreen.drawTexture(name, x, y, w, h, flipv);
+    }
+
+    public final void drawTexture(String name, double x, double y, double w, double h, boolean flipv) {
+        lScreen.drawTexture(name, x, y, w, h, flipv);
+    }
+
     public final void drawTexture(String name, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h, boolean flipv) {
         lScreen.drawTexture(name, x, y, w, h, flipv);
     }
@@ -226,46 +343,210 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
         lScreen.loadMap(map);
     }
 
+    public final MapLoadHandle loadMapAsync(String map) {
+        return lScreen.loadMapAsync(map);
+    }
+
     public final void drawMap() {
         lScreen.drawMap();
     }
 
+    public final void drawMap(int x, int y) {
+        lScreen.drawMap(x, y);
+    }
+
+    public final void drawMap(float x, float y) {
+        lScreen.drawMap(x, y);
+    }
+
+    public final void drawMap(double x, double y) {
+        lScreen.drawMap(x, y);
+    }
+
     public final void drawMap(BigDecimal x, BigDecimal y) {
         lScreen.drawMap(x, y);
     }
 
+    public final void drawMap(int x, int y, int layer) {
+        lScreen.drawMap(x, y, layer);
+    }
+
+    public final void drawMap(float x, float y, int layer) {
+        lScreen.drawMap(x, y, layer);
+    }
+
+    public final void drawMap(double x, double y, int layer) {
+        lScreen.drawMap(x, y, layer);
+    }
+
     public final void drawMap(BigDecimal x, BigDecimal y, int layer) {
         lScreen.drawMap(x, y, layer);
     }
 
+    public final void drawMap(int x, int y, int sx, int sy, int w, int h) {
+        lScreen.drawMap(x, y, sx, sy, w, h);
+    }
+
+    public final void drawMap(float x, float y, float sx, float sy, float w, float h) {
+        lScreen.drawMap(x, y, sx, sy, w, h);
+    }
+
+    public final void drawMap(double x, double y, double sx, double sy, double w, double h) {
+        lScreen.drawMap(x, y, sx, sy, w, h);
+    }
+
     public final void drawMap(BigDecimal x, BigDecimal y, BigDecimal sx, BigDecimal sy, BigDecimal w, BigDecimal h) {
         lScreen.drawMap(x, y, sx, sy, w, h);
     }
 
+    public final void drawMap(int x, int y, int sx, int sy, int w, int h, int layer) {
+        lScreen.drawMap(x, y, sx, sy, w, h, layer);
+    }
+
+    public final void drawMap(float x, float y, float sx, float sy, float w, float h, int layer) {
+        lScreen.drawMap(x, y, sx, sy, w, h, layer);
+    }
+
+    public final void drawMap(double x, double y, double sx, double sy, double w, double h, int layer) {
+        lScreen.drawMap(x, y, sx, sy, w, h, layer);
+    }
+
     public final void drawMap(BigDecimal x, BigDecimal y, BigDecimal sx, BigDecimal sy, BigDecimal w, BigDecimal h, int layer) {
         lScreen.drawMap(x, y, sx, sy, w, h, layer);
     }
 
+    public final int getMapTile(int x, int y) {
+        return lScreen.getMapTile(x, y);
+    }
+
+    public final int getMapTile(float x, float y) {
+        return lScreen.getMapTile(x, y);
+    }
+
+    public final int getMapTile(double x, double y) {
+        return lScreen.getMapTile(x, y);
+    }
+
     public final int getMapTile(BigDecimal x, BigDecimal y) {
         return lScreen.getMapTile(x, y);
     }
 
+    public final int getMapTile(int x, int y, int layer) {
+        return lScreen.getMapTile(x, y, layer);
+    }
+
+    public final int getMapTile(float x, float y, int layer) {
+        return lScreen.getMapTile(x, y, layer);
+    }
+
+    public final int getMapTile(double x, double y, int layer) {
+        return lScreen.getMapTile(x, y, layer);
+    }
+
     public final int getMapTile(BigDecimal x, BigDecimal y, int layer) {
         return lScreen.getMapTile(x, y, layer);
     }
 
+    public final int[] getMapTiles(int x, int y, int w, int h, int[] out) {
+        return lScreen.getMapTiles(x, y, w, h, out);
+    }
+
+    public final int[] getMapTiles(int x, int y, int w, int h, int layer, int[] out) {
+        return lScreen.getMapTiles(x, y, w, h, layer, out);
+    }
+
+    public final int[] getMapTiles(float x, float y, int w, int h, int layer, int[] out) {
+        return lScreen.getMapTiles(x, y, w, h, layer, out);
+    }
+
+    public final int[] getMapTiles(double x, double y, int w, int h, int layer, int[] out) {
+        return lScreen.getMapTiles(x, y, w, h, layer, out);
+    }
+
+    public final int[] getMapTiles(BigDecimal x, BigDecimal y, int w, int h, int layer, int[] out) {
+        return lScreen.getMapTiles(x, y, w, h, layer, out);
+    }
+
+    public final boolean hasMapTileProperty(String property, int x, int y) {
+        return lScreen.hasMapTileProperty(property, x, y);
+    }
+
+    public final boolean hasMapTileProperty(String property, int x, int y, int layer) {
+        return lScreen.hasMapTileProperty(property, x, y, layer);
+    }
+
+    public final boolean hasMapTileProperty(String property, float x, float y, int layer) {
+        return lScreen.hasMapTileProperty(property, x, y, layer);
+    }
+
+    public final boolean hasMapTileProperty(String property, double x, double y, int layer) {
+        return lScreen.hasMapTileProperty(property, x, y, layer);
+    }
+
+    public final boolean hasMapTileProperty(String property, BigDecimal x, BigDecimal y, int layer) {
+        return lScreen.hasMapTileProperty(property, x, y, layer);
+    }
+
+    public final void setMapTile(int id, int x, int y) {
+        lScreen.setMapTile(id, x, y);
+    }
+
+    public final void setMapTile(int id, float x, float y) {
+        lScreen.setMapTile(id, x, y);
+    }
+
+    public final void setMapTile(int id, double x, double y) {
+        lScreen.setMapTile(id, x, y);
+    }
+
     public final void setMapTile(int id, BigDecimal x, BigDecimal y) {
         lScreen.setMapTile(id, x, y);
     }
 
+    public final void setMapTile(int id, int x, int y, int layer) {
+        lScreen.setMapTile(id, x, y, layer);
+    }
+
+    public final void setMapTile(int id, float x, float y, int layer) {
+        lScreen.setMapTile(id, x, y, layer);
+    }
+
+    public final void setMapTile(int id, double x, double y, int layer) {
+        lScreen.setMapTile(id, x, y, layer);
+    }
+
     public final void setMapTile(int id, BigDecimal x, BigDecimal y, int layer) {
         lScreen.setMapTile(id, x, y, layer);
     }
 
+    public final void removeMapTile(int x, int y) {
+        lScreen.removeMapTile(x, y);
+    }
+
+    public final void removeMapTile(float x, float y) {
+        lScreen.removeMapTile(x, y);
+    }
+
+    public final void removeMapTile(double x, double y) {
+        lScreen.removeMapTile(x, y);
+    }
+
     public final void removeMapTile(BigDecimal x, BigDecimal y) {
         lScreen.removeMapTile(x, y);
     }
 
+    public final void removeMapTile(int x, int y, int layer) {
+        lScreen.removeMapTile(x, y, layer);
+    }
+
+    public final void removeMapTile(float x, float y, int layer) {
+        lScreen.removeMapTile(x, y, layer);
+    }
+
+    public final void removeMapTile(double x, double y, int layer) {
+        lScreen.removeMapTile(x, y, layer);
+    }
+
     public final void removeMapTile(BigDecimal x, BigDecimal y, int layer) {
         lScreen.removeMapTile(x, y, layer);
     }
@@ -299,9 +580,29 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
     public final Color getColor(String color) {
         return lScreen.getColor(color);
     }
+
+    public final Color getColorRGBA(int rgba) {
+        return lScreen.getColorRGBA(rgba);
+    }
+
+    public final Color getColor(int r, int g, int b) {
+        return lScreen.getColor(r, g, b);
+    }
+
+    public final Color getColor(int r, int g, int b, int a) {
+        return lScreen.getColor(r, g, b, a);
+    }
     //end color methods
 
     //Helper methods
+    public final void setClip(float x, float y, float w, float h) {
+        lScreen.setClip(x, y, w, h);
+    }
+
+    public final void setClip(double x, double y, double w, double h) {
+        lScreen.setClip(x, y, w, h);
+    }
+
     public final void setClip(BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
         lScreen.setClip(x, y, w, h);
     }
@@ -310,241 +611,1000 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
         lScreen.removeClip();
     }
 
+    /**
+     * Sets the layer of the following draws when the program sets the
+     * draw_queue property. Higher layers are drawn over lower ones, draws on
+     * the same layer that overlap keep the order they were made in.
+     *
+     * @param z
+     */
+    public final void setZ(int z) {
+        lScreen.setZ(z);
+    }
+
+    public final int getZ() {
+        return lScreen.getZ();
+    }
+
     //end helper methods
     //text methods
+    public final void drawString(Color color, String text, float x, float y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
+    public final void drawString(Color color, String text, double x, double y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
     public final void drawString(Color color, String text, BigDecimal x, BigDecimal y) {
         lScreen.drawString(color, text, x, y);
     }
 
+    public final void drawString(Color color, String text, float x, float y, float width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
+    public final void drawString(Color color, String text, double x, double y, double width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
     public final void drawString(Color color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
         lScreen.drawString(color, text, x, y, width);
     }
 
-    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
-        lScreen.drawString(color, text, x, y, width, align);
+    public final void drawString(Color color, String text, float x, float y, float width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(Color color, String text, double x, double y, double width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(int color, String text, float x, float y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
+    public final void drawString(int color, String text, double x, double y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
+    public final void drawString(int color, String text, BigDecimal x, BigDecimal y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
+    public final void drawString(int color, String text, float x, float y, float width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
+    public final void drawString(int color, String text, double x, double y, double width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
+    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
+    public final void drawString(int color, String text, float x, float y, float width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(int color, String text, double x, double y, double width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(String color, String text, float x, float y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
+    public final void drawString(String color, String text, double x, double y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
+    public final void drawString(String color, String text, BigDecimal x, BigDecimal y) {
+        lScreen.drawString(color, text, x, y);
+    }
+
+    public final void drawString(String color, String text, float x, float y, float width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
+    public final void drawString(String color, String text, double x, double y, double width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
+    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
+        lScreen.drawString(color, text, x, y, width);
+    }
+
+    public final void drawString(String color, String text, float x, float y, float width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(String color, String text, double x, double y, double width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+
+    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
+        lScreen.drawString(color, text, x, y, width, align);
+    }
+    //end drawString methods
+
+    //start 8x8 sprites
+    public final void sprite(int id, float x, float y) {
+        lScreen.sprite(id, x, y);
+    }
+
+    public final void sprite(int id, double x, double y) {
+        lScreen.sprite(id, x, y);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y) {
+        lScreen.sprite(id, x, y);
+    }
+
+    public final void sprite(int id, float x, float y, float degr) {
+        lScreen.sprite(id, x, y, degr);
+    }
+
+    public final void sprite(int id, double x, double y, double degr) {
+        lScreen.sprite(id, x, y, degr);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, BigDecimal degr) {
+        lScreen.sprite(id, x, y, degr);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY) {
+        lScreen.sprite(id, x, y, flipX, flipY);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY) {
+        lScreen.sprite(id, x, y, flipX, flipY);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY) {
+        lScreen.sprite(id, x, y, flipX, flipY);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY, float degr) {
+        lScreen.sprite(id, x, y, flipX, flipY, degr);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY, double degr) {
+        lScreen.sprite(id, x, y, flipX, flipY, degr);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr) {
+        lScreen.sprite(id, x, y, flipX, flipY, degr);
+    }
+    //end 8x8 sprites
+
+    //start sizable sprites
+    public final void sprite(int id, float x, float y, int size) {
+        lScreen.sprite(id, x, y, size);
+    }
+
+    public final void sprite(int id, double x, double y, int size) {
+        lScreen.sprite(id, x, y, size);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, int size) {
+        lScreen.sprite(id, x, y, size);
+    }
+
+    public final void sprite(int id, float degr, float x, float y, int size) {
+        lScreen.sprite(id, degr, x, y, size);
+    }
+
+    public final void sprite(int id, double degr, double x, double y, int size) {
+        lScreen.sprite(id, degr, x, y, size);
+    }
+
+    public final void sprite(int id, BigDecimal degr, BigDecimal x, BigDecimal y, int size) {
+        lScreen.sprite(id, degr, x, y, size);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY, int size) {
+        lScreen.sprite(id, x, y, flipX, flipY, size);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY, int size) {
+        lScreen.sprite(id, x, y, flipX, flipY, size);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, int size) {
+        lScreen.sprite(id, x, y, flipX, flipY, size);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY, float degr, int size) {
+        lScreen.sprite(id, x, y, flipX, flipY, degr, size);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY, double degr, int size) {
+        lScreen.sprite(id, x, y, flipX, flipY, degr, size);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr, int size) {
+        lScreen.sprite(id, x, y, flipX, flipY, degr, size);
+    }
+    //end sizable sprites
+
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph) {
+        lScreen.sprite(ids, px, py, pw, ph);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph) {
+        lScreen.sprite(ids, px, py, pw, ph);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph) {
+        lScreen.sprite(ids, px, py, pw, ph);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph) {
+        lScreen.sprite(ids, px, py, pw, ph);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph, boolean flipX, boolean flipY) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph, boolean flipX, boolean flipY) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph, boolean flipX, boolean flipY) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph, boolean flipX, boolean flipY, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph, boolean flipX, boolean flipY, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph, boolean flipX, boolean flipY, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY, int size) {
+        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY, size);
+    }
+
+    //start scaled sprites
+    public void spriteSc(int id, float x, float y, float scale) {
+        lScreen.spriteSc(id, x, y, scale);
+    }
+
+    public void spriteSc(int id, double x, double y, double scale) {
+        lScreen.spriteSc(id, x, y, scale);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scale) {
+        lScreen.spriteSc(id, x, y, scale);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY, float degr) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY, double degr) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, BigDecimal degr) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY, float degr) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY, double degr) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, BigDecimal degr) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr);
+    }
+
+    //Scaled sprites with size
+    public void spriteSc(int id, float x, float y, float scale, int size) {
+        lScreen.spriteSc(id, x, y, scale, size);
+    }
+
+    public void spriteSc(int id, double x, double y, double scale, int size) {
+        lScreen.spriteSc(id, x, y, scale, size);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scale, int size) {
+        lScreen.spriteSc(id, x, y, scale, size);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, size);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, size);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, size);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY, float degr, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr, size);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY, double degr, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr, size);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, BigDecimal degr, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr, size);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, size);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, size);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, size);
+    }
+
+    public void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY, float degr, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr, size);
+    }
+
+    public void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY, double degr, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr, size);
+    }
+
+    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, BigDecimal degr, int size) {
+        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr, size);
+    }
+    //end scaled sprites
+
+    //start shape drawing methods
+    public final void drawPixel(Color color, int x, int y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(Color color, float x, float y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(Color color, double x, double y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(Color color, BigDecimal x, BigDecimal y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(int color, int x, int y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(int color, float x, float y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(int color, double x, double y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(int color, BigDecimal x, BigDecimal y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(String color, int x, int y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(String color, float x, float y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(String color, double x, double y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawPixel(String color, BigDecimal x, BigDecimal y) {
+        lScreen.drawPixel(color, x, y);
+    }
+
+    public final void drawRect(Color color, int x, int y, int w, int h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(Color color, float x, float y, float w, float h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(Color color, double x, double y, double w, double h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(int color, int x, int y, int w, int h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(int color, float x, float y, float w, float h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(int color, double x, double y, double w, double h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(String color, int x, int y, int w, int h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(String color, float x, float y, float w, float h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(String color, double x, double y, double w, double h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void drawRect(String color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.drawRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(Color color, int x, int y, int w, int h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(Color color, float x, float y, float w, float h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(Color color, double x, double y, double w, double h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(int color, int x, int y, int w, int h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(int color, float x, float y, float w, float h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(int color, double x, double y, double w, double h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(String color, int x, int y, int w, int h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(String color, float x, float y, float w, float h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(String color, double x, double y, double w, double h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void fillRect(String color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.fillRect(color, x, y, w, h);
+    }
+
+    public final void drawLineSegment(Color color, int x0, int y0, int x1, int y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(Color color, float x0, float y0, float x1, float y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(Color color, double x0, double y0, double x1, double y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(Color color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(int color, int x1, int y1, int x2, int y2) {
+        lScreen.drawLineSegment(color, x1, y1, x2, y2);
+    }
+
+    public final void drawLineSegment(int color, float x1, float y1, float x2, float y2) {
+        lScreen.drawLineSegment(color, x1, y1, x2, y2);
+    }
+
+    public final void drawLineSegment(int color, double x1, double y1, double x2, double y2) {
+        lScreen.drawLineSegment(color, x1, y1, x2, y2);
+    }
+
+    public final void drawLineSegment(int color, BigDecimal x1, BigDecimal y1, BigDecimal x2, BigDecimal y2) {
+        lScreen.drawLineSegment(color, x1, y1, x2, y2);
+    }
+
+    public final void drawLineSegment(String color, int x0, int y0, int x1, int y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(String color, float x0, float y0, float x1, float y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(String color, double x0, double y0, double x1, double y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(String color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
+        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    }
+
+    public final void drawCircle(Color color, int x, int y, int r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(Color color, float x, float y, float r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(Color color, double x, double y, double r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(int color, int x, int y, int r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(int color, float x, float y, float r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(int color, double x, double y, double r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(String color, int x, int y, int r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(String color, float x, float y, float r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(String color, double x, double y, double r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void drawCircle(String color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.drawCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(Color color, int x, int y, int r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(Color color, float x, float y, float r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(Color color, double x, double y, double r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(int color, int x, int y, int r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(int color, float x, float y, float r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(int color, double x, double y, double r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(String color, int x, int y, int r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(String color, float x, float y, float r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(String color, double x, double y, double r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void fillCircle(String color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.fillCircle(color, x, y, r);
+    }
+
+    public final void tint(Color color) {
+        lScreen.tint(color);
+    }
+
+    public final void tint(int color) {
+        lScreen.tint(color);
+    }
+
+    public final void tint(String color) {
+        lScreen.tint(color);
+    }
+
+    public final void tint() {
+        lScreen.tint();
+    }
+
+    public Color getPixel(int x, int y) {
+        return lScreen.getPixel(x, y);
+    }
+
+    public Color getPixel(float x, float y) {
+        return lScreen.getPixel(x, y);
+    }
+
+    public Color getPixel(double x, double y) {
+        return lScreen.getPixel(x, y);
+    }
+
+    public Color getPixel(BigDecimal x, BigDecimal y) {
+        return lScreen.getPixel(x, y);
+    }
+
+    public void getPixels(int x, int y, int w, int h, int[] out) {
+        lScreen.getPixels(x, y, w, h, out);
+    }
+
+    public Color getPixel(String name, int x, int y) {
+        return lScreen.getPixel(name, x, y);
+    }
+
+    public Color getPixel(String name, BigDecimal x, BigDecimal y) {
+        return lScreen.getPixel(name, x, y);
+    }
+
+    public ArrayList<Color> getPixels(String name) {
+        return lScreen.getPixels(name);
+    }
+
+    public int getPixelRGBA(String name, int x, int y) {
+        return lScreen.getPixelRGBA(name, x, y);
+    }
+
+    public int getPixelRGBA(String name, BigDecimal x, BigDecimal y) {
+        return lScreen.getPixelRGBA(name, x, y);
+    }
+
+    public void copyPixels(String name, int[] out) {
+        lScreen.copyPixels(name, out);
+    }
+
+    public int getImageWidth(String name) {
+        return lScreen.getImageWidth(name);
+    }
+
+    public int getImageHeight(String name) {
+        return lScreen.getImageHeight(name);
+    }
+    //end shape drawing methods
+
+    //start palette methods
+    public final void setPaletteColor(int id, Color color) {
+        lScreen.setPaletteColor(id, color);
+    }
+
+    public final void setPaletteColor(int id, String color) {
+        lScreen.setPaletteColor(id, color);
     }
 
-    public final void drawString(int color, String text, BigDecimal x, BigDecimal y) {
-        lScreen.drawString(color, text, x, y);
+    public final void setPalette(int[] rgba) {
+        lScreen.setPalette(rgba);
     }
 
-    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
-        lScreen.drawString(color, text, x, y, width);
+    public final void fadePalette(Color target, float amount) {
+        lScreen.fadePalette(target, amount);
     }
 
-    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
-        lScreen.drawString(color, text, x, y, width, align);
+    public final void fadePalette(Color target, double amount) {
+        lScreen.fadePalette(target, amount);
     }
 
-    public final void drawString(String color, String text, BigDecimal x, BigDecimal y) {
-        lScreen.drawString(color, text, x, y);
+    public final void fadePalette(Color target, BigDecimal amount) {
+        lScreen.fadePalette(target, amount);
     }
 
-    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
-        lScreen.drawString(color, text, x, y, width);
+    public final void fadePalette(String target, float amount) {
+        lScreen.fadePalette(target, amount);
     }
 
-    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
-        lScreen.drawString(color, text, x, y, width, align);
+    public final void fadePalette(String target, double amount) {
+        lScreen.fadePalette(target, amount);
     }
-    //end drawString methods
 
-    //start 8x8 sprites
-    public final void sprite(int id, BigDecimal x, BigDecimal y) {
-        lScreen.sprite(id, x, y);
+    public final void fadePalette(String target, BigDecimal amount) {
+        lScreen.fadePalette(target, amount);
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, BigDecimal degr) {
-        lScreen.sprite(id, x, y, degr);
+    public final void resetPalette() {
+        lScreen.resetPalette();
     }
+    //end palette methods
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY) {
-        lScreen.sprite(id, x, y, flipX, flipY);
+    //start pixel layer methods
+    public final int[] getLayer() {
+        return lScreen.getLayer();
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr) {
-        lScreen.sprite(id, x, y, flipX, flipY, degr);
+    public final void layerClear() {
+        lScreen.layerClear();
     }
-    //end 8x8 sprites
 
-    //start sizable sprites
-    public final void sprite(int id, BigDecimal x, BigDecimal y, int size) {
-        lScreen.sprite(id, x, y, size);
+    public final void layerClear(int color) {
+        lScreen.layerClear(color);
     }
 
-    public final void sprite(int id, BigDecimal degr, BigDecimal x, BigDecimal y, int size) {
-        lScreen.sprite(id, degr, x, y, size);
+    public final void layerClear(Color color) {
+        lScreen.layerClear(color);
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, int size) {
-        lScreen.sprite(id, x, y, flipX, flipY, size);
+    public final void drawLayer() {
+        lScreen.drawLayer();
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr, int size) {
-        lScreen.sprite(id, x, y, flipX, flipY, degr, size);
+    public final void layerPixel(Color color, int x, int y) {
+        lScreen.layerPixel(color, x, y);
     }
-    //end sizable sprites
 
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph) {
-        lScreen.sprite(ids, px, py, pw, ph);
+    public final void layerPixel(Color color, float x, float y) {
+        lScreen.layerPixel(color, x, y);
     }
 
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, int size) {
-        lScreen.sprite(ids, px, py, pw, ph, size);
+    public final void layerPixel(Color color, double x, double y) {
+        lScreen.layerPixel(color, x, y);
     }
 
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY) {
-        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY);
+    public final void layerPixel(Color color, BigDecimal x, BigDecimal y) {
+        lScreen.layerPixel(color, x, y);
     }
 
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY, int size) {
-        lScreen.sprite(ids, px, py, pw, ph, flipX, flipY, size);
+    public final void layerPixel(int color, int x, int y) {
+        lScreen.layerPixel(color, x, y);
     }
 
-    //start scaled sprites
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scale) {
-        lScreen.spriteSc(id, x, y, scale);
+    public final void layerPixel(int color, float x, float y) {
+        lScreen.layerPixel(color, x, y);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY);
+    public final void layerPixel(int color, double x, double y) {
+        lScreen.layerPixel(color, x, y);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, BigDecimal degr) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr);
+    public final void layerPixel(int color, BigDecimal x, BigDecimal y) {
+        lScreen.layerPixel(color, x, y);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY);
+    public final void layerRect(Color color, int x, int y, int w, int h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, BigDecimal degr) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr);
+    public final void layerRect(Color color, float x, float y, float w, float h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
 
-    //Scaled sprites with size
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scale, int size) {
-        lScreen.spriteSc(id, x, y, scale, size);
+    public final void layerRect(Color color, double x, double y, double w, double h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, int size) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY, size);
+    public final void layerRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, BigDecimal degr, int size) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY, degr, size);
+    public final void layerRect(int color, int x, int y, int w, int h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, int size) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, size);
+    public final void layerRect(int color, float x, float y, float w, float h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
 
-    public void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, BigDecimal degr, int size) {
-        lScreen.spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr, size);
+    public final void layerRect(int color, double x, double y, double w, double h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
-    //end scaled sprites
 
-    //start shape drawing methods
-    public final void drawPixel(Color color, BigDecimal x, BigDecimal y) {
-        lScreen.drawPixel(color, x, y);
+    public final void layerRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.layerRect(color, x, y, w, h);
     }
 
-    public final void drawPixel(int color, BigDecimal x, BigDecimal y) {
-        lScreen.drawPixel(color, x, y);
+    public final void layerFillRect(Color color, int x, int y, int w, int h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void drawPixel(String color, BigDecimal x, BigDecimal y) {
-        lScreen.drawPixel(color, x, y);
+    public final void layerFillRect(Color color, float x, float y, float w, float h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void drawRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        lScreen.drawRect(color, x, y, w, h);
+    public final void layerFillRect(Color color, double x, double y, double w, double h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void drawRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        lScreen.drawRect(color, x, y, w, h);
+    public final void layerFillRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void drawRect(String color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        lScreen.drawRect(color, x, y, w, h);
+    public final void layerFillRect(int color, int x, int y, int w, int h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void fillRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        lScreen.fillRect(color, x, y, w, h);
+    public final void layerFillRect(int color, float x, float y, float w, float h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void fillRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        lScreen.fillRect(color, x, y, w, h);
+    public final void layerFillRect(int color, double x, double y, double w, double h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void fillRect(String color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        lScreen.fillRect(color, x, y, w, h);
+    public final void layerFillRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lScreen.layerFillRect(color, x, y, w, h);
     }
 
-    public final void drawLineSegment(Color color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
-        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    public final void layerLine(Color color, int x0, int y0, int x1, int y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void drawLineSegment(int color, BigDecimal x1, BigDecimal y1, BigDecimal x2, BigDecimal y2) {
-        lScreen.drawLineSegment(color, x1, y1, x2, y2);
+    public final void layerLine(Color color, float x0, float y0, float x1, float y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void drawLineSegment(String color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
-        lScreen.drawLineSegment(color, x0, y0, x1, y1);
+    public final void layerLine(Color color, double x0, double y0, double x1, double y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void drawCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        lScreen.drawCircle(color, x, y, r);
+    public final void layerLine(Color color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void drawCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        lScreen.drawCircle(color, x, y, r);
+    public final void layerLine(int color, int x0, int y0, int x1, int y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void drawCircle(String color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        lScreen.drawCircle(color, x, y, r);
+    public final void layerLine(int color, float x0, float y0, float x1, float y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void fillCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        lScreen.fillCircle(color, x, y, r);
+    public final void layerLine(int color, double x0, double y0, double x1, double y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void fillCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        lScreen.fillCircle(color, x, y, r);
+    public final void layerLine(int color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
+        lScreen.layerLine(color, x0, y0, x1, y1);
     }
 
-    public final void fillCircle(String color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        lScreen.fillCircle(color, x, y, r);
+    public final void layerCircle(Color color, int x, int y, int r) {
+        lScreen.layerCircle(color, x, y, r);
     }
 
-    public final void tint(Color color) {
-        lScreen.tint(color);
+    public final void layerCircle(Color color, float x, float y, float r) {
+        lScreen.layerCircle(color, x, y, r);
     }
 
-    public final void tint(int color) {
-        lScreen.tint(color);
+    public final void layerCircle(Color color, double x, double y, double r) {
+        lScreen.layerCircle(color, x, y, r);
     }
 
-    public final void tint(String color) {
-        lScreen.tint(color);
+    public final void layerCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.layerCircle(color, x, y, r);
     }
 
-    public final void tint() {
-        lScreen.tint();
+    public final void layerCircle(int color, int x, int y, int r) {
+        lScreen.layerCircle(color, x, y, r);
     }
 
-    public Color getPixel(BigDecimal x, BigDecimal y) {
-        return lScreen.getPixel(x, y);
+    public final void layerCircle(int color, float x, float y, float r) {
+        lScreen.layerCircle(color, x, y, r);
     }
 
-    public Color getPixel(String name, BigDecimal x, BigDecimal y) {
-        return lScreen.getPixel(name, x, y);
+    public final void layerCircle(int color, double x, double y, double r) {
+        lScreen.layerCircle(color, x, y, r);
     }
 
-    public ArrayList<Color> getPixels(String name) {
-        return lScreen.getPixels(name);
+    public final void layerCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        lScreen.layerCircle(color, x, y, r);
     }
-    //end shape drawing methods
+    //end pixel layer methods
 
     //start Audio handling
     public final void playSound(String name) {
@@ -559,6 +1619,38 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
         lAudio.stopSound();
     }
 
+    public final int getSoundHandle(String name) {
+        return lAudio.getSoundHandle(name);
+    }
+
+    public final int playSound(int handle) {
+        return lAudio.playSound(handle);
+    }
+
+    public final int playSound(int handle, float vol, float pit, float pan) {
+        return lAudio.playSound(handle, vol, pit, pan);
+    }
+
+    public final int playSound(int handle, double vol, double pit, double pan) {
+        return lAudio.playSound(handle, vol, pit, pan);
+    }
+
+    public final int playSound(int handle, BigDecimal vol, BigDecimal pit, BigDecimal pan) {
+        return lAudio.playSound(handle, vol, pit, pan);
+    }
+
+    public final void stopVoice(int voice) {
+        lAudio.stopVoice(voice);
+    }
+
+    public final void setSoundPriority(int handle, int priority) {
+        lAudio.setSoundPriority(handle, priority);
+    }
+
+    public final void setSoundMaxVoices(int handle, int max) {
+        lAudio.setSoundMaxVoices(handle, max);
+    }
+
     public final void playMusic(String name) {
         lAudio.playMusic(name);
     }
@@ -585,26 +1677,74 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
     //end Audio handling
 
     //START Math utils
+    public float cos(float radians) {
+        return lSystem.cos(radians);
+    }
+
+    public float cos(double radians) {
+        return lSystem.cos(radians);
+    }
+
     public float cos(BigDecimal radians) {
         return lSystem.cos(radians);
     }
 
+    public float cosDeg(float deg) {
+        return lSystem.cosDeg(deg);
+    }
+
+    public float cosDeg(double deg) {
+        return lSystem.cosDeg(deg);
+    }
+
     public float cosDeg(BigDecimal deg) {
         return lSystem.cosDeg(deg);
     }
 
+    public float sin(float radians) {
+        return lSystem.sin(radians);
+    }
+
+    public float sin(double radians) {
+        return lSystem.sin(radians);
+    }
+
     public float sin(BigDecimal radians) {
         return lSystem.sin(radians);
     }
 
+    public float sinDeg(float deg) {
+        return lSystem.sinDeg(deg);
+    }
+
+    public float sinDeg(double deg) {
+        return lSystem.sinDeg(deg);
+    }
+
     public float sinDeg(BigDecimal deg) {
         return lSystem.sinDeg(deg);
     }
 
+    public int ceil(float value) {
+        return lSystem.ceil(value);
+    }
+
+    public int ceil(double value) {
+        return lSystem.ceil(value);
+    }
+
     public int ceil(BigDecimal value) {
         return lSystem.ceil(value);
     }
 
+    public int floor(float value) {
+        return lSystem.floor(value);
+    }
+
+    public int floor(double value) {
+        return lSystem.floor(value);
+    }
+
     public int floor(BigDecimal value) {
         return lSystem.floor(value);
     }
@@ -617,14 +1757,38 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
         return lSystem.randInt(start, end);
     }
 
+    public float randFloat(float range) {
+        return lSystem.randFloat(range);
+    }
+
+    public float randFloat(double range) {
+        return lSystem.randFloat(range);
+    }
+
     public float randFloat(BigDecimal range) {
         return lSystem.randFloat(range);
     }
 
+    public float randFloat(float start, float end) {
+        return lSystem.randFloat(start, end);
+    }
+
+    public float randFloat(double start, double end) {
+        return lSystem.randFloat(start, end);
+    }
+
     public float randFloat(BigDecimal start, BigDecimal end) {
         return lSystem.randFloat(start, end);
     }
 
+    public int round(float number) {
+        return lSystem.round(number);
+    }
+
+    public int round(double number) {
+        return lSystem.round(number);
+    }
+
     public int round(BigDecimal number) {
         return lSystem.round(number);
     }
@@ -755,18 +1919,145 @@ public abstract class Engine extends ControllerAdapter implements InputProcessor
     //END Data API
 
 //Experimental API methods
+    public boolean collides(int x1, int y1, int w1, int h1, int x2, int y2, int w2, int h2) {
+        return lSystem.collides(x1, y1, w1, h1, x2, y2, w2, h2);
+    }
+
+    public boolean collides(float x1, float y1, float w1, float h1, float x2, float y2, float w2, float h2) {
+        return lSystem.collides(x1, y1, w1, h1, x2, y2, w2, h2);
+    }
+
+    public boolean collides(double x1, double y1, double w1, double h1, double x2, double y2, double w2, double h2) {
+        return lSystem.collides(x1, y1, w1, h1, x2, y2, w2, h2);
+    }
+
     public boolean collides(BigDecimal x1, BigDecimal y1, BigDecimal w1, BigDecimal h1, BigDecimal x2, BigDecimal y2, BigDecimal w2, BigDecimal h2) {
         return lSystem.collides(x1, y1, w1, h1, x2, y2, w2, h2);
     }
 
+    public boolean collides(int[] a, int[] b) {
+        return lSystem.collides(a, b);
+    }
+
+    public boolean collides(float[] a, float[] b) {
+        return lSystem.collides(a, b);
+    }
+
+    public boolean collides(double[] a, double[] b) {
+        return lSystem.collides(a, b);
+    }
+
     public boolean collides(BigDecimal[] a, BigDecimal[] b) {
         return lSystem.collides(a, b);
     }
 
+    public boolean point(int x, int y, int x2, int y2, int w, int h) {
+        return lSystem.point(x, y, x2, y2, w, h);
+    }
+
+    public boolean point(float x, float y, float x2, float y2, float w, float h) {
+        return lSystem.point(x, y, x2, y2, w, h);
+    }
+
+    public boolean point(double x, double y, double x2, double y2, double w, double h) {
+        return lSystem.point(x, y, x2, y2, w, h);
+    }
+
     public boolean point(BigDecimal x, BigDecimal y, BigDecimal x2, BigDecimal y2, BigDecimal w, BigDecimal h) {
         return lSystem.point(x, y, x2, y2, w, h);
     }
 
+    //start broadphase methods
+    public void clearColliders(float cellSize) {
+        lSystem.clearColliders(cellSize);
+    }
+
+    public void clearColliders() {
+        lSystem.clearColliders();
+    }
+
+    /**
+     * Adds a box to the broadphase grid.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @return the id used to move, remove and report the box
+     */
+    public int insertCollider(int x, int y, int w, int h) {
+        return lSystem.insertCollider(x, y, w, h);
+    }
+
+    public int insertCollider(float x, float y, float w, float h) {
+        return lSystem.insertCollider(x, y, w, h);
+    }
+
+    public int insertCollider(double x, double y, double w, double h) {
+        return lSystem.insertCollider(x, y, w, h);
+    }
+
+    public int insertCollider(BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        return lSystem.insertCollider(x, y, w, h);
+    }
+
+    public void moveCollider(int id, int x, int y, int w, int h) {
+        lSystem.moveCollider(id, x, y, w, h);
+    }
+
+    public void moveCollider(int id, float x, float y, float w, float h) {
+        lSystem.moveCollider(id, x, y, w, h);
+    }
+
+    public void moveCollider(int id, double x, double y, double w, double h) {
+        lSystem.moveCollider(id, x, y, w, h);
+    }
+
+    public void moveCollider(int id, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        lSystem.moveCollider(id, x, y, w, h);
+    }
+
+    public void removeCollider(int id) {
+        lSystem.removeCollider(id);
+    }
+
+    /**
+     * Finds the colliders overlapping a rectangle.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param out receives the ids
+     * @return the number of ids written
+     */
+    public int queryRect(int x, int y, int w, int h, int[] out) {
+        return lSystem.queryRect(x, y, w, h, out);
+    }
+
+    public int queryRect(float x, float y, float w, float h, int[] out) {
+        return lSystem.queryRect(x, y, w, h, out);
+    }
+
+    public int queryRect(double x, double y, double w, double h, int[] out) {
+        return lSystem.queryRect(x, y, w, h, out);
+    }
+
+    public int queryRect(BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h, int[] out) {
+        return lSystem.queryRect(x, y, w, h, out);
+    }
+
+    /**
+     * Finds every pair of overlapping colliders.
+     *
+     * @param out receives two ids per pair
+     * @return the number of pairs written
+     */
+    public int queryPairs(int[] out) {
+        return lSystem.queryPairs(out);
+    }
+    //end broadphase methods
+
     public Object compile(String path) {
         return lSystem.compile(path);
     }
@@ -15,6 +15,12 @@
  */
 package leikr;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import leikr.customProperties.CustomSystemProperties;
 import leikr.loaders.FontLoader;
 import leikr.screens.EngineScreen;
@@ -33,6 +39,8 @@ import org.mini2Dx.core.graphics.viewport.FitViewport;
 public class GameRuntime extends ScreenBasedGame {
 
     public static final String GAME_IDENTIFIER = "torbuntu.leikr";
+    //identifies the engine build in cache keys, see getBuildId
+    private static String buildId;
 
     //Start out in the Programs/ directory.
     public static String PROGRAM_PATH;
@@ -71,6 +79,41 @@ public class GameRuntime extends ScreenBasedGame {
         }
     }
 
+    /**
+     * Identifies the running engine build for the compiled code and atlas
+     * caches, so they are rebuilt after an upgrade. Made of the jar version,
+     * when there is one, and a hash of the Engine class, which changes with
+     * the program API.
+     *
+     * @return the build id
+     */
+    public static synchronized String getBuildId() {
+        if (null == buildId) {
+            Package p = GameRuntime.class.getPackage();
+            String version = null == p ? null : p.getImplementationVersion();
+            StringBuilder id = new StringBuilder(null == version ? "dev" : version);
+            try (InputStream in = Engine.class.getResourceAsStream("Engine.class")) {
+                if (null == in) {
+                    throw new IOException("Engine.class is not on the class path");
+                }
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+                id.append(':');
+                for (byte b : digest.digest()) {
+                    id.append(String.format("%02x", b));
+                }
+            } catch (IOException | NoSuchAlgorithmException ex) {
+                Logger.getLogger(GameRuntime.class.getName()).log(Level.WARNING, "Unable to hash the Engine class", ex);
+            }
+            buildId = id.toString();
+        }
+        return buildId;
+    }
+
     /**
      * setProgramPath Pass in a path to a program: EG "Programs/MyProgramTitle"
      * The directory "Programs" is required, as seen on MenuScreen
@@ -19,6 +19,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -32,6 +34,16 @@ public class CustomProgramProperties {
     public int MAX_SPRITES = 128;
     public boolean USE_COMPILED = false;
     public boolean COMPILE_SOURCE = false;
+    public String COMPILE_MODE = "dynamic";
+    public boolean PALETTE_SPRITES = false;
+    //batches draws by texture, overlapping draws on a layer keep their order
+    public boolean DRAW_QUEUE = false;
+    public boolean STREAM_MAPS = false;
+    public boolean MAP_CHUNKS = false;
+    public boolean LAZY_ASSETS = false;
+    public int ASSET_BUDGET = 64;
+    public List<String> PRELOAD = new ArrayList<>();
+    public int MAX_VOICES = 12;
     public String TITLE = "unknown";
     public String TYPE = "Program";
     public String AUTHOR = "unknown";
@@ -51,6 +63,28 @@ public class CustomProgramProperties {
             }
             USE_COMPILED = (prop.getProperty("use_compiled") != null) ? Boolean.valueOf(prop.getProperty("use_compiled")) : false;
             COMPILE_SOURCE = (prop.getProperty("compile_source") != null) ? Boolean.valueOf(prop.getProperty("compile_source")) : false;
+            COMPILE_MODE = (prop.getProperty("compile_mode") != null) ? prop.getProperty("compile_mode").trim().toLowerCase() : "dynamic";
+            if (!COMPILE_MODE.equals("static") && !COMPILE_MODE.equals("indy") && !COMPILE_MODE.equals("dynamic")) {
+                Logger.getLogger(CustomProgramProperties.class.getName()).log(Level.WARNING, "Unknown compile_mode: {0}. Using dynamic.", COMPILE_MODE);
+                COMPILE_MODE = "dynamic";
+            }
+            PALETTE_SPRITES = (prop.getProperty("palette_sprites") != null) ? Boolean.valueOf(prop.getProperty("palette_sprites")) : false;
+            DRAW_QUEUE = (prop.getProperty("draw_queue") != null) ? Boolean.valueOf(prop.getProperty("draw_queue")) : false;
+            STREAM_MAPS = (prop.getProperty("stream_maps") != null) ? Boolean.valueOf(prop.getProperty("stream_maps")) : false;
+            MAP_CHUNKS = (prop.getProperty("map_chunks") != null) ? Boolean.valueOf(prop.getProperty("map_chunks")) : false;
+            LAZY_ASSETS = (prop.getProperty("lazy_assets") != null) ? Boolean.valueOf(prop.getProperty("lazy_assets")) : false;
+            ASSET_BUDGET = (prop.getProperty("asset_budget") != null) ? Integer.parseInt(prop.getProperty("asset_budget").trim()) : 64;
+            MAX_VOICES = (prop.getProperty("max_voices") != null) ? Integer.parseInt(prop.getProperty("max_voices").trim()) : 12;
+            if (MAX_VOICES > 64) {
+                MAX_VOICES = 64;
+            }
+            if (prop.getProperty("preload") != null) {
+                for (String path : prop.getProperty("preload").split(",")) {
+                    if (!path.trim().isEmpty()) {
+                        PRELOAD.add(path.trim());
+                    }
+                }
+            }
 
             TITLE = ((prop.getProperty("title") != null) ? prop.getProperty("title") : "unknown");
             TYPE = ((prop.getProperty("type") != null) ? prop.getProperty("type") : "Program");
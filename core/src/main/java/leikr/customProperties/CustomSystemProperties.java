@@ -48,6 +48,8 @@ public class CustomSystemProperties {
     public static int VERTICAL_AXIS;
 
     public static boolean DEBUG;
+    //megabytes of assets kept for reloads, see ResidentCache
+    public static int RESIDENT_CACHE = 128;
 
     public static void init() {
         Properties prop = new Properties();
@@ -55,6 +57,7 @@ public class CustomSystemProperties {
             prop.load(stream);
             LAUNCH_TITLE = (prop.getProperty("launch_title") != null) ? prop.getProperty("launch_title") : "";
             DEBUG = (prop.getProperty("debug_mode") != null) ? Boolean.valueOf(prop.getProperty("debug_mode")) : false;
+            RESIDENT_CACHE = (prop.getProperty("resident_cache") != null) ? Integer.parseInt(prop.getProperty("resident_cache").trim()) : 128;
 
             X = (prop.getProperty("btn_x") != null) ? Integer.parseInt(prop.getProperty("btn_x")) : 3;
             A = (prop.getProperty("btn_a") != null) ? Integer.parseInt(prop.getProperty("btn_a")) : 1;
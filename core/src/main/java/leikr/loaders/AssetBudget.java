@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps the lazily loaded assets under a memory budget.
+ *
+ * Loaders add each asset they load with its size and a callback that unloads
+ * it, and touch it whenever it is used. Assets are keyed by the loaded object
+ * itself, so touching one does no string work. When the total goes over the
+ * budget the least recently used assets are unloaded. Assets used in the
+ * current frame are never unloaded, since queued draws may still hold them,
+ * and neither are assets their loader reports as in use, like playing
+ * sounds.
+ *
+ * @author tor
+ */
+public class AssetBudget {
+
+    public static final int DEFAULT_BUDGET_MB = 64;
+
+    private static class Entry {
+
+        final Object owner;
+        final long size;
+        final Runnable unload;
+        final BooleanSupplier inUse;
+        long frame;
+
+        Entry(Object owner, long size, Runnable unload, BooleanSupplier inUse) {
+            this.owner = owner;
+            this.size = size;
+            this.unload = unload;
+            this.inUse = inUse;
+        }
+    }
+
+    //in access order, the least recently used first
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long limit = DEFAULT_BUDGET_MB * 1024L * 1024L;
+    private long used;
+    private long frame;
+
+    private static AssetBudget instance;
+
+    private AssetBudget() {
+    }
+
+    public static AssetBudget getAssetBudget() {
+        if (instance == null) {
+            instance = new AssetBudget();
+        }
+        return instance;
+    }
+
+    /**
+     * @param megabytes the budget, values below 1 use the default
+     */
+    public void setBudget(int megabytes) {
+        limit = (megabytes > 0 ? megabytes : DEFAULT_BUDGET_MB) * 1024L * 1024L;
+        trim();
+    }
+
+    public long getUsed() {
+        return used;
+    }
+
+    /**
+     * Starts a new frame, assets used before it may be unloaded again.
+     */
+    public void nextFrame() {
+        frame++;
+    }
+
+    /**
+     * Tracks a loaded asset and unloads older ones when over the budget.
+     *
+     * @param owner the loader of the asset
+     * @param asset the loaded asset
+     * @param size the memory used by the asset in bytes
+     * @param unload disposes the asset and forgets it in its loader, it must
+     * not call back into the budget
+     */
+    public void add(Object owner, Object asset, long size, Runnable unload) {
+        add(owner, asset, size, unload, null);
+    }
+
+    /**
+     * Tracks a loaded asset that is not unloaded while it is in use.
+     *
+     * @param owner the loader of the asset
+     * @param asset the loaded asset
+     * @param size the memory used by the asset in bytes
+     * @param unload disposes the asset and forgets it in its loader, it must
+     * not call back into the budget
+     * @param inUse true while the asset must stay loaded, null when it is only
+     * kept by being touched
+     */
+    public void add(Object owner, Object asset, long size, Runnable unload, BooleanSupplier inUse) {
+        Entry old = entries.remove(asset);
+        if (null != old) {
+            used -= old.size;
+        }
+        Entry entry = new Entry(owner, size, unload, inUse);
+        entry.frame = frame;
+        entries.put(asset, entry);
+        used += size;
+        trim();
+    }
+
+    /**
+     * Marks an asset as used.
+     *
+     * @param asset
+     */
+    public void touch(Object asset) {
+        Entry entry = entries.get(asset);
+        if (null != entry) {
+            entry.frame = frame;
+        }
+    }
+
+    /**
+     * Forgets the assets of a loader without unloading them, for loaders that
+     * dispose their assets themselves.
+     *
+     * @param owner
+     */
+    public void release(Object owner) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.owner == owner) {
+                used -= entry.size;
+                it.remove();
+            }
+        }
+    }
+
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (used > limit && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.frame == frame) {
+                //the rest were used in this frame too
+                break;
+            }
+            if (null != entry.inUse && entry.inUse.getAsBoolean()) {
+                continue;
+            }
+            it.remove();
+            used -= entry.size;
+            entry.unload.run();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import leikr.Engine;
+
+/**
+ * Loads a program while the LoadScreen is shown.
+ *
+ * The Engine is compiled and the atlas images are decoded and packed on a
+ * pool of worker threads. The render thread only uploads the decoded atlas
+ * pages and loads the queued audio, both within a time budget per frame. The
+ * loaders keep what the pipeline loaded when the EngineScreen starts.
+ *
+ * @author tor
+ */
+public class AssetPipeline {
+
+    public static final int CODE = 0;
+    public static final int IMAGES = 1;
+    public static final int AUDIO = 2;
+    public static final String[] NAMES = {"Code", "Images", "Audio"};
+
+    //render thread time spent on uploads and audio per frame
+    private static final long FRAME_BUDGET = 8_000_000L;
+
+    //atlas steps
+    private static final int PLANNING = 0;
+    private static final int SOURCES = 1;
+    private static final int PACKING = 2;
+    private static final int PAGES = 3;
+    private static final int DONE = 4;
+
+    private final ExecutorService pool;
+
+    private Future<Engine> engine;
+
+    private int atlasStep;
+    private Future<AtlasLoader.Plan> planning;
+    private AtlasLoader.Plan plan;
+    private boolean packed;
+    private final List<Future<?>> decoding = new ArrayList<>();
+    private Future<?> packing;
+    private int uploaded;
+
+    private AudioLoader audio;
+    private boolean audioDone;
+
+    private static AssetPipeline instance;
+
+    private AssetPipeline() {
+        pool = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "Leikr-Assets");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static AssetPipeline getAssetPipeline() {
+        if (instance == null) {
+            instance = new AssetPipeline();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts loading the program set in the GameRuntime. Called on the render
+     * thread.
+     */
+    public void start() {
+        cancel();
+        engine = pool.submit(EngineLoader.getEngineLoader(true));
+        AtlasLoader atlas = AtlasLoader.getAtlasLoader();
+        planning = pool.submit(atlas::plan);
+        atlasStep = PLANNING;
+        audio = AudioLoader.queueAudioLoader();
+        audioDone = false;
+    }
+
+    /**
+     * Uploads what the workers decoded and loads audio for a while. Called
+     * once per frame on the render thread.
+     */
+    public void update() {
+        if (null == engine) {
+            return;
+        }
+        long deadline = System.nanoTime() + FRAME_BUDGET;
+        try {
+            updateAtlas(deadline);
+        } catch (InterruptedException | ExecutionException | RuntimeException ex) {
+            //the ImageLoader loads the atlas again and reports the error
+            Logger.getLogger(AssetPipeline.class.getName()).log(Level.WARNING, "Unable to prepare the atlas", ex);
+            disposePlan();
+        }
+        while (!audioDone && System.nanoTime() < deadline) {
+            audioDone = audio.update();
+        }
+    }
+
+    private void updateAtlas(long deadline) throws InterruptedException, ExecutionException {
+        switch (atlasStep) {
+            case PLANNING:
+                if (planning.isDone()) {
+                    plan = planning.get();
+                    if (null == plan) {
+                        atlasStep = DONE;
+                    } else if (plan.isPacked()) {
+                        decodePages();
+                    } else {
+                        for (int i = 0; i < plan.getSourceCount(); i++) {
+                            int source = i;
+                            decoding.add(pool.submit(() -> plan.decodeSource(source)));
+                        }
+                        atlasStep = SOURCES;
+                    }
+                }
+                break;
+            case SOURCES:
+                if (getDone(decoding) == decoding.size()) {
+                    for (Future<?> f : decoding) {
+                        f.get();
+                    }
+                    packing = pool.submit(() -> {
+                        AtlasLoader.getAtlasLoader().pack(plan);
+                        return null;
+                    });
+                    atlasStep = PACKING;
+                }
+                break;
+            case PACKING:
+                if (packing.isDone()) {
+                    packing.get();
+                    packed = true;
+                    decodePages();
+                }
+                break;
+            case PAGES:
+                while (uploaded < plan.getPageCount() && decoding.get(uploaded).isDone() && System.nanoTime() < deadline) {
+                    decoding.get(uploaded).get();
+                    plan.uploadPage(uploaded++);
+                }
+                if (uploaded == plan.getPageCount()) {
+                    AtlasLoader.getAtlasLoader().install(plan);
+                    plan = null;
+                    atlasStep = DONE;
+                }
+                break;
+            default:
+        }
+    }
+
+    private void decodePages() {
+        decoding.clear();
+        for (int p = 0; p < plan.getPageCount(); p++) {
+            int page = p;
+            decoding.add(pool.submit(() -> plan.decodePage(page)));
+        }
+        uploaded = 0;
+        atlasStep = PAGES;
+    }
+
+    private static int getDone(List<Future<?>> tasks) {
+        int done = 0;
+        for (Future<?> f : tasks) {
+            if (f.isDone()) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * @param kind CODE, IMAGES or AUDIO
+     * @return the loaded part from 0 to 1
+     */
+    public float getProgress(int kind) {
+        if (null == engine) {
+            return 0;
+        }
+        switch (kind) {
+            case CODE:
+                return engine.isDone() ? 1 : 0;
+            case IMAGES:
+                return getImageProgress();
+            case AUDIO:
+                return audioDone ? 1 : audio.getProgress();
+            default:
+                return 0;
+        }
+    }
+
+    //decoding and packing the sources is the first half when it is needed
+    private float getImageProgress() {
+        switch (atlasStep) {
+            case SOURCES:
+                return decoding.isEmpty() ? 0 : 0.5f * getDone(decoding) / decoding.size();
+            case PACKING:
+                return 0.5f;
+            case PAGES:
+                float start = packed ? 0.5f : 0;
+                int pages = plan.getPageCount();
+                return pages == 0 ? 1 : start + (1 - start) * (getDone(decoding) + uploaded) / (2f * pages);
+            case DONE:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    public boolean isEngineLoaded() {
+        return null != engine && engine.isDone();
+    }
+
+    /**
+     * @return true once the Engine and every asset is loaded
+     */
+    public boolean isDone() {
+        return isEngineLoaded() && atlasStep == DONE && audioDone;
+    }
+
+    /**
+     * @return the loaded Engine
+     * @throws InterruptedException
+     * @throws ExecutionException when the program could not be compiled or
+     * created
+     */
+    public Engine getEngine() throws InterruptedException, ExecutionException {
+        return engine.get();
+    }
+
+    /**
+     * Stops loading and releases what was loaded so far. The running
+     * compile, decode and pack tasks finish on their own.
+     */
+    public void cancel() {
+        if (null == engine) {
+            return;
+        }
+        engine.cancel(false);
+        engine = null;
+        planning.cancel(false);
+        for (Future<?> f : decoding) {
+            f.cancel(false);
+        }
+        disposePlan();
+        if (!audioDone) {
+            audio.disposeAudioLoader();
+            audioDone = true;
+        }
+    }
+
+    private void disposePlan() {
+        if (null != plan) {
+            //tasks still writing into the plan are waited for
+            if (null != packing) {
+                decoding.add(packing);
+            }
+            for (Future<?> f : decoding) {
+                try {
+                    if (!f.isCancelled()) {
+                        f.get();
+                    }
+                } catch (InterruptedException | ExecutionException ex) {
+                    Logger.getLogger(AssetPipeline.class.getName()).log(Level.FINE, null, ex);
+                }
+            }
+            plan.dispose();
+            plan = null;
+        }
+        decoding.clear();
+        packing = null;
+        packed = false;
+        atlasStep = DONE;
+    }
+}
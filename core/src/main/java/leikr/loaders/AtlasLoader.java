@@ -0,0 +1,504 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import leikr.GameRuntime;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.files.FileHandle;
+import org.mini2Dx.core.graphics.Texture;
+
+/**
+ * Packs the program sprite sheet and Art images into a few large textures,
+ * so sprites and images can be drawn in the same batch.
+ *
+ * The packed pages are written to the cache directory together with an
+ * index and the hash of the sources. A later load with unchanged sources
+ * reads the pages from the cache instead of packing again.
+ *
+ * The sprite sheet is left out when the program uses palette_sprites, it is
+ * converted to palette ids by the SpriteLoader instead.
+ *
+ * @author tor
+ */
+public class AtlasLoader {
+
+    public static final String SPRITES = "Sprites/Sprites.png";
+    public static final int PAGE_SIZE = 2048;
+    //transparent pixels between images so filtering never reads a neighbor
+    private static final int PADDING = 2;
+    private static final String INDEX_FILE = "atlas.index";
+    private static final String FORMAT = "1";
+    private static final String RESIDENT_KEY = "atlas:";
+
+    /**
+     * The place of one source image in the atlas.
+     */
+    public static class AtlasEntry {
+
+        public final Texture page;
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+
+        AtlasEntry(Texture page, int x, int y, int width, int height) {
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final HashMap<String, AtlasEntry> entries = new HashMap<>();
+    private final List<Texture> pages = new ArrayList<>();
+    //program path and file sizes and dates of the loaded atlas
+    private String stamp;
+
+    private static AtlasLoader instance;
+
+    private AtlasLoader() {
+    }
+
+    public static AtlasLoader getAtlasLoader() {
+        if (instance == null) {
+            instance = new AtlasLoader();
+        }
+        return instance;
+    }
+
+    /**
+     * The work to bring the atlas up to date. Made by plan off the render
+     * thread. The sources are decoded and packed when the cache is not
+     * current, then the cached pages are decoded and, on the render thread,
+     * uploaded and installed.
+     */
+    public static class Plan {
+
+        final String programPath;
+        final List<String> sources;
+        final String stamp;
+        final String cachePath;
+        String hash;
+        //index lines of the cached pages, null until the sources are packed
+        List<String[]> index;
+        Pixmap[] images;
+        org.mini2Dx.core.graphics.Pixmap[] pagePixmaps;
+        Texture[] textures;
+        //a parked atlas taken back from the ResidentCache
+        Resident resident;
+
+        Plan(String programPath, List<String> sources, String stamp, String cachePath) {
+            this.programPath = programPath;
+            this.sources = sources;
+            this.stamp = stamp;
+            this.cachePath = cachePath;
+            images = new Pixmap[sources.size()];
+        }
+
+        public boolean isPacked() {
+            return null != index;
+        }
+
+        public int getSourceCount() {
+            return sources.size();
+        }
+
+        public int getPageCount() {
+            return null == textures ? 0 : textures.length;
+        }
+
+        /**
+         * Decodes a source image for packing, safe off the render thread.
+         *
+         * @param i
+         */
+        public void decodeSource(int i) {
+            images[i] = new Pixmap(Gdx.files.local(programPath + "/" + sources.get(i)));
+        }
+
+        /**
+         * Decodes a cached page, safe off the render thread.
+         *
+         * @param page
+         */
+        public void decodePage(int page) {
+            pagePixmaps[page] = Mdx.graphics.newPixmap(Mdx.files.local(cachePath + "page" + page + ".png"));
+        }
+
+        /**
+         * Uploads a decoded page, on the render thread.
+         *
+         * @param page
+         */
+        public void uploadPage(int page) {
+            textures[page] = Mdx.graphics.newTexture(pagePixmaps[page]);
+            pagePixmaps[page].dispose();
+            pagePixmaps[page] = null;
+        }
+
+        /**
+         * Releases what was decoded and uploaded for a plan that will not be
+         * installed, on the render thread.
+         */
+        public void dispose() {
+            if (null != resident) {
+                resident.dispose();
+                resident = null;
+            }
+            for (int i = 0; i < images.length; i++) {
+                if (null != images[i]) {
+                    images[i].dispose();
+                    images[i] = null;
+                }
+            }
+            for (int p = 0; p < getPageCount(); p++) {
+                if (null != pagePixmaps[p]) {
+                    pagePixmaps[p].dispose();
+                    pagePixmaps[p] = null;
+                }
+                if (null != textures[p]) {
+                    textures[p].dispose();
+                    textures[p] = null;
+                }
+            }
+        }
+    }
+
+    //the pages and entries of an atlas parked in the ResidentCache
+    private static class Resident {
+
+        final List<Texture> pages;
+        final HashMap<String, AtlasEntry> entries;
+
+        Resident(List<Texture> pages, HashMap<String, AtlasEntry> entries) {
+            this.pages = pages;
+            this.entries = entries;
+        }
+
+        long getSize() {
+            long size = 0;
+            for (Texture page : pages) {
+                size += 4L * page.getWidth() * page.getHeight();
+            }
+            return size;
+        }
+
+        void dispose() {
+            pages.forEach(Texture::dispose);
+        }
+    }
+
+    /**
+     * Makes sure the atlas of the running program is loaded. Keeps the
+     * loaded atlas when none of the sources changed.
+     */
+    public void load() {
+        Plan plan = null;
+        try {
+            plan = plan();
+            if (null == plan) {
+                return;
+            }
+            if (!plan.isPacked()) {
+                for (int i = 0; i < plan.getSourceCount(); i++) {
+                    plan.decodeSource(i);
+                }
+                pack(plan);
+            }
+            for (int p = 0; p < plan.getPageCount(); p++) {
+                plan.decodePage(p);
+                plan.uploadPage(p);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(AtlasLoader.class.getName()).log(Level.SEVERE, "Unable to load the atlas for: " + GameRuntime.getProgramPath(), ex);
+            if (null != plan) {
+                plan.dispose();
+            }
+            dispose();
+            return;
+        }
+        install(plan);
+    }
+
+    /**
+     * Works out what load has to do without changing the loaded atlas, so it
+     * can be called off the render thread.
+     *
+     * @return the plan, null when the loaded atlas is current
+     * @throws IOException
+     */
+    public Plan plan() throws IOException {
+        String programPath = GameRuntime.getProgramPath();
+        List<String> sources = listSources(programPath);
+        String current = getStamp(programPath, sources);
+        if (current.equals(stamp)) {
+            return null;
+        }
+        Plan plan = new Plan(programPath, sources, current, CompiledCodeCache.CACHE_ROOT + programPath + "/Atlas/");
+        plan.resident = ResidentCache.getResidentCache().take(RESIDENT_KEY + current, Resident.class);
+        if (null != plan.resident) {
+            plan.index = new ArrayList<>();
+            plan.pagePixmaps = new org.mini2Dx.core.graphics.Pixmap[0];
+            plan.textures = new Texture[0];
+            return plan;
+        }
+        plan.hash = hashSources(programPath, sources);
+        readIndex(plan);
+        return plan;
+    }
+
+    /**
+     * Replaces the loaded atlas with the uploaded pages of a plan.
+     *
+     * @param plan
+     */
+    public void install(Plan plan) {
+        release();
+        if (null != plan.resident) {
+            pages.addAll(plan.resident.pages);
+            entries.putAll(plan.resident.entries);
+            plan.resident = null;
+        }
+        pages.addAll(Arrays.asList(plan.textures));
+        for (String[] f : plan.index) {
+            int page = Integer.parseInt(f[1]);
+            if (page < pages.size()) {
+                entries.put(f[0], new AtlasEntry(pages.get(page), Integer.parseInt(f[2]), Integer.parseInt(f[3]), Integer.parseInt(f[4]), Integer.parseInt(f[5])));
+            }
+        }
+        stamp = plan.stamp;
+    }
+
+    /**
+     * @param name SPRITES or "Art/" followed by the image file name
+     * @return the entry of the image, null when it is not in the atlas
+     */
+    public AtlasEntry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    //the sprite sheet and the Art images, relative to the program path
+    private List<String> listSources(String programPath) {
+        List<String> sources = new ArrayList<>();
+        EngineLoader engineLoader = EngineLoader.getEngineLoader(false);
+        boolean paletteSprites = null != engineLoader.cp && engineLoader.cp.PALETTE_SPRITES;
+        if (!paletteSprites && Mdx.files.local(programPath + "/" + SPRITES).exists()) {
+            sources.add(SPRITES);
+        }
+        //lazy Art images are loaded one by one when they are first drawn
+        if (null != engineLoader.cp && engineLoader.cp.LAZY_ASSETS) {
+            return sources;
+        }
+        try {
+            FileHandle[] art = Mdx.files.local(programPath + "/Art/").list();
+            Arrays.sort(art, (a, b) -> a.name().compareTo(b.name()));
+            for (FileHandle file : art) {
+                if (!file.isDirectory()
+                        && (file.extension().equalsIgnoreCase("png")
+                        || file.extension().equalsIgnoreCase("jpg")
+                        || file.extension().equalsIgnoreCase("bmp"))) {
+                    sources.add("Art/" + file.name());
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(AtlasLoader.class.getName()).log(Level.WARNING, "No Art found for: {0}", programPath);
+        }
+        return sources;
+    }
+
+    private String getStamp(String programPath, List<String> sources) {
+        StringBuilder sb = new StringBuilder(programPath);
+        for (String source : sources) {
+            FileHandle file = Mdx.files.local(programPath + "/" + source);
+            sb.append('|').append(source).append(':').append(file.length()).append(':').append(file.lastModified());
+        }
+        return sb.toString();
+    }
+
+    private String hashSources(String programPath, List<String> sources) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        digest.update((GameRuntime.getBuildId() + ":" + FORMAT + ":" + PAGE_SIZE).getBytes(StandardCharsets.UTF_8));
+        for (String source : sources) {
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(Paths.get(Mdx.files.local(programPath + "/" + source).path())));
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Index lines are: name, page, x, y, width, height separated by tabs. The
+     * first line is the source hash. Leaves the plan unpacked when the index
+     * is missing or for other sources.
+     */
+    private void readIndex(Plan plan) throws IOException {
+        Path index = Paths.get(Mdx.files.local(plan.cachePath + INDEX_FILE).path());
+        if (!Files.exists(index)) {
+            return;
+        }
+        List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !plan.hash.equals(lines.get(0).trim())) {
+            return;
+        }
+        List<String[]> entries = new ArrayList<>();
+        int pageCount = 0;
+        for (String line : lines.subList(1, lines.size())) {
+            String[] f = line.split("\t");
+            if (f.length != 6) {
+                continue;
+            }
+            entries.add(f);
+            pageCount = Math.max(pageCount, Integer.parseInt(f[1]) + 1);
+        }
+        plan.index = entries;
+        plan.pagePixmaps = new org.mini2Dx.core.graphics.Pixmap[pageCount];
+        plan.textures = new Texture[pageCount];
+    }
+
+    /**
+     * Shelf packing, tallest images first. Images bigger than a page get a
+     * page of their own. Writes the pages of the decoded sources of a plan to
+     * the cache and disposes the sources, safe off the render thread.
+     *
+     * @param plan
+     * @throws IOException
+     */
+    public void pack(Plan plan) throws IOException {
+        long start = System.currentTimeMillis();
+        String cachePath = plan.cachePath;
+        CompiledCodeCache.clear(cachePath);
+        List<String> names = plan.sources;
+        List<Pixmap> images = Arrays.asList(plan.images);
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> images.get(b).getHeight() - images.get(a).getHeight());
+
+        //page, x, y of every image
+        int[][] places = new int[names.size()][];
+        List<int[]> pageSizes = new ArrayList<>();
+        int page = -1;
+        int shelfX = 0;
+        int shelfY = 0;
+        int shelfHeight = 0;
+        for (int i : order) {
+            int w = images.get(i).getWidth();
+            int h = images.get(i).getHeight();
+            if (w > PAGE_SIZE || h > PAGE_SIZE) {
+                pageSizes.add(new int[]{w, h});
+                places[i] = new int[]{pageSizes.size() - 1, 0, 0};
+                continue;
+            }
+            if (page >= 0 && shelfX + w > PAGE_SIZE) {
+                shelfX = 0;
+                shelfY += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            if (page < 0 || shelfY + h > PAGE_SIZE) {
+                pageSizes.add(new int[]{0, 0});
+                page = pageSizes.size() - 1;
+                shelfX = 0;
+                shelfY = 0;
+                shelfHeight = 0;
+            }
+            places[i] = new int[]{page, shelfX, shelfY};
+            int[] size = pageSizes.get(page);
+            size[0] = Math.max(size[0], shelfX + w);
+            size[1] = Math.max(size[1], shelfY + h);
+            shelfX += w + PADDING;
+            shelfHeight = Math.max(shelfHeight, h);
+        }
+
+        StringBuilder index = new StringBuilder(plan.hash).append('\n');
+        for (int p = 0; p < pageSizes.size(); p++) {
+            Pixmap pm = new Pixmap(pageSizes.get(p)[0], pageSizes.get(p)[1], Pixmap.Format.RGBA8888);
+            pm.setBlending(Pixmap.Blending.None);
+            for (int i = 0; i < names.size(); i++) {
+                if (places[i][0] == p) {
+                    pm.drawPixmap(images.get(i), places[i][1], places[i][2]);
+                }
+            }
+            String pagePath = cachePath + "page" + p + ".png";
+            PixmapIO.writePNG(Gdx.files.local(pagePath), pm);
+            pm.dispose();
+        }
+        for (int i = 0; i < names.size(); i++) {
+            Pixmap image = images.get(i);
+            index.append(names.get(i)).append('\t').append(places[i][0]).append('\t').append(places[i][1]).append('\t')
+                    .append(places[i][2]).append('\t').append(image.getWidth()).append('\t').append(image.getHeight()).append('\n');
+            image.dispose();
+        }
+        Files.write(Paths.get(Mdx.files.local(cachePath + INDEX_FILE).path()), index.toString().getBytes(StandardCharsets.UTF_8));
+        Arrays.fill(plan.images, null);
+        readIndex(plan);
+        if (!plan.isPacked()) {
+            throw new IOException("Unable to read the packed atlas index");
+        }
+        Logger.getLogger(AtlasLoader.class.getName()).log(Level.INFO, "Atlas packed in {0}ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Disposes the atlas pages.
+     */
+    public void dispose() {
+        pages.forEach(Texture::dispose);
+        pages.clear();
+        entries.clear();
+        stamp = null;
+    }
+
+    /**
+     * Parks the atlas pages in the ResidentCache, so loading the same sources
+     * again takes them back instead of reading the pages.
+     */
+    public void release() {
+        if (null == stamp || pages.isEmpty()) {
+            dispose();
+            return;
+        }
+        Resident resident = new Resident(new ArrayList<>(pages), new HashMap<>(entries));
+        ResidentCache.getResidentCache().put(RESIDENT_KEY + stamp, resident, resident.getSize(), resident::dispose);
+        pages.clear();
+        entries.clear();
+        stamp = null;
+    }
+}
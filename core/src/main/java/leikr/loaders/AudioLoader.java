@@ -15,8 +15,13 @@
  */
 package leikr.loaders;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import leikr.GameRuntime;
@@ -26,6 +31,7 @@ import org.mini2Dx.core.assets.loader.MusicLoader;
 import org.mini2Dx.core.assets.loader.SoundLoader;
 import org.mini2Dx.core.audio.Music;
 import org.mini2Dx.core.audio.Sound;
+import org.mini2Dx.core.files.FileHandle;
 import org.mini2Dx.core.files.LocalFileHandleResolver;
 
 /**
@@ -44,7 +50,40 @@ public class AudioLoader {
     String soundRootPath;
 
     Music mPlayer;
-    Sound sPlayer;
+    //true while pauseAudio holds music that was playing
+    boolean musicPaused;
+    //every playing sound, played through int handles
+    SoundVoicePool voices;
+
+    //true to load audio when first played, sounds under the AssetBudget
+    boolean lazy;
+    HashMap<String, Sound> sounds;
+    //true while the loads queued for the AssetPipeline are not handed over
+    boolean queued;
+    //ResidentCache key of the audio files, true once they are all loaded
+    String residentKey;
+    boolean loaded;
+
+    private static final String RESIDENT_KEY = "audio:";
+
+    //the managers of loaded audio parked in the ResidentCache
+    private static class ResidentAudio {
+
+        final AssetManager sounds;
+        final AssetManager music;
+
+        ResidentAudio(AssetManager sounds, AssetManager music) {
+            this.sounds = sounds;
+            this.music = music;
+        }
+
+        void dispose() {
+            sounds.clearAssetLoaders();
+            sounds.dispose();
+            music.clearAssetLoaders();
+            music.dispose();
+        }
+    }
 
     private static AudioLoader instance;
 
@@ -52,16 +91,91 @@ public class AudioLoader {
     }
 
     public static AudioLoader getAudioLoader() {
+        return getAudioLoader(true);
+    }
+
+    /**
+     * @param reload when false the decoded sounds and music are kept, so a
+     * code only reload does not read the audio from disk again.
+     * @return the AudioLoader instance
+     */
+    public static AudioLoader getAudioLoader(boolean reload) {
         if (instance == null) {
             instance = new AudioLoader();
         }
+        if (instance.queued) {
+            instance.queued = false;
+            instance.finishAudio();
+            return instance;
+        }
+        if (!reload && null != instance.soundManager) {
+            instance.stopAudio();
+            return instance;
+        }
         instance.disposeAudioLoader();
         instance.resetAudioLoader();
         instance.loadAudio();
         return instance;
     }
 
+    /**
+     * Queues the audio of the program without waiting for it, for the
+     * AssetPipeline. update loads it a step at a time and the next
+     * getAudioLoader keeps it.
+     *
+     * @return the AudioLoader instance
+     */
+    public static AudioLoader queueAudioLoader() {
+        if (instance == null) {
+            instance = new AudioLoader();
+        }
+        instance.disposeAudioLoader();
+        instance.resetAudioLoader();
+        instance.queueAudio();
+        instance.queued = true;
+        return instance;
+    }
+
+    /**
+     * Loads queued audio, usually one file per call.
+     *
+     * @return true when all queued audio is loaded
+     */
+    public boolean update() {
+        try {
+            return soundManager.update() & musicManager.update();
+        } catch (Exception ex) {
+            //getAudioLoader finishes the rest and reports the failed files
+            Logger.getLogger(AudioLoader.class.getName()).log(Level.WARNING, "Audio load error: {0}", ex.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * @return the loaded part of the queued audio from 0 to 1
+     */
+    public float getProgress() {
+        return (soundManager.getProgress() + musicManager.getProgress()) / 2f;
+    }
+
     private void resetAudioLoader() {
+        musicRootPath = GameRuntime.getProgramPath() + "/Audio/Music/";
+        soundRootPath = GameRuntime.getProgramPath() + "/Audio/Sound/";
+        EngineLoader engineLoader = EngineLoader.getEngineLoader(false);
+        lazy = null != engineLoader.cp && engineLoader.cp.LAZY_ASSETS;
+        voices = new SoundVoicePool(null != engineLoader.cp ? engineLoader.cp.MAX_VOICES : SoundVoicePool.DEFAULT_VOICES);
+        sounds = new HashMap<>();
+        loaded = false;
+        //lazy audio is left to the AssetBudget
+        residentKey = lazy ? null : RESIDENT_KEY + getAudioStamp();
+        ResidentAudio resident = lazy ? null : ResidentCache.getResidentCache().take(residentKey, ResidentAudio.class);
+        if (null != resident) {
+            soundManager = resident.sounds;
+            musicManager = resident.music;
+            loaded = true;
+            return;
+        }
+
         soundLoader = new SoundLoader();
         soundManager = new AssetManager(new LocalFileHandleResolver());
         soundManager.setAssetLoader(Sound.class, soundLoader);
@@ -69,34 +183,94 @@ public class AudioLoader {
         musicLoader = new MusicLoader();
         musicManager = new AssetManager(new LocalFileHandleResolver());
         musicManager.setAssetLoader(Music.class, musicLoader);
-        musicRootPath = GameRuntime.getProgramPath() + "/Audio/Music/";
-        soundRootPath = GameRuntime.getProgramPath() + "/Audio/Sound/";
+    }
+
+    private static boolean isAudioFile(FileHandle file) {
+        return !file.isDirectory()
+                && (file.extension().equalsIgnoreCase("wav")
+                || file.extension().equalsIgnoreCase("mp3")
+                || file.extension().equalsIgnoreCase("ogg"));
+    }
+
+    //the sound and music files with their sizes and dates
+    private String getAudioStamp() {
+        List<String> paths = new ArrayList<>();
+        for (String root : new String[]{soundRootPath, musicRootPath}) {
+            try {
+                for (FileHandle file : Mdx.files.local(root).list()) {
+                    if (isAudioFile(file)) {
+                        paths.add(root + file.name());
+                    }
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(AudioLoader.class.getName()).log(Level.FINE, "No audio in: {0}", root);
+            }
+        }
+        Collections.sort(paths);
+        return ResidentCache.getStamp(paths.toArray(new String[0]));
+    }
+
+    //the decoded size, ogg and mp3 decode to roughly ten times their size
+    private static long getDecodedSize(String path) {
+        long size = Mdx.files.local(path).length();
+        return path.toLowerCase().endsWith(".wav") ? size : size * 10;
     }
 
     private void loadAudio() {
+        queueAudio();
+        finishAudio();
+    }
+
+    private void queueAudio() {
+        if (loaded) {
+            //taken back from the ResidentCache
+            return;
+        }
+        if (lazy) {
+            EngineLoader engineLoader = EngineLoader.getEngineLoader(false);
+            AssetBudget.getAssetBudget().setBudget(engineLoader.cp.ASSET_BUDGET);
+            for (String path : engineLoader.cp.PRELOAD) {
+                try {
+                    if (path.startsWith("Audio/Sound/")) {
+                        loadLazySound(path.substring(12));
+                    } else if (path.startsWith("Audio/Music/")) {
+                        getMusic(path.substring(12));
+                    }
+                } catch (Exception ex) {
+                    Logger.getLogger(AudioLoader.class.getName()).log(Level.WARNING, "Preload error: {0}", ex.getMessage());
+                }
+            }
+            return;
+        }
         try {
             Arrays.asList(Mdx.files.local(soundRootPath).list()).stream()
-                    .filter(file -> !file.isDirectory()
-                    && (file.extension().equalsIgnoreCase("wav")
-                    || file.extension().equalsIgnoreCase("mp3")
-                    || file.extension().equalsIgnoreCase("ogg")))
+                    .filter(AudioLoader::isAudioFile)
                     .forEach(f -> soundManager.load(soundRootPath + f.name(), Sound.class));
-            soundManager.finishLoading();
         } catch (Exception ex) {
             Logger.getLogger(AudioLoader.class.getName()).log(Level.WARNING, "Sound load error: {0}", ex.getMessage());
         }
 
         try {
             Arrays.asList(Mdx.files.local(musicRootPath).list()).stream()
-                    .filter(file -> !file.isDirectory()
-                    && (file.extension().equalsIgnoreCase("wav")
-                    || file.extension().equalsIgnoreCase("mp3")
-                    || file.extension().equalsIgnoreCase("ogg")))
+                    .filter(AudioLoader::isAudioFile)
                     .forEach(f -> musicManager.load(musicRootPath + f.name(), Music.class));
+        } catch (Exception ex) {
+            Logger.getLogger(AudioLoader.class.getName()).log(Level.WARNING, "Music load error: {0}", ex.getMessage());
+        }
+    }
+
+    private void finishAudio() {
+        try {
+            soundManager.finishLoading();
+        } catch (Exception ex) {
+            Logger.getLogger(AudioLoader.class.getName()).log(Level.WARNING, "Sound load error: {0}", ex.getMessage());
+        }
+        try {
             musicManager.finishLoading();
         } catch (Exception ex) {
             Logger.getLogger(AudioLoader.class.getName()).log(Level.WARNING, "Music load error: {0}", ex.getMessage());
         }
+        loaded = true;
     }
 
     //probably useless, but makes me feel safe. 
@@ -105,26 +279,112 @@ public class AudioLoader {
         musicManager.finishLoading();
     }
 
+    private Sound getSound(String fileName) {
+        if (!lazy) {
+            return soundManager.get(soundRootPath + fileName, Sound.class);
+        }
+        Sound sound = sounds.get(fileName);
+        if (null == sound) {
+            return loadLazySound(fileName);
+        }
+        AssetBudget.getAssetBudget().touch(sound);
+        return sound;
+    }
+
+    //loads a sound on its own and unloads it again when over the budget
+    private Sound loadLazySound(String fileName) {
+        String path = soundRootPath + fileName;
+        soundManager.load(path, Sound.class);
+        soundManager.finishLoading();
+        Sound sound = soundManager.get(path, Sound.class);
+        sounds.put(fileName, sound);
+        AssetBudget.getAssetBudget().add(this, sound, getDecodedSize(path), () -> {
+            sounds.remove(fileName);
+            voices.forget(sound);
+            soundManager.unload(path);
+        }, () -> voices.isPlaying(sound));
+        return sound;
+    }
+
+    private Music getMusic(String fileName) {
+        String path = musicRootPath + fileName;
+        if (lazy && !musicManager.isLoaded(path)) {
+            musicManager.load(path, Music.class);
+            musicManager.finishLoading();
+        }
+        return musicManager.get(path, Music.class);
+    }
+
     public void playSound(String fileName) {
-        sPlayer = soundManager.get(soundRootPath + fileName, Sound.class);
-        sPlayer.play();
+        playSound(getSoundHandle(fileName), 1f, 1f, 0f);
     }
 
     public void playSound(String fileName, BigDecimal vol, BigDecimal pit, BigDecimal pan) {
-        //vol: range [0,1]
-        //pit: 0.5 and 2.0
-        //pan: panning in the range -1 (full left) to 1 (full right). 0 is center position.
-        sPlayer = soundManager.get(soundRootPath + fileName, Sound.class);
-        sPlayer.play(vol.floatValue(), pit.floatValue(), pan.floatValue());
+        playSound(getSoundHandle(fileName), vol.floatValue(), pit.floatValue(), pan.floatValue());
+    }
+
+    /**
+     * @param fileName the sound file in the Audio/Sound folder
+     * @return a handle that plays the sound without looking it up by name
+     */
+    public int getSoundHandle(String fileName) {
+        return voices.getHandle(fileName);
+    }
+
+    /**
+     * Plays a sound on a free voice, or steals one when all are busy.
+     *
+     * @param handle from getSoundHandle
+     * @param vol range [0,1]
+     * @param pit 0.5 and 2.0
+     * @param pan panning in the range -1 (full left) to 1 (full right). 0 is
+     * center position.
+     * @return the voice playing the sound, -1 when it was not played
+     */
+    public int playSound(int handle, float vol, float pit, float pan) {
+        Sound sound = voices.getSound(handle);
+        if (null == sound) {
+            String fileName = voices.getName(handle);
+            if (null == fileName) {
+                return -1;
+            }
+            sound = getSound(fileName);
+            voices.setSound(handle, sound, SoundVoicePool.readDuration(Mdx.files.local(soundRootPath + fileName).path()));
+        } else if (lazy) {
+            AssetBudget.getAssetBudget().touch(sound);
+        }
+        return voices.play(handle, vol, pit, pan);
+    }
+
+    /**
+     * @param handle
+     * @param priority sounds only steal voices of the same or a lower
+     * priority, 0 by default
+     */
+    public void setSoundPriority(int handle, int priority) {
+        voices.setPriority(handle, priority);
+    }
+
+    /**
+     * @param handle
+     * @param max the number of voices the sound plays on at once before it
+     * replaces its oldest one, all of them by default
+     */
+    public void setSoundMaxVoices(int handle, int max) {
+        voices.setMaxVoices(handle, max);
+    }
+
+    public void stopVoice(int voice) {
+        voices.stop(voice);
     }
 
     public void playMusic(String fileName) {
-        mPlayer = musicManager.get(musicRootPath + fileName, Music.class);
+        mPlayer = getMusic(fileName);
         mPlayer.play();
     }
 
     public void playMusic(String fileName, boolean loop) {
-        mPlayer = musicManager.get(musicRootPath + fileName, Music.class);
+        mPlayer = getMusic(fileName);
         mPlayer.setLooping(loop);
         mPlayer.play();
     }
@@ -134,34 +394,54 @@ public class AudioLoader {
     }
 
     public void stopSound() {
-        sPlayer.stop();
+        voices.stopAll();
     }
 
     public void stopMusic(String fileName) {
-        mPlayer = musicManager.get(musicRootPath + fileName, Music.class);
+        mPlayer = getMusic(fileName);
         mPlayer.stop();
     }
 
     public void pauseAudio() {
-        if (mPlayer != null) {
+        if (mPlayer != null && mPlayer.isPlaying()) {
             mPlayer.pause();
+            musicPaused = true;
         }
-        if (sPlayer != null) {
-            sPlayer.pause();
-        }
+        voices.pauseAll();
     }
 
     public void resumeAudio() {
-        if (mPlayer != null) {
+        if (mPlayer != null && musicPaused) {
             mPlayer.play();
         }
+        musicPaused = false;
+        voices.resumeAll();
+    }
+
+    /**
+     * Stops any playing sound and music without disposing them.
+     */
+    public void stopAudio() {
+        if (mPlayer != null) {
+            mPlayer.stop();
+        }
+        musicPaused = false;
+        if (null != voices) {
+            voices.stopAll();
+        }
     }
 
     public void disposeAudioLoader() {
+        AssetBudget.getAssetBudget().release(this);
+        queued = false;
+        if (loaded && null != residentKey) {
+            parkAudio();
+            return;
+        }
+        if (null != voices) {
+            voices.reset();
+        }
         if (null != soundManager) {
-            if (sPlayer != null) {
-                sPlayer.stop();
-            }
             soundManager.clearAssetLoaders();
             soundManager.dispose();
         }
@@ -174,4 +454,27 @@ public class AudioLoader {
         }
     }
 
+    //keeps the loaded audio in the ResidentCache for the next load
+    private void parkAudio() {
+        stopAudio();
+        voices.reset();
+        mPlayer = null;
+        long size = 0;
+        try {
+            for (FileHandle file : Mdx.files.local(soundRootPath).list()) {
+                if (isAudioFile(file)) {
+                    size += getDecodedSize(soundRootPath + file.name());
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(AudioLoader.class.getName()).log(Level.FINE, "No sounds in: {0}", soundRootPath);
+        }
+        ResidentAudio resident = new ResidentAudio(soundManager, musicManager);
+        ResidentCache.getResidentCache().put(residentKey, resident, size, resident::dispose);
+        soundManager = null;
+        musicManager = null;
+        residentKey = null;
+        loaded = false;
+    }
+
 }
@@ -0,0 +1,679 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.GenericsType;
+import org.codehaus.groovy.ast.ImportNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.ArrayExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.CatchStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.tools.Compiler;
+import org.mini2Dx.core.Mdx;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the Code directory of the running program and keeps the compiled
+ * code cache up to date in the background.
+ *
+ * Only the changed sources and the sources that reference them are
+ * recompiled. The classes a source declares and uses are read from its
+ * Groovy AST once the names are resolved, so aliased and static imports
+ * count and names in comments or strings do not. Groups of sources that do
+ * not reference each other are compiled in parallel, each into its own
+ * directory. Their classes are moved into the cache once the compile ends,
+ * and the classes a changed source no longer declares are removed. Once a
+ * compile succeeds the cache is marked current, so a reload from the
+ * EngineScreen loads the classes without compiling.
+ *
+ * @author tor
+ */
+public class CompileService {
+
+    private static final long SETTLE_MILLIS = 250;
+
+    private WatchService watcher;
+    private Thread watchThread;
+    private ExecutorService compilePool;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+
+    private String codePath;
+    private String cachePath;
+    private String compileMode;
+
+    //sources changed since the last successful compile
+    private final Set<Path> pending = new HashSet<>();
+    private boolean fullCompile;
+
+    private static CompileService instance;
+
+    private CompileService() {
+    }
+
+    public static CompileService getCompileService() {
+        if (instance == null) {
+            instance = new CompileService();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts watching the Code directory of a program. Does nothing when the
+     * program is already being watched with the same compile mode.
+     *
+     * @param programPath the program path, EG "Programs/MyProgramTitle"
+     * @param mode the compile_mode of the program
+     */
+    public synchronized void watch(String programPath, String mode) {
+        String code = programPath + "/Code/";
+        if (null != watchThread && code.equals(codePath) && mode.equals(compileMode)) {
+            return;
+        }
+        stop();
+        codePath = code;
+        cachePath = CompiledCodeCache.getCacheDirectory(programPath);
+        compileMode = mode;
+        pending.clear();
+        fullCompile = false;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            registerAll(Paths.get(Mdx.files.local(codePath).path()));
+        } catch (IOException ex) {
+            Logger.getLogger(CompileService.class.getName()).log(Level.WARNING, "Unable to watch: {0}", codePath);
+            stop();
+            return;
+        }
+        compilePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "Leikr-Compile");
+            t.setDaemon(true);
+            return t;
+        });
+        WatchService ws = watcher;
+        watchThread = new Thread(() -> watchLoop(ws), "Leikr-CodeWatcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Stops watching and cancels any running compile.
+     */
+    public synchronized void stop() {
+        if (null != watchThread) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+        if (null != watcher) {
+            try {
+                watcher.close();
+            } catch (IOException ex) {
+                Logger.getLogger(CompileService.class.getName()).log(Level.WARNING, null, ex);
+            }
+            watcher = null;
+        }
+        if (null != compilePool) {
+            compilePool.shutdownNow();
+            compilePool = null;
+        }
+        watchedDirs.clear();
+    }
+
+    private void registerAll(Path root) throws IOException {
+        Path compiled = root.resolve("Compiled");
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Object d : dirs.filter(p -> Files.isDirectory(p) && !p.startsWith(compiled)).toArray()) {
+                Path dir = (Path) d;
+                watchedDirs.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+            }
+        }
+    }
+
+    private void watchLoop(WatchService ws) {
+        //the names declared by the sources of the cached classes, null when unknown
+        Map<Path, Set<String>> names = getCachedNames();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                collect(ws.take());
+                //let editors finish writing before compiling
+                WatchKey next;
+                while ((next = ws.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(next);
+                }
+                names = recompile(names);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            //stopped
+        }
+    }
+
+    private synchronized void collect(WatchKey key) {
+        if (null == watcher) {
+            return;
+        }
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || null == dir) {
+                fullCompile = true;
+                continue;
+            }
+            Path changed = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                try {
+                    registerAll(changed);
+                } catch (IOException ex) {
+                    fullCompile = true;
+                }
+                continue;
+            }
+            if (!changed.toString().endsWith(".groovy")) {
+                continue;
+            }
+            if (event.kind() == ENTRY_DELETE) {
+                //classes of deleted sources must not stay in the cache
+                fullCompile = true;
+            } else {
+                pending.add(changed);
+            }
+        }
+        key.reset();
+    }
+
+    //the declared names of the sources when the cache was compiled from them
+    private Map<Path, Set<String>> getCachedNames() {
+        try {
+            String hash = CompiledCodeCache.hashSources(codePath, compileMode);
+            boolean current;
+            synchronized (CompiledCodeCache.class) {
+                current = CompiledCodeCache.isCurrent(cachePath, hash);
+            }
+            if (current) {
+                return analyze(listSources(Paths.get(Mdx.files.local(codePath).path()))).declared;
+            }
+        } catch (IOException | CompilationFailedException ex) {
+            Logger.getLogger(CompileService.class.getName()).log(Level.FINE, null, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the pending sources. The units compile into their own
+     * directories without the cache lock, which is only held while their
+     * classes are moved into the cache.
+     *
+     * @param names the declared names of the sources of the cached classes,
+     * null when unknown
+     * @return the declared names after the compile, null when unknown
+     */
+    private Map<Path, Set<String>> recompile(Map<Path, Set<String>> names) {
+        Set<Path> changed;
+        boolean full;
+        ExecutorService pool;
+        synchronized (this) {
+            if (null == compilePool || pending.isEmpty() && !fullCompile) {
+                return names;
+            }
+            changed = new HashSet<>(pending);
+            full = fullCompile || null == names;
+            pool = compilePool;
+        }
+        List<Path> targets = new ArrayList<>();
+        try {
+            String hash = CompiledCodeCache.hashSources(codePath, compileMode);
+            Set<Path> sources = listSources(Paths.get(Mdx.files.local(codePath).path()));
+            SourceGraph graph;
+            try {
+                graph = analyze(sources);
+            } catch (CompilationFailedException ex) {
+                Logger.getLogger(CompileService.class.getName()).log(Level.SEVERE, "Background compile failed: {0}", ex.getMessage());
+                return names;
+            }
+            Map<Path, Set<String>> declared = graph.declared;
+            if (isCurrent(hash)) {
+                clearPending(changed, full);
+                return declared;
+            }
+            long start = System.currentTimeMillis();
+            List<Set<Path>> units = full ? Collections.singletonList(sources) : getUnits(changed, sources, graph);
+            List<Path> outputs = compileUnits(units, pool, targets);
+            boolean compiled = outputs.size() == units.size();
+            synchronized (CompiledCodeCache.class) {
+                if (CompiledCodeCache.isCurrent(cachePath, CompiledCodeCache.hashSources(codePath, compileMode))) {
+                    //the EngineLoader compiled the current sources meanwhile
+                    clearPending(changed, full);
+                    return declared;
+                }
+                if (full && compiled) {
+                    CompiledCodeCache.clear(cachePath);
+                } else if (!full) {
+                    Set<String> removed = getRemovedNames(changed, graph, names);
+                    if (!removed.isEmpty()) {
+                        CompiledCodeCache.removeClasses(cachePath, removed);
+                    }
+                }
+                for (Path output : outputs) {
+                    moveClasses(output);
+                }
+                if (compiled) {
+                    CompiledCodeCache.markCurrent(cachePath, hash);
+                }
+            }
+            if (compiled) {
+                clearPending(changed, full);
+                Logger.getLogger(CompileService.class.getName()).log(Level.INFO, "Code cache updated in {0}ms", System.currentTimeMillis() - start);
+                return declared;
+            }
+            //the cache may hold classes of the old and the new sources
+            if (!full) {
+                names.forEach((path, old) -> declared.computeIfAbsent(path, k -> new HashSet<>()).addAll(old));
+            }
+            return declared;
+        } catch (IOException | RejectedExecutionException ex) {
+            Logger.getLogger(CompileService.class.getName()).log(Level.WARNING, null, ex);
+            return null;
+        } finally {
+            targets.forEach(this::deleteDirectory);
+        }
+    }
+
+    private boolean isCurrent(String hash) {
+        synchronized (CompiledCodeCache.class) {
+            return CompiledCodeCache.isCurrent(cachePath, hash);
+        }
+    }
+
+    private synchronized void clearPending(Set<Path> compiled, boolean full) {
+        pending.removeAll(compiled);
+        if (full) {
+            fullCompile = false;
+        }
+    }
+
+    //the names the changed sources declared before and no source declares now
+    private Set<String> getRemovedNames(Set<Path> changed, SourceGraph graph, Map<Path, Set<String>> names) {
+        Set<String> removed = new HashSet<>();
+        for (Path p : changed) {
+            if (names.containsKey(p)) {
+                removed.addAll(names.get(p));
+            }
+        }
+        graph.declared.values().forEach(removed::removeAll);
+        return removed;
+    }
+
+    /**
+     * Splits the changed sources and every source referencing them into
+     * groups that do not reference each other.
+     */
+    private List<Set<Path>> getUnits(Set<Path> changed, Set<Path> sources, SourceGraph graph) {
+        Set<Path> affected = new HashSet<>();
+        changed.stream().filter(sources::contains).forEach(affected::add);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (Path p : sources) {
+                if (!affected.contains(p) && graph.referencesAny(p, affected)) {
+                    affected.add(p);
+                    grown = true;
+                }
+            }
+        }
+
+        List<Set<Path>> units = new ArrayList<>();
+        for (Path p : affected) {
+            Set<Path> unit = new HashSet<>();
+            unit.add(p);
+            for (Set<Path> other : new ArrayList<>(units)) {
+                if (graph.referencesAny(p, other) || other.stream().anyMatch(q -> graph.referencesAny(q, unit))) {
+                    unit.addAll(other);
+                    units.remove(other);
+                }
+            }
+            units.add(unit);
+        }
+        return units;
+    }
+
+    /**
+     * Compiles the units in parallel, each into its own directory next to the
+     * cache, so no unit sees the classes another one is writing.
+     *
+     * @param units the groups of sources to compile
+     * @param pool the compile threads
+     * @param targets receives every directory created, to be deleted later
+     * @return the directories of the units that compiled
+     */
+    private List<Path> compileUnits(List<Set<Path>> units, ExecutorService pool, List<Path> targets) throws IOException {
+        Path cache = Paths.get(Mdx.files.local(cachePath).path());
+        Files.createDirectories(cache);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (Set<Path> unit : units) {
+            Path target = Files.createTempDirectory(cache.getParent(), "Compile");
+            targets.add(target);
+            results.add(pool.submit(() -> compileUnit(unit, target)));
+        }
+        List<Path> outputs = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                if (results.get(i).get()) {
+                    outputs.add(targets.get(i));
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                Logger.getLogger(CompileService.class.getName()).log(Level.FINE, null, ex);
+            }
+        }
+        return outputs;
+    }
+
+    private boolean compileUnit(Set<Path> unit, Path target) {
+        CompilerConfiguration cc = EngineLoader.getCompilerConfiguration(compileMode, true);
+        cc.setClasspathList(Arrays.asList(Mdx.files.local(cachePath).path(), Mdx.files.local(codePath).path()));
+        cc.setTargetDirectory(target.toFile());
+        String[] files = unit.stream().map(Path::toString).toArray(String[]::new);
+        try {
+            new Compiler(cc).compile(files);
+            return true;
+        } catch (CompilationFailedException ex) {
+            Logger.getLogger(CompileService.class.getName()).log(Level.SEVERE, "Background compile failed: {0}", ex.getMessage());
+            return false;
+        }
+    }
+
+    //moves the classes of a unit into the cache, called with the cache lock
+    private void moveClasses(Path output) throws IOException {
+        Path cache = Paths.get(Mdx.files.local(cachePath).path());
+        try (Stream<Path> files = Files.walk(output)) {
+            for (Object f : files.filter(Files::isRegularFile).toArray()) {
+                Path from = (Path) f;
+                Path to = cache.resolve(output.relativize(from).toString());
+                Files.createDirectories(to.getParent());
+                Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private void deleteDirectory(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ex) {
+            Logger.getLogger(CompileService.class.getName()).log(Level.FINE, null, ex);
+        }
+    }
+
+    private Set<Path> listSources(Path root) throws IOException {
+        Set<Path> sources = new HashSet<>();
+        Path compiled = root.resolve("Compiled");
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Object f : files.filter(p -> !p.startsWith(compiled) && Files.isRegularFile(p) && p.toString().endsWith(".groovy")).toArray()) {
+                sources.add((Path) f);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Parses the sources up to the semantic analysis, where the class names
+     * are resolved, and reads which classes each source declares and uses.
+     * Only the Code directory is on the classpath, so a reference to a class
+     * no source declares anymore fails here instead of resolving to a stale
+     * cached class.
+     *
+     * @param sources the program sources
+     * @return the declared and used class names of each source
+     * @throws CompilationFailedException when a source does not parse or
+     * resolve
+     */
+    private SourceGraph analyze(Set<Path> sources) throws CompilationFailedException {
+        CompilerConfiguration cc = new CompilerConfiguration();
+        cc.setClasspathList(Arrays.asList(Mdx.files.local(codePath).path()));
+        CompilationUnit unit = new CompilationUnit(cc);
+        Map<SourceUnit, Path> paths = new HashMap<>();
+        for (Path source : sources) {
+            paths.put(unit.addSource(source.toFile()), source);
+        }
+        unit.compile(Phases.SEMANTIC_ANALYSIS);
+
+        SourceGraph graph = new SourceGraph();
+        paths.forEach((su, path) -> {
+            ModuleNode module = su.getAST();
+            Set<String> declared = new HashSet<>();
+            ReferenceCollector collector = new ReferenceCollector(su);
+            for (ImportNode i : module.getImports()) {
+                collector.add(i.getType());
+            }
+            for (ImportNode i : module.getStaticImports().values()) {
+                collector.add(i.getType());
+            }
+            for (ImportNode i : module.getStaticStarImports().values()) {
+                collector.add(i.getType());
+            }
+            for (ClassNode c : module.getClasses()) {
+                if (null == c.getOuterClass()) {
+                    declared.add(c.getName());
+                }
+                collector.visitClass(c);
+            }
+            graph.declared.put(path, declared);
+            graph.references.put(path, collector.names);
+        });
+        return graph;
+    }
+
+    /**
+     * The classes each source declares and the classes it uses, by class
+     * name. Inner classes count as their outer class.
+     */
+    private static class SourceGraph {
+
+        final Map<Path, Set<String>> declared = new HashMap<>();
+        final Map<Path, Set<String>> references = new HashMap<>();
+
+        boolean referencesAny(Path source, Set<Path> targets) {
+            Set<String> used = references.get(source);
+            for (Path target : targets) {
+                if (!Collections.disjoint(used, declared.get(target))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    //collects the names of the classes a resolved AST refers to
+    private static class ReferenceCollector extends ClassCodeVisitorSupport {
+
+        //generic arguments are followed this deep, their bounds can refer to themselves
+        private static final int MAX_GENERICS_DEPTH = 4;
+
+        final Set<String> names = new HashSet<>();
+        private final SourceUnit source;
+
+        ReferenceCollector(SourceUnit source) {
+            this.source = source;
+        }
+
+        @Override
+        protected SourceUnit getSourceUnit() {
+            return source;
+        }
+
+        void add(ClassNode type) {
+            add(type, 0);
+        }
+
+        private void add(ClassNode type, int depth) {
+            if (null == type) {
+                return;
+            }
+            if (type.isArray()) {
+                add(type.getComponentType(), depth);
+                return;
+            }
+            String name = type.getName();
+            int inner = name.indexOf('$');
+            names.add(inner < 0 ? name : name.substring(0, inner));
+            if (null != type.getGenericsTypes() && depth < MAX_GENERICS_DEPTH) {
+                for (GenericsType generic : type.getGenericsTypes()) {
+                    add(generic.getType(), depth + 1);
+                }
+            }
+        }
+
+        private void add(Parameter[] parameters) {
+            if (null != parameters) {
+                for (Parameter parameter : parameters) {
+                    add(parameter.getType());
+                }
+            }
+        }
+
+        @Override
+        public void visitClass(ClassNode node) {
+            add(node.getSuperClass());
+            for (ClassNode i : node.getInterfaces()) {
+                add(i);
+            }
+            super.visitClass(node);
+        }
+
+        @Override
+        public void visitAnnotations(AnnotatedNode node) {
+            for (AnnotationNode annotation : node.getAnnotations()) {
+                add(annotation.getClassNode());
+            }
+            super.visitAnnotations(node);
+        }
+
+        @Override
+        public void visitField(FieldNode node) {
+            add(node.getType());
+            super.visitField(node);
+        }
+
+        @Override
+        protected void visitConstructorOrMethod(MethodNode node, boolean isConstructor) {
+            add(node.getReturnType());
+            add(node.getParameters());
+            for (ClassNode exception : node.getExceptions()) {
+                add(exception);
+            }
+            super.visitConstructorOrMethod(node, isConstructor);
+        }
+
+        @Override
+        public void visitCatchStatement(CatchStatement statement) {
+            add(statement.getExceptionType());
+            super.visitCatchStatement(statement);
+        }
+
+        @Override
+        public void visitForLoop(ForStatement loop) {
+            add(loop.getVariableType());
+            super.visitForLoop(loop);
+        }
+
+        @Override
+        public void visitClassExpression(ClassExpression expression) {
+            add(expression.getType());
+            super.visitClassExpression(expression);
+        }
+
+        @Override
+        public void visitConstructorCallExpression(ConstructorCallExpression call) {
+            add(call.getType());
+            super.visitConstructorCallExpression(call);
+        }
+
+        @Override
+        public void visitStaticMethodCallExpression(StaticMethodCallExpression call) {
+            add(call.getOwnerType());
+            super.visitStaticMethodCallExpression(call);
+        }
+
+        @Override
+        public void visitCastExpression(CastExpression expression) {
+            add(expression.getType());
+            super.visitCastExpression(expression);
+        }
+
+        @Override
+        public void visitVariableExpression(VariableExpression expression) {
+            add(expression.getOriginType());
+            super.visitVariableExpression(expression);
+        }
+
+        @Override
+        public void visitClosureExpression(ClosureExpression expression) {
+            add(expression.getParameters());
+            super.visitClosureExpression(expression);
+        }
+
+        @Override
+        public void visitArrayExpression(ArrayExpression expression) {
+            add(expression.getElementType());
+            super.visitArrayExpression(expression);
+        }
+    }
+}
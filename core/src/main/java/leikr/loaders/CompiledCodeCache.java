@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import groovy.lang.GroovySystem;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import leikr.GameRuntime;
+import org.mini2Dx.core.Mdx;
+
+/**
+ * Keeps compiled program classes on disk keyed by a hash of the program
+ * sources, the Leikr and Groovy versions and the compile mode.
+ *
+ * A directory is current when its hash file matches the hash of the sources,
+ * in which case the classes in it can be loaded without compiling again.
+ *
+ * @author tor
+ */
+public class CompiledCodeCache {
+
+    public static final String CACHE_ROOT = "Data/Cache/";
+    private static final String HASH_FILE = ".leikr-hash";
+
+    private CompiledCodeCache() {
+    }
+
+    /**
+     * Returns the directory used to cache the compiled code of a program.
+     *
+     * @param programPath the program path, EG "Programs/MyProgramTitle"
+     * @return the cache directory for the program
+     */
+    public static String getCacheDirectory(String programPath) {
+        return CACHE_ROOT + programPath + "/Code/";
+    }
+
+    /**
+     * Hashes every groovy source under the code path, skipping the Compiled
+     * output directory.
+     *
+     * @param codePath the program Code directory
+     * @param compileMode the compile_mode the sources are compiled with
+     * @return hex encoded hash of the sources and compiler options
+     * @throws IOException
+     */
+    public static String hashSources(String codePath, String compileMode) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        digest.update((GameRuntime.getBuildId() + ":" + GroovySystem.getVersion() + ":" + compileMode).getBytes(StandardCharsets.UTF_8));
+
+        Path root = Paths.get(Mdx.files.local(codePath).path());
+        for (Path source : listSources(root)) {
+            digest.update(root.relativize(source).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(source));
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static List<Path> listSources(Path root) throws IOException {
+        Path compiled = root.resolve("Compiled");
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> !p.startsWith(compiled) && Files.isRegularFile(p) && p.toString().endsWith(".groovy"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param directory directory holding compiled classes
+     * @param hash the current source hash
+     * @return true when the classes in the directory were compiled from
+     * sources with the given hash
+     */
+    public static boolean isCurrent(String directory, String hash) {
+        Path hashFile = Paths.get(Mdx.files.local(directory).path(), HASH_FILE);
+        if (!Files.exists(hashFile)) {
+            return false;
+        }
+        try {
+            return hash.equals(new String(Files.readAllBytes(hashFile), StandardCharsets.UTF_8).trim());
+        } catch (IOException ex) {
+            Logger.getLogger(CompiledCodeCache.class.getName()).log(Level.WARNING, "Unreadable code cache hash: {0}", hashFile);
+            return false;
+        }
+    }
+
+    /**
+     * Records the hash of the sources the classes in the directory were
+     * compiled from.
+     *
+     * @param directory directory holding compiled classes
+     * @param hash the source hash
+     * @throws IOException
+     */
+    public static void markCurrent(String directory, String hash) throws IOException {
+        Files.write(Paths.get(Mdx.files.local(directory).path(), HASH_FILE), hash.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Removes all cached classes for the directory so stale classes of
+     * deleted sources can not be loaded.
+     *
+     * @param directory the cache directory to empty
+     * @throws IOException
+     */
+    public static void clear(String directory) throws IOException {
+        Path dir = Paths.get(Mdx.files.local(directory).path());
+        if (Files.exists(dir)) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Removes the cached classes of names no source declares anymore, with
+     * their inner and closure classes.
+     *
+     * @param directory the cache directory
+     * @param names class names, with their package
+     * @throws IOException
+     */
+    public static void removeClasses(String directory, Set<String> names) throws IOException {
+        Path dir = Paths.get(Mdx.files.local(directory).path());
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Object f : files.filter(p -> isClassOf(dir.relativize(p), names)).toArray()) {
+                Files.deleteIfExists((Path) f);
+            }
+        }
+    }
+
+    private static boolean isClassOf(Path file, Set<String> names) {
+        String name = file.toString().replace('\\', '/');
+        if (!name.endsWith(".class")) {
+            return false;
+        }
+        name = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+        int inner = name.indexOf('$');
+        return names.contains(inner < 0 ? name : name.substring(0, inner));
+    }
+}
@@ -0,0 +1,642 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.mini2Dx.core.Graphics;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.graphics.Texture;
+import org.mini2Dx.core.graphics.TextureRegion;
+
+/**
+ * A map read from an .lmap file written by the MapCompiler.
+ *
+ * The file is memory mapped, so opening a map only reads its header and the
+ * system pages the tile layers in as their regions are used. Regions with
+ * changed tiles are copied out of the file.
+ *
+ * A streamed map touches the regions around the drawn ones on a background
+ * thread, so their pages are loaded before they are drawn. It only keeps a
+ * window of regions around the camera: regions that were not used for a
+ * while are dropped and touched again when they come back into view, and
+ * changed regions out of view are kept deflated.
+ *
+ * @author tor
+ */
+public class CompiledMap implements MapSource {
+
+    private static final int REGION = MapCompiler.REGION;
+    private static final int REGION_BYTES = MapCompiler.REGION_BYTES;
+    private static final int PAGE = 4096;
+    //frames a streamed region stays after it was last used
+    private static final int WINDOW_FRAMES = 60;
+
+    private final MappedByteBuffer data;
+    private int width;
+    private int height;
+    private int tileWidth;
+    private int tileHeight;
+    private int regionsX;
+    private int regionsY;
+    //region record slot of each layer, -1 for layers without tiles
+    private int[] slots;
+    private boolean[] visible;
+    private final List<TmxReader.ObjectInfo> objects = new ArrayList<>();
+
+    //per region record, views of the file or changed copies
+    private IntBuffer[] regions;
+    private boolean[] copied;
+    private boolean[] touched;
+    //frame each region was last used, changed regions out of view deflated
+    private int[] lastUsed;
+    private byte[][] packed;
+    private int frame;
+    private final ExecutorService streamer;
+
+    //per gid
+    private final List<Texture> textures = new ArrayList<>();
+    private TextureRegion[] tiles;
+    private int[] programIds;
+    private int[][] animations;
+    private final HashMap<Integer, HashMap<String, String>> properties = new HashMap<>();
+    //property bits per gid, the bits are given out like in the TileGrid
+    private long[] propertyBits;
+    private final HashMap<String, Integer> propertyNames = new HashMap<>();
+    //tilesets whose textures are not loaded yet
+    private final List<TmxReader.TilesetInfo> pending = new ArrayList<>();
+    //animation time in ms
+    private float time;
+
+    /**
+     * Opens a compiled map without loading its tileset textures, so it can be
+     * called off the render thread. The textures are loaded with
+     * loadTilesets or loadNextTileset.
+     *
+     * @param lmap the compiled map
+     * @param streaming true to read regions ahead on a background thread
+     * @throws IOException
+     */
+    public CompiledMap(Path lmap, boolean streaming) throws IOException {
+        try (FileChannel in = FileChannel.open(lmap, StandardOpenOption.READ)) {
+            data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        }
+        long headerOffset = data.getLong(data.capacity() - 12);
+        byte[] header = new byte[(int) (data.capacity() - 12 - headerOffset)];
+        ByteBuffer view = data.duplicate();
+        view.position((int) headerOffset);
+        view.get(header);
+        readHeader(new DataInputStream(new ByteArrayInputStream(header)));
+
+        int records = 0;
+        for (int slot : slots) {
+            records = Math.max(records, slot + 1);
+        }
+        records *= regionsX * regionsY;
+        regions = new IntBuffer[records];
+        copied = new boolean[records];
+        touched = new boolean[records];
+        lastUsed = new int[records];
+        packed = new byte[records][];
+        streamer = streaming ? Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Leikr-MapStream");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+    }
+
+    private void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MapCompiler.MAGIC || in.readInt() != MapCompiler.VERSION) {
+            throw new IOException("Not a compiled map");
+        }
+        in.readLong();
+        in.readLong();
+        width = in.readInt();
+        height = in.readInt();
+        tileWidth = in.readInt();
+        tileHeight = in.readInt();
+        regionsX = (width + REGION - 1) / REGION;
+        regionsY = (height + REGION - 1) / REGION;
+
+        int tilesets = in.readInt();
+        List<TmxReader.TilesetInfo> infos = new ArrayList<>();
+        int maxGid = 0;
+        for (int t = 0; t < tilesets; t++) {
+            TmxReader.TilesetInfo tileset = new TmxReader.TilesetInfo();
+            tileset.firstGid = in.readInt();
+            tileset.tileWidth = in.readInt();
+            tileset.tileHeight = in.readInt();
+            tileset.spacing = in.readInt();
+            tileset.margin = in.readInt();
+            tileset.columns = in.readInt();
+            tileset.tileCount = in.readInt();
+            tileset.image = in.readUTF();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                HashMap<String, String> props = new HashMap<>();
+                tileset.properties.put(in.readInt(), props);
+                int size = in.readInt();
+                for (int p = 0; p < size; p++) {
+                    props.put(in.readUTF(), in.readUTF());
+                }
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                int[] frames = new int[in.readInt()];
+                for (int f = 0; f < frames.length; f++) {
+                    frames[f] = in.readInt();
+                }
+                tileset.animations.put(id, frames);
+            }
+            infos.add(tileset);
+            maxGid = Math.max(maxGid, tileset.firstGid + tileset.tileCount);
+        }
+
+        int layers = in.readInt();
+        slots = new int[layers];
+        visible = new boolean[layers];
+        int slot = 0;
+        for (int l = 0; l < layers; l++) {
+            in.readUTF();
+            visible[l] = in.readBoolean();
+            slots[l] = in.readBoolean() ? slot++ : -1;
+        }
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            TmxReader.ObjectInfo object = new TmxReader.ObjectInfo();
+            object.layer = in.readInt();
+            object.id = in.readInt();
+            object.gid = in.readInt();
+            object.name = in.readUTF();
+            object.type = in.readUTF();
+            object.x = in.readFloat();
+            object.y = in.readFloat();
+            object.width = in.readFloat();
+            object.height = in.readFloat();
+            objects.add(object);
+        }
+        readTilesets(infos, maxGid);
+    }
+
+    private void readTilesets(List<TmxReader.TilesetInfo> infos, int maxGid) {
+        tiles = new TextureRegion[maxGid + 1];
+        programIds = new int[maxGid + 1];
+        animations = new int[maxGid + 1][];
+        propertyBits = new long[maxGid + 1];
+        for (TmxReader.TilesetInfo tileset : infos) {
+            pending.add(tileset);
+            for (int id = 0; id < tileset.tileCount; id++) {
+                int gid = tileset.firstGid + id;
+                programIds[gid] = id + 1;
+                if (tileset.properties.containsKey(id)) {
+                    properties.put(gid, tileset.properties.get(id));
+                }
+                int[] frames = tileset.animations.get(id);
+                if (null != frames) {
+                    int[] global = frames.clone();
+                    for (int f = 0; f < global.length; f += 2) {
+                        global[f] += tileset.firstGid;
+                    }
+                    animations[gid] = global;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the textures of every tileset. Must be called on the render
+     * thread.
+     */
+    public void loadTilesets() {
+        boolean loaded = loadNextTileset();
+        while (!loaded) {
+            loaded = loadNextTileset();
+        }
+    }
+
+    /**
+     * Loads the texture of one tileset, so the upload of a large map can be
+     * spread over several frames. Must be called on the render thread.
+     *
+     * @return true when every tileset is loaded
+     */
+    public boolean loadNextTileset() {
+        if (pending.isEmpty()) {
+            return true;
+        }
+        TmxReader.TilesetInfo tileset = pending.remove(0);
+        Texture texture = Mdx.graphics.newTexture(Mdx.files.local(tileset.image));
+        textures.add(texture);
+        for (int id = 0; id < tileset.tileCount; id++) {
+            int tx = tileset.margin + (id % tileset.columns) * (tileset.tileWidth + tileset.spacing);
+            int ty = tileset.margin + (id / tileset.columns) * (tileset.tileHeight + tileset.spacing);
+            tiles[tileset.firstGid + id] = new TextureRegion(texture, tx, ty, tileset.tileWidth, tileset.tileHeight);
+        }
+        return pending.isEmpty();
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    @Override
+    public int getLayerCount() {
+        return slots.length;
+    }
+
+    @Override
+    public boolean isTileLayer(int layer) {
+        return layer >= 0 && layer < slots.length && slots[layer] >= 0;
+    }
+
+    @Override
+    public boolean isLayerVisible(int layer) {
+        return visible[layer];
+    }
+
+    public List<TmxReader.ObjectInfo> getObjects() {
+        return Collections.unmodifiableList(objects);
+    }
+
+    /**
+     * Advances tile animations.
+     *
+     * @param delta
+     */
+    public void update(float delta) {
+        time += delta * 1000;
+        frame++;
+        if (null != streamer && frame % WINDOW_FRAMES == 0) {
+            releaseRegions();
+        }
+    }
+
+    //drops the regions out of the window, so they are touched again later
+    private void releaseRegions() {
+        for (int record = 0; record < regions.length; record++) {
+            if ((null == regions[record] && !touched[record]) || frame - lastUsed[record] < WINDOW_FRAMES) {
+                continue;
+            }
+            if (copied[record]) {
+                packed[record] = pack(regions[record]);
+                copied[record] = false;
+            }
+            regions[record] = null;
+            touched[record] = false;
+        }
+    }
+
+    private int getRecord(int slot, int rx, int ry) {
+        return (slot * regionsY + ry) * regionsX + rx;
+    }
+
+    private IntBuffer getRegion(int record) {
+        IntBuffer region = regions[record];
+        if (null == region) {
+            if (null != packed[record]) {
+                region = unpack(packed[record]);
+                packed[record] = null;
+                copied[record] = true;
+            } else {
+                ByteBuffer view = data.duplicate();
+                view.position(record * REGION_BYTES);
+                view.limit(record * REGION_BYTES + REGION_BYTES);
+                region = view.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            regions[record] = region;
+        }
+        lastUsed[record] = frame;
+        return region;
+    }
+
+    private static byte[] pack(IntBuffer region) {
+        ByteBuffer bytes = ByteBuffer.allocate(REGION_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ids = region.duplicate();
+        ids.clear();
+        bytes.asIntBuffer().put(ids);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(bytes.array());
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        byte[] buffer = new byte[PAGE];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static IntBuffer unpack(byte[] packed) {
+        byte[] bytes = new byte[REGION_BYTES];
+        Inflater inflater = new Inflater();
+        inflater.setInput(packed);
+        try {
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                length += inflater.inflate(bytes, length, bytes.length - length);
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Unable to read a changed map region", ex);
+        } finally {
+            inflater.end();
+        }
+        IntBuffer region = ByteBuffer.allocateDirect(REGION_BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        region.put(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+        region.clear();
+        return region;
+    }
+
+    private int getGid(int x, int y, int layer) {
+        if (x < 0 || y < 0 || x >= width || y >= height || !isTileLayer(layer)) {
+            return 0;
+        }
+        return getRegion(getRecord(slots[layer], x / REGION, y / REGION)).get((y % REGION) * REGION + x % REGION);
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @param layer
+     * @return the tile id like MapLoader.getMapTile, -1 for empty cells
+     */
+    public int getTile(int x, int y, int layer) {
+        int gid = getGid(x, y, layer);
+        return gid <= 0 || gid >= programIds.length ? -1 : programIds[gid];
+    }
+
+    public boolean setTile(int gid, int x, int y, int layer) {
+        if (x < 0 || y < 0 || x >= width || y >= height || !isTileLayer(layer)) {
+            return false;
+        }
+        int record = getRecord(slots[layer], x / REGION, y / REGION);
+        IntBuffer region = getRegion(record);
+        if (!copied[record]) {
+            IntBuffer copy = ByteBuffer.allocateDirect(REGION_BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            copy.put(region.duplicate());
+            regions[record] = copy;
+            copied[record] = true;
+        }
+        regions[record].put((y % REGION) * REGION + x % REGION, gid);
+        return true;
+    }
+
+    /**
+     * Reads a block of tile ids row by row, a run of cells per region.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param layer
+     * @param out receives w * h ids, a new array is used when it is too small
+     * @return the array holding the ids, -1 for empty cells and cells outside
+     * of the map
+     */
+    public int[] getTiles(int x, int y, int w, int h, int layer, int[] out) {
+        w = Math.max(w, 0);
+        h = Math.max(h, 0);
+        if (null == out || out.length < w * h) {
+            out = new int[w * h];
+        }
+        Arrays.fill(out, 0, w * h, -1);
+        int x0 = Math.max(x, 0);
+        int x1 = Math.min(x + w, width);
+        if (!isTileLayer(layer) || x0 >= x1) {
+            return out;
+        }
+        for (int j = 0; j < h; j++) {
+            int ty = y + j;
+            if (ty < 0 || ty >= height) {
+                continue;
+            }
+            int row = (ty % REGION) * REGION;
+            int tx = x0;
+            while (tx < x1) {
+                int rx = tx / REGION;
+                int end = Math.min(x1, (rx + 1) * REGION);
+                IntBuffer region = getRegion(getRecord(slots[layer], rx, ty / REGION));
+                int at = j * w + tx - x;
+                for (int cx = tx % REGION; tx < end; tx++, cx++, at++) {
+                    int gid = region.get(row + cx);
+                    out[at] = gid <= 0 || gid >= programIds.length ? -1 : programIds[gid];
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param property name of a tile property set in the tileset
+     * @return the bit of the property, -1 when too many properties are used
+     */
+    public int getPropertyBit(String property) {
+        Integer bit = propertyNames.get(property);
+        if (null != bit) {
+            return bit;
+        }
+        if (propertyNames.size() == TileGrid.MAX_PROPERTIES) {
+            return -1;
+        }
+        bit = propertyNames.size();
+        propertyNames.put(property, bit);
+        for (HashMap.Entry<Integer, HashMap<String, String>> e : properties.entrySet()) {
+            if (e.getValue().containsKey(property)) {
+                propertyBits[e.getKey()] |= 1L << bit;
+            }
+        }
+        return bit;
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @param layer
+     * @return the property bits of the tile, see getPropertyBit
+     */
+    public long getPropertyBits(int x, int y, int layer) {
+        int gid = getGid(x, y, layer);
+        return gid <= 0 || gid >= propertyBits.length ? 0 : propertyBits[gid];
+    }
+
+    public boolean hasProperty(String property, int x, int y, int layer) {
+        int bit = getPropertyBit(property);
+        if (bit < 0) {
+            HashMap<String, String> props = properties.get(getGid(x, y, layer));
+            return null != props && props.containsKey(property);
+        }
+        return (getPropertyBits(x, y, layer) & (1L << bit)) != 0;
+    }
+
+    @Override
+    public boolean isAnimated(int x, int y, int layer) {
+        int gid = getGid(x, y, layer);
+        return gid > 0 && gid < animations.length && null != animations[gid];
+    }
+
+    /**
+     * Draws a region of tiles like TiledMap.draw.
+     *
+     * @param g
+     * @param x
+     * @param y
+     * @param sx first tile column
+     * @param sy first tile row
+     * @param w width in tiles
+     * @param h height in tiles
+     * @param layer layer index or MapChunkCache.ALL_LAYERS
+     */
+    public void draw(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer) {
+        if (layer != MapChunkCache.ALL_LAYERS) {
+            drawLayer(g, x, y, sx, sy, w, h, layer);
+            return;
+        }
+        for (int l = 0; l < slots.length; l++) {
+            if (visible[l]) {
+                drawLayer(g, x, y, sx, sy, w, h, l);
+            }
+        }
+    }
+
+    @Override
+    public void drawLayer(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer) {
+        int x0 = Math.max(sx, 0);
+        int y0 = Math.max(sy, 0);
+        int x1 = Math.min(sx + w, width);
+        int y1 = Math.min(sy + h, height);
+        if (!isTileLayer(layer) || x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        for (int ty = y0; ty < y1; ty++) {
+            for (int tx = x0; tx < x1; tx++) {
+                TextureRegion tile = getTileRegion(getGid(tx, ty, layer));
+                if (null != tile) {
+                    g.drawTextureRegion(tile, x + (tx - sx) * tileWidth,
+                            y + (ty - sy) * tileHeight + tileHeight - tile.getRegionHeight());
+                }
+            }
+        }
+        if (null != streamer) {
+            prefetch(slots[layer], x0 / REGION - 1, y0 / REGION - 1, (x1 - 1) / REGION + 1, (y1 - 1) / REGION + 1);
+        }
+    }
+
+    private TextureRegion getTileRegion(int gid) {
+        if (gid <= 0 || gid >= tiles.length) {
+            return null;
+        }
+        int[] frames = animations[gid];
+        if (null != frames) {
+            int length = 0;
+            for (int f = 1; f < frames.length; f += 2) {
+                length += frames[f];
+            }
+            int at = length > 0 ? (int) (time % length) : 0;
+            for (int f = 0; f < frames.length; f += 2) {
+                at -= frames[f + 1];
+                if (at < 0) {
+                    gid = frames[f];
+                    break;
+                }
+            }
+            if (gid <= 0 || gid >= tiles.length) {
+                return null;
+            }
+        }
+        return tiles[gid];
+    }
+
+    //touches the pages of the regions around the drawn ones
+    private void prefetch(int slot, int rx0, int ry0, int rx1, int ry1) {
+        for (int ry = Math.max(ry0, 0); ry <= Math.min(ry1, regionsY - 1); ry++) {
+            for (int rx = Math.max(rx0, 0); rx <= Math.min(rx1, regionsX - 1); rx++) {
+                int record = getRecord(slot, rx, ry);
+                lastUsed[record] = frame;
+                if (touched[record]) {
+                    continue;
+                }
+                touched[record] = true;
+                streamer.submit(() -> {
+                    int sum = 0;
+                    for (int offset = 0; offset < REGION_BYTES; offset += PAGE) {
+                        sum += data.get(record * REGION_BYTES + offset);
+                    }
+                    return sum;
+                });
+            }
+        }
+    }
+
+    /**
+     * @return the memory used by the tileset textures and changed regions in
+     * bytes
+     */
+    public long getMemorySize() {
+        long size = 0;
+        for (Texture texture : textures) {
+            size += 4L * texture.getWidth() * texture.getHeight();
+        }
+        for (int record = 0; record < copied.length; record++) {
+            size += copied[record] ? REGION_BYTES : 0;
+            size += null != packed[record] ? packed[record].length : 0;
+        }
+        return size;
+    }
+
+    public void dispose() {
+        if (null != streamer) {
+            streamer.shutdownNow();
+        }
+        textures.forEach(Texture::dispose);
+        textures.clear();
+    }
+}
@@ -18,6 +18,7 @@ package leikr.loaders;
 import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyShell;
 import groovy.lang.GroovySystem;
+import groovy.transform.CompileStatic;
 import groovy.util.ResourceException;
 import groovy.util.ScriptException;
 import java.io.File;
@@ -33,6 +34,7 @@ import leikr.GameRuntime;
 import leikr.customProperties.CustomProgramProperties;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
 import org.codehaus.groovy.tools.Compiler;
 import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.files.FileHandle;
@@ -60,12 +62,72 @@ public class EngineLoader implements Callable<Engine> {
         return instance;
     }
 
+    /**
+     * Creates a loader for the running program that is not the shared one
+     * yet, so a new Engine can be loaded off the render thread while the old
+     * one keeps running.
+     *
+     * @return a loader reset for the current program
+     */
+    public static EngineLoader newEngineLoader() {
+        EngineLoader loader = new EngineLoader();
+        loader.reset();
+        return loader;
+    }
+
+    /**
+     * Makes a loader from newEngineLoader the shared one, once its Engine
+     * loaded. The previous loader is destroyed.
+     *
+     * @param loader the loader of the new Engine
+     */
+    public static void setEngineLoader(EngineLoader loader) {
+        if (null != instance && instance != loader) {
+            instance.destroy();
+        }
+        instance = loader;
+    }
+
     private void reset() {
         destroy();
         rootPath = GameRuntime.getProgramPath() + "/Code/";
         cp = new CustomProgramProperties(GameRuntime.getProgramPath());
-        gcl = new GroovyClassLoader(ClassLoader.getSystemClassLoader());
-        sh = new GroovyShell(gcl);
+        gcl = new GroovyClassLoader(ClassLoader.getSystemClassLoader(), getCompilerConfiguration(cp.COMPILE_MODE, true));
+        sh = new GroovyShell(gcl, getCompilerConfiguration(cp.COMPILE_MODE, false));
+    }
+
+    /**
+     * Builds the CompilerConfiguration for the program's compile_mode.
+     *
+     * static: program classes are compiled with @CompileStatic so calls into
+     * the Engine API skip the dynamic meta object protocol.
+     *
+     * indy: program classes are compiled with invokedynamic call sites.
+     *
+     * dynamic (default): the plain Groovy configuration.
+     *
+     * @param compileMode the compile_mode from program.properties, checked by
+     * CustomProgramProperties when it is read
+     * @param program true for program classes, false for eval/parse snippets.
+     * Snippets rely on script bindings, so they never get the static
+     * transform.
+     * @return the configuration to compile with
+     */
+    static CompilerConfiguration getCompilerConfiguration(String compileMode, boolean program) {
+        CompilerConfiguration cc = new CompilerConfiguration();
+        switch (compileMode) {
+            case "static":
+                if (program) {
+                    cc.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic.class));
+                }
+                break;
+            case "indy":
+                cc.getOptimizationOptions().put(CompilerConfiguration.INVOKEDYNAMIC, true);
+                break;
+            default:
+                break;
+        }
+        return cc;
     }
 
     /**
@@ -86,13 +148,59 @@ public class EngineLoader implements Callable<Engine> {
         if (GameRuntime.checkLaunchTitle()) {
             GameRuntime.GAME_NAME = GameRuntime.LAUNCH_TITLE;
         }
+        MapCompiler.compileAll(GameRuntime.getProgramPath());
         if (cp.COMPILE_SOURCE) {
             compileEngine();
         }
         if (cp.USE_COMPILED) {
+            CompileService.getCompileService().stop();
             return getCompiledEngine();
         }
-        return getSourceEngine();
+        return getCachedEngine();
+    }
+
+    /**
+     * Loads the Engine from the code cache, compiling the sources into it
+     * first when they changed since the last launch.
+     *
+     * Falls back to parsing the source when the program class is not named
+     * after the program, or when a source does not compile. Parsing only
+     * compiles what the program class uses, so an error in a source it does
+     * not use does not stop the program. Otherwise the CompileService keeps
+     * the cache up to date while the program runs.
+     */
+    private Engine getCachedEngine() throws MalformedURLException, CompilationFailedException, IOException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+        String CACHED = CompiledCodeCache.getCacheDirectory(GameRuntime.getProgramPath());
+        boolean failed = false;
+        synchronized (CompiledCodeCache.class) {
+            String hash = CompiledCodeCache.hashSources(rootPath, cp.COMPILE_MODE);
+            if (!CompiledCodeCache.isCurrent(CACHED, hash)) {
+                CompiledCodeCache.clear(CACHED);
+                try {
+                    compileSources(CACHED);
+                    CompiledCodeCache.markCurrent(CACHED, hash);
+                } catch (CompilationFailedException ex) {
+                    Logger.getLogger(EngineLoader.class.getName()).log(Level.WARNING, "Unable to compile the code cache. Loading from source. {0}", ex.getMessage());
+                    //no half written classes are kept
+                    CompiledCodeCache.clear(CACHED);
+                    failed = true;
+                }
+            }
+        }
+        if (failed) {
+            //the cache is compiled again once the sources change
+            CompileService.getCompileService().watch(GameRuntime.getProgramPath(), cp.COMPILE_MODE);
+            return getSourceEngine();
+        }
+        gcl.addClasspath(Mdx.files.local(CACHED).path());
+        try {
+            Engine engine = (Engine) gcl.loadClass(GameRuntime.GAME_NAME).getConstructors()[0].newInstance();
+            CompileService.getCompileService().watch(GameRuntime.getProgramPath(), cp.COMPILE_MODE);
+            return engine;
+        } catch (ClassNotFoundException ex) {
+            Logger.getLogger(EngineLoader.class.getName()).log(Level.WARNING, "No cached class for: {0}. Loading from source.", GameRuntime.GAME_NAME);
+            return getSourceEngine();
+        }
     }
 
     private Engine getSourceEngine() throws MalformedURLException, CompilationFailedException, IOException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
@@ -109,13 +217,22 @@ public class EngineLoader implements Callable<Engine> {
 
     private void compileEngine() throws IOException {
         String COMPILED = rootPath + "Compiled/";
-        CompilerConfiguration cc = new CompilerConfiguration();
+        String hash = CompiledCodeCache.hashSources(rootPath, cp.COMPILE_MODE);
+        if (CompiledCodeCache.isCurrent(COMPILED, hash)) {
+            return;
+        }
+        compileSources(COMPILED);
+        CompiledCodeCache.markCurrent(COMPILED, hash);
+    }
+
+    private void compileSources(String target) throws IOException {
+        CompilerConfiguration cc = getCompilerConfiguration(cp.COMPILE_MODE, true);
         cc.setClasspath(rootPath);
-        if (!Mdx.files.local(COMPILED).exists()) {
-            Mdx.files.local(COMPILED).mkdirs();
+        if (!Mdx.files.local(target).exists()) {
+            Mdx.files.local(target).mkdirs();
         }
 
-        cc.setTargetDirectory(COMPILED);
+        cc.setTargetDirectory(target);
         Compiler compiler = new Compiler(cc);
 
         FileHandle[] list = Mdx.files.local(rootPath).list(".groovy");
@@ -177,7 +294,7 @@ public class EngineLoader implements Callable<Engine> {
 
         String codePath = GameRuntime.getProgramPath() + "/" + path;
 
-        CompilerConfiguration cc = new CompilerConfiguration();
+        CompilerConfiguration cc = getCompilerConfiguration(cp.COMPILE_MODE, true);
         cc.setClasspath(codePath);
         try {
             if (!Mdx.files.local(COMPILED).exists()) {
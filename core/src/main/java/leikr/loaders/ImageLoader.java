@@ -17,6 +17,7 @@ package leikr.loaders;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import leikr.GameRuntime;
@@ -24,8 +25,11 @@ import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.assets.AssetManager;
 import org.mini2Dx.core.files.LocalFileHandleResolver;
 import org.mini2Dx.core.graphics.Texture;
+import org.mini2Dx.core.graphics.TextureRegion;
 
 /**
+ * Resolves the Art images to regions of the AtlasLoader pages. Images that
+ * are not in the atlas are loaded as textures of their own.
  *
  * @author tor
  */
@@ -33,6 +37,11 @@ public class ImageLoader {
 
     AssetManager assetManager;
     String rootPath;
+    HashMap<String, TextureRegion> images;
+    //upside down copies, made when first drawn that way
+    HashMap<String, TextureRegion> flippedImages;
+    //true to load images when first drawn, under the AssetBudget
+    boolean lazy;
 
     private static ImageLoader instance;
 
@@ -40,17 +49,43 @@ public class ImageLoader {
     }
 
     public static ImageLoader getImageLoader() {
+        return getImageLoader(true);
+    }
+
+    /**
+     * @param reload when false the images already loaded are kept, so a code
+     * only reload does not read the images from disk again.
+     * @return the ImageLoader instance
+     */
+    public static ImageLoader getImageLoader(boolean reload) {
         if (instance == null) {
             instance = new ImageLoader();
         }
+        if (!reload && null != instance.images) {
+            return instance;
+        }
         instance.disposeImages();
         instance.reloadImageLoader();
         return instance;
     }
 
     private void reloadImageLoader() {
+        ImagePixelCache.getImagePixelCache().clear();
+        AtlasLoader atlas = AtlasLoader.getAtlasLoader();
+        atlas.load();
+        images = new HashMap<>();
+        flippedImages = new HashMap<>();
         assetManager = new AssetManager(new LocalFileHandleResolver());
         rootPath = GameRuntime.getProgramPath() + "/Art/";
+        EngineLoader engineLoader = EngineLoader.getEngineLoader(false);
+        lazy = null != engineLoader.cp && engineLoader.cp.LAZY_ASSETS;
+        if (lazy) {
+            AssetBudget.getAssetBudget().setBudget(engineLoader.cp.ASSET_BUDGET);
+            engineLoader.cp.PRELOAD.stream()
+                    .filter(path -> path.startsWith("Art/"))
+                    .forEach(path -> loadLazy(path.substring(4)));
+            return;
+        }
         try {
             Arrays.asList(Mdx.files.local(rootPath).list()).stream()
                     .filter(file -> !file.isDirectory()
@@ -58,7 +93,12 @@ public class ImageLoader {
                     || file.extension().equalsIgnoreCase("jpg")
                     || file.extension().equalsIgnoreCase("bmp")))
                     .forEach(path -> {
-                        assetManager.load(rootPath + path.name(), Texture.class);
+                        AtlasLoader.AtlasEntry e = atlas.getEntry("Art/" + path.name());
+                        if (null != e) {
+                            images.put(path.name(), new TextureRegion(e.page, e.x, e.y, e.width, e.height));
+                        } else {
+                            assetManager.load(rootPath + path.name(), Texture.class);
+                        }
                     });
             assetManager.finishLoading();
         } catch (IOException ex) {
@@ -70,12 +110,61 @@ public class ImageLoader {
         assetManager.finishLoading();//just to make sure we are done before calling getImage
     }
 
-    public Texture getImage(String fileName) {
-        return assetManager.get(rootPath + fileName, Texture.class);
+    /**
+     * @param fileName
+     * @return the region of the image
+     */
+    public TextureRegion getImage(String fileName) {
+        TextureRegion region = images.get(fileName);
+        if (lazy) {
+            if (null == region) {
+                return loadLazy(fileName);
+            }
+            AssetBudget.getAssetBudget().touch(region);
+        } else if (null == region) {
+            region = new TextureRegion(assetManager.get(rootPath + fileName, Texture.class));
+            images.put(fileName, region);
+        }
+        return region;
+    }
+
+    //loads an image on its own and unloads it again when over the budget
+    private TextureRegion loadLazy(String fileName) {
+        String path = rootPath + fileName;
+        assetManager.load(path, Texture.class);
+        assetManager.finishLoading();
+        Texture texture = assetManager.get(path, Texture.class);
+        TextureRegion region = new TextureRegion(texture);
+        images.put(fileName, region);
+        AssetBudget.getAssetBudget().add(this, region, 4L * texture.getWidth() * texture.getHeight(), () -> {
+            images.remove(fileName);
+            flippedImages.remove(fileName);
+            assetManager.unload(path);
+        });
+        return region;
+    }
 
+    /**
+     * @param fileName
+     * @return the region of the image, flipped vertically
+     */
+    public TextureRegion getFlippedImage(String fileName) {
+        TextureRegion region = flippedImages.get(fileName);
+        if (lazy && null != region) {
+            AssetBudget.getAssetBudget().touch(images.get(fileName));
+        } else if (null == region) {
+            TextureRegion image = getImage(fileName);
+            region = new TextureRegion(image, 0, 0, image.getRegionWidth(), image.getRegionHeight());
+            region.flip(false, true);
+            flippedImages.put(fileName, region);
+        }
+        return region;
     }
 
     public void disposeImages() {
+        AssetBudget.getAssetBudget().release(this);
+        images = null;
+        flippedImages = null;
         if (null != assetManager) {
             assetManager.clearAssetLoaders();
             assetManager.dispose();
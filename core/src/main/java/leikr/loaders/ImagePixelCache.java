@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import leikr.GameRuntime;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.graphics.Pixmap;
+
+/**
+ * Keeps the decoded pixels of the program Art images as packed RGBA8888 int
+ * arrays, so reading image pixels does not decode the image on every call.
+ *
+ * The least recently used images are dropped once the cache grows past its
+ * memory budget.
+ *
+ * @author tor
+ */
+public class ImagePixelCache {
+
+    //bytes of decoded pixels kept before the least recently used are dropped
+    public static final long MEMORY_BUDGET = 32 * 1024 * 1024;
+
+    private final LinkedHashMap<String, DecodedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private static ImagePixelCache instance;
+
+    private ImagePixelCache() {
+    }
+
+    public static ImagePixelCache getImagePixelCache() {
+        if (instance == null) {
+            instance = new ImagePixelCache();
+        }
+        return instance;
+    }
+
+    public static class DecodedImage {
+
+        public final int width;
+        public final int height;
+        //row by row, one RGBA8888 int per pixel
+        public final int[] pixels;
+
+        DecodedImage(int width, int height, int[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+
+        public int getPixel(int x, int y) {
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return 0;
+            }
+            return pixels[y * width + x];
+        }
+    }
+
+    /**
+     * Returns the decoded image, decoding it on first use.
+     *
+     * @param name file name of the image in the program Art directory
+     * @return the decoded image
+     */
+    public synchronized DecodedImage getImage(String name) {
+        String path = GameRuntime.getProgramPath() + "/Art/" + name;
+        DecodedImage image = images.get(path);
+        if (null == image) {
+            image = decode(path);
+            images.put(path, image);
+            usedBytes += image.pixels.length * 4L;
+            trim(path);
+        }
+        return image;
+    }
+
+    private DecodedImage decode(String path) {
+        Pixmap pm = Mdx.graphics.newPixmap(Mdx.files.local(path));
+        int w = pm.getWidth();
+        int h = pm.getHeight();
+        int[] pixels = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                pixels[y * w + x] = pm.getPixel(x, y);
+            }
+        }
+        pm.dispose();
+        return new DecodedImage(w, h, pixels);
+    }
+
+    //drops least recently used images, but never the one just requested
+    private void trim(String keep) {
+        Iterator<Map.Entry<String, DecodedImage>> it = images.entrySet().iterator();
+        while (usedBytes > MEMORY_BUDGET && it.hasNext()) {
+            Map.Entry<String, DecodedImage> e = it.next();
+            if (e.getKey().equals(keep)) {
+                continue;
+            }
+            usedBytes -= e.getValue().pixels.length * 4L;
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops every decoded image. Used when the program assets are reloaded.
+     */
+    public synchronized void clear() {
+        images.clear();
+        usedBytes = 0;
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.util.Arrays;
+import leikr.GameRuntime;
+import org.mini2Dx.core.Graphics;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.graphics.Color;
+import org.mini2Dx.core.graphics.FrameBuffer;
+import org.mini2Dx.core.graphics.TextureRegion;
+
+/**
+ * Keeps the tile layers of a map rendered into frame buffer chunks, so a
+ * static map is drawn with one quad per chunk instead of one per tile.
+ *
+ * A chunk is a screen sized block of tiles of one layer, which lets it be
+ * rendered with the same projection as the screen. Chunks are rendered at
+ * the start of a frame once they were drawn, and only a few per frame. Until
+ * then, and while a changed tile has not been rendered yet, the chunk is
+ * drawn tile by tile. Chunks with animated tiles are always drawn tile by
+ * tile.
+ *
+ * The cache holds the chunks a screen can show of every tile layer. When it is
+ * full of chunks drawn in the last frame, new chunks are drawn tile by tile
+ * instead of evicting chunks still on screen.
+ *
+ * The cache is only used when the program sets map_chunks=true. Tiles with
+ * partial alpha are blended into the transparent chunk and blended again when
+ * the chunk is drawn, which makes them darker and more transparent than when
+ * drawn directly, so programs with such tiles should leave it off.
+ *
+ * @author tor
+ */
+public class MapChunkCache {
+
+    public static final int ALL_LAYERS = -1;
+    //chunk buffers kept before the least recently drawn are released, raised for maps with many tile layers
+    public static final int MAX_CHUNKS = 64;
+    //chunks of one layer a screen can show, it spans up to 2 x 2 chunks
+    private static final int SCREEN_CHUNKS = 4;
+    //chunks rendered at the start of a frame at most
+    public static final int RENDERS_PER_FRAME = 4;
+
+    private final MapSource map;
+    private final int tileWidth;
+    private final int tileHeight;
+    //size of a chunk in tiles
+    private final int chunkTilesX;
+    private final int chunkTilesY;
+    private final int chunksX;
+    private final int chunksY;
+
+    //one entry per layer and chunk, see getIndex
+    private final FrameBuffer[] buffers;
+    private final TextureRegion[] regions;
+    private final boolean[] dirty;
+    private final boolean[] wanted;
+    private final boolean[] animated;
+    private final int[] lastUsed;
+    private final int maxChunks;
+    private int allocated;
+    private int frame;
+
+    private final Color clear = Mdx.graphics.newColor(0f, 0f, 0f, 0f);
+
+    public MapChunkCache(MapSource map) {
+        this.map = map;
+        tileWidth = Math.max(1, map.getTileWidth());
+        tileHeight = Math.max(1, map.getTileHeight());
+        chunkTilesX = Math.max(1, GameRuntime.WIDTH / tileWidth);
+        chunkTilesY = Math.max(1, GameRuntime.HEIGHT / tileHeight);
+        chunksX = (map.getWidth() + chunkTilesX - 1) / chunkTilesX;
+        chunksY = (map.getHeight() + chunkTilesY - 1) / chunkTilesY;
+        int size = map.getLayerCount() * chunksX * chunksY;
+        buffers = new FrameBuffer[size];
+        regions = new TextureRegion[size];
+        dirty = new boolean[size];
+        wanted = new boolean[size];
+        animated = new boolean[size];
+        lastUsed = new int[size];
+        Arrays.fill(dirty, true);
+        int tileLayers = 0;
+        for (int l = 0; l < map.getLayerCount(); l++) {
+            tileLayers += isCached(l) ? 1 : 0;
+        }
+        //room for the chunks on screen and the ones scrolled in next
+        maxChunks = Math.max(MAX_CHUNKS, 2 * SCREEN_CHUNKS * tileLayers);
+    }
+
+    private int getIndex(int layer, int cx, int cy) {
+        return (layer * chunksY + cy) * chunksX + cx;
+    }
+
+    private boolean isCached(int layer) {
+        return map.isTileLayer(layer);
+    }
+
+    /**
+     * Draws a region of tiles like TiledMap.draw.
+     *
+     * @param g
+     * @param x
+     * @param y
+     * @param sx first tile column
+     * @param sy first tile row
+     * @param w width in tiles
+     * @param h height in tiles
+     * @param layer layer index or ALL_LAYERS
+     */
+    public void draw(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer) {
+        if (layer != ALL_LAYERS) {
+            drawLayer(g, x, y, sx, sy, w, h, layer);
+            return;
+        }
+        for (int l = 0; l < map.getLayerCount(); l++) {
+            if (map.isLayerVisible(l)) {
+                drawLayer(g, x, y, sx, sy, w, h, l);
+            }
+        }
+    }
+
+    private void drawLayer(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer) {
+        if (!isCached(layer)) {
+            map.drawLayer(g, x, y, sx, sy, w, h, layer);
+            return;
+        }
+        int x0 = Math.max(sx, 0);
+        int y0 = Math.max(sy, 0);
+        int x1 = Math.min(sx + w, map.getWidth());
+        int y1 = Math.min(sy + h, map.getHeight());
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        for (int cy = y0 / chunkTilesY; cy <= (y1 - 1) / chunkTilesY; cy++) {
+            for (int cx = x0 / chunkTilesX; cx <= (x1 - 1) / chunkTilesX; cx++) {
+                int tx0 = Math.max(x0, cx * chunkTilesX);
+                int ty0 = Math.max(y0, cy * chunkTilesY);
+                int tx1 = Math.min(x1, (cx + 1) * chunkTilesX);
+                int ty1 = Math.min(y1, (cy + 1) * chunkTilesY);
+                int dx = x + (tx0 - sx) * tileWidth;
+                int dy = y + (ty0 - sy) * tileHeight;
+
+                int i = getIndex(layer, cx, cy);
+                if (animated[i] || dirty[i] || null == buffers[i]) {
+                    wanted[i] = !animated[i];
+                    map.drawLayer(g, dx, dy, tx0, ty0, tx1 - tx0, ty1 - ty0, layer);
+                    continue;
+                }
+                lastUsed[i] = frame;
+                g.drawTextureRegion(getRegion(i, (tx0 - cx * chunkTilesX) * tileWidth, (ty0 - cy * chunkTilesY) * tileHeight,
+                        (tx1 - tx0) * tileWidth, (ty1 - ty0) * tileHeight), dx, dy);
+            }
+        }
+    }
+
+    /**
+     * Frame buffer rows start at the bottom, so the region is taken from the
+     * raw texture rows, the same way the screen frame buffer is drawn with
+     * flipY false.
+     */
+    private TextureRegion getRegion(int i, int px, int py, int pw, int ph) {
+        TextureRegion region = regions[i];
+        if (null == region) {
+            region = new TextureRegion(buffers[i].getTexture());
+            regions[i] = region;
+        }
+        region.setRegion(px, GameRuntime.HEIGHT - py - ph, pw, ph);
+        return region;
+    }
+
+    /**
+     * Marks the chunk holding a tile to be rendered again.
+     *
+     * @param x tile column
+     * @param y tile row
+     * @param layer
+     */
+    public void markDirty(int x, int y, int layer) {
+        if (!isCached(layer) || x < 0 || y < 0 || x >= map.getWidth() || y >= map.getHeight()) {
+            return;
+        }
+        int i = getIndex(layer, x / chunkTilesX, y / chunkTilesY);
+        dirty[i] = true;
+        animated[i] = false;
+    }
+
+    /**
+     * Renders the chunks that were drawn tile by tile since they changed.
+     * Called at the start of a frame, before anything is drawn.
+     *
+     * @param g
+     * @param target the frame buffer bound again afterwards
+     */
+    public void render(Graphics g, FrameBuffer target) {
+        frame++;
+        int budget = RENDERS_PER_FRAME;
+        boolean rendered = false;
+        for (int i = 0; i < buffers.length && budget > 0; i++) {
+            if (wanted[i] && dirty[i]) {
+                rendered |= renderChunk(g, i);
+                budget--;
+            }
+        }
+        if (rendered) {
+            target.begin();
+        }
+    }
+
+    //returns true when a frame buffer was bound
+    private boolean renderChunk(Graphics g, int i) {
+        int layer = i / (chunksX * chunksY);
+        int cx = i % chunksX;
+        int cy = (i / chunksX) % chunksY;
+        int tx0 = cx * chunkTilesX;
+        int ty0 = cy * chunkTilesY;
+        int tw = Math.min(chunkTilesX, map.getWidth() - tx0);
+        int th = Math.min(chunkTilesY, map.getHeight() - ty0);
+        wanted[i] = false;
+
+        if (hasAnimatedTile(tx0, ty0, tw, th, layer)) {
+            dirty[i] = false;
+            animated[i] = true;
+            release(i);
+            return false;
+        }
+        if (null == buffers[i]) {
+            if (allocated >= maxChunks && !releaseOldest()) {
+                //every chunk is on screen, stay tile by tile
+                return false;
+            }
+            buffers[i] = Mdx.graphics.newFrameBuffer(GameRuntime.WIDTH, GameRuntime.HEIGHT);
+            allocated++;
+        }
+        dirty[i] = false;
+        lastUsed[i] = frame;
+        g.flush();
+        buffers[i].begin();
+        g.clearContext(clear);
+        map.drawLayer(g, 0, 0, tx0, ty0, tw, th, layer);
+        g.flush();
+        buffers[i].end();
+        return true;
+    }
+
+    private boolean hasAnimatedTile(int tx0, int ty0, int tw, int th, int layer) {
+        for (int y = ty0; y < ty0 + th; y++) {
+            for (int x = tx0; x < tx0 + tw; x++) {
+                if (map.isAnimated(x, y, layer)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //returns false when every chunk was drawn in the last frame
+    private boolean releaseOldest() {
+        int oldest = -1;
+        for (int i = 0; i < buffers.length; i++) {
+            if (null != buffers[i] && (oldest < 0 || lastUsed[i] < lastUsed[oldest])) {
+                oldest = i;
+            }
+        }
+        if (oldest < 0 || lastUsed[oldest] >= frame - 1) {
+            return false;
+        }
+        release(oldest);
+        dirty[oldest] = true;
+        return true;
+    }
+
+    private void release(int i) {
+        if (null != buffers[i]) {
+            buffers[i].dispose();
+            buffers[i] = null;
+            regions[i] = null;
+            allocated--;
+        }
+    }
+
+    public void dispose() {
+        for (int i = 0; i < buffers.length; i++) {
+            release(i);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.files.FileHandle;
+
+/**
+ * Compiles the .tmx maps of a program into .lmap files in the cache
+ * directory, which CompiledMap memory maps instead of parsing the XML.
+ *
+ * An .lmap starts with the tile layers, one record of REGION x REGION little
+ * endian ids per tile layer and region, followed by the header: source size
+ * and the newest date of the .tmx, its .tsx files and images, map size,
+ * tilesets, layers and objects. The file ends with the
+ * offset of the header and the magic number.
+ *
+ * Maps using image layers, flipped tiles or tilesets without one image are
+ * not compiled and are loaded as TiledMaps.
+ *
+ * @author tor
+ */
+public class MapCompiler {
+
+    public static final String EXTENSION = ".lmap";
+    //tiles per region side
+    public static final int REGION = 64;
+    static final int REGION_BYTES = REGION * REGION * 4;
+    static final int MAGIC = 0x4C4D4150;
+    static final int VERSION = 1;
+    private static final String SKIP_EXTENSION = ".skip";
+
+    private MapCompiler() {
+    }
+
+    public static String getCacheDirectory(String programPath) {
+        return CompiledCodeCache.CACHE_ROOT + programPath + "/Maps/";
+    }
+
+    /**
+     * Compiles every map of the program that changed since it was compiled.
+     *
+     * @param programPath
+     */
+    public static void compileAll(String programPath) {
+        FileHandle[] maps;
+        try {
+            maps = Mdx.files.local(programPath + "/Maps/").list();
+        } catch (IOException ex) {
+            return;
+        }
+        for (FileHandle map : maps) {
+            if (map.isDirectory() || !map.extension().equalsIgnoreCase("tmx")) {
+                continue;
+            }
+            try {
+                compile(programPath + "/Maps/" + map.name(), getCacheDirectory(programPath));
+            } catch (IOException | RuntimeException ex) {
+                Logger.getLogger(MapCompiler.class.getName()).log(Level.WARNING, "Unable to compile map: " + map.name(), ex);
+            }
+        }
+    }
+
+    /**
+     * Compiles a map when its .lmap is missing or older than the .tmx or a
+     * file it uses.
+     *
+     * @param tmxPath path of the .tmx
+     * @param cachePath directory of the .lmap files
+     * @return the .lmap, null when the map can not be compiled
+     * @throws IOException
+     */
+    public static synchronized Path compile(String tmxPath, String cachePath) throws IOException {
+        Path tmx = Paths.get(Mdx.files.local(tmxPath).path());
+        Path cache = Paths.get(Mdx.files.local(cachePath).path());
+        String name = tmx.getFileName().toString();
+        Path lmap = cache.resolve(name.substring(0, name.length() - 4) + EXTENSION);
+        Path skip = cache.resolve(name + SKIP_EXTENSION);
+        long size = Files.size(tmx);
+        long modified = getLastModified(tmx);
+        if (isCurrent(lmap, size, modified)) {
+            return lmap;
+        }
+        String stamp = size + ":" + modified;
+        if (Files.exists(skip) && stamp.equals(new String(Files.readAllBytes(skip), StandardCharsets.UTF_8))) {
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
+        Files.createDirectories(cache);
+        Files.deleteIfExists(skip);
+        Path temp = cache.resolve(name + ".tmp");
+        TmxReader info = new TmxReader();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            info.read(tmx, new RegionWriter(info, out));
+            String reason = getUnsupported(info);
+            if (null != reason) {
+                out.close();
+                Files.delete(temp);
+                Files.deleteIfExists(lmap);
+                Files.write(skip, stamp.getBytes(StandardCharsets.UTF_8));
+                Logger.getLogger(MapCompiler.class.getName()).log(Level.INFO, "Map {0} is not compiled: {1}", new Object[]{name, reason});
+                return null;
+            }
+            long headerOffset = (long) getTileLayerCount(info) * getRegionsX(info) * getRegionsY(info) * REGION_BYTES;
+            byte[] header = writeHeader(info, size, modified);
+            ByteBuffer buffer = ByteBuffer.allocate(header.length + 12);
+            buffer.put(header).putLong(headerOffset).putInt(MAGIC).flip();
+            while (buffer.hasRemaining()) {
+                headerOffset += out.write(buffer, headerOffset);
+            }
+        }
+        Files.move(temp, lmap, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Logger.getLogger(MapCompiler.class.getName()).log(Level.INFO, "Map {0} compiled in {1}ms", new Object[]{name, System.currentTimeMillis() - start});
+        return lmap;
+    }
+
+    //tile properties and animations come from the .tsx files too
+    private static long getLastModified(Path tmx) throws IOException {
+        long modified = Files.getLastModifiedTime(tmx).toMillis();
+        for (String file : TmxReader.readDependencies(tmx)) {
+            modified = Math.max(modified, Files.getLastModifiedTime(Paths.get(file)).toMillis());
+        }
+        return modified;
+    }
+
+    private static String getUnsupported(TmxReader info) {
+        if (info.hasFlippedTiles()) {
+            return "flipped tiles";
+        }
+        for (TmxReader.LayerInfo layer : info.layers) {
+            if (layer.image) {
+                return "image layer";
+            }
+        }
+        for (TmxReader.TilesetInfo tileset : info.tilesets) {
+            if (null == tileset.image || tileset.columns <= 0) {
+                return "tileset without one image";
+            }
+        }
+        return null;
+    }
+
+    //reads the trailer and the start of the header
+    private static boolean isCurrent(Path lmap, long size, long modified) {
+        if (!Files.exists(lmap)) {
+            return false;
+        }
+        try (FileChannel in = FileChannel.open(lmap, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(12);
+            in.read(trailer, in.size() - 12);
+            trailer.flip();
+            long headerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(24);
+            in.read(header, headerOffset);
+            header.flip();
+            return header.getInt() == MAGIC && header.getInt() == VERSION
+                    && header.getLong() == size && header.getLong() == modified;
+        } catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    static int getRegionsX(TmxReader info) {
+        return (info.width + REGION - 1) / REGION;
+    }
+
+    static int getRegionsY(TmxReader info) {
+        return (info.height + REGION - 1) / REGION;
+    }
+
+    static int getTileLayerCount(TmxReader info) {
+        int count = 0;
+        for (TmxReader.LayerInfo layer : info.layers) {
+            if (layer.tiles) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static byte[] writeHeader(TmxReader info, long size, long modified) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(size);
+        out.writeLong(modified);
+        out.writeInt(info.width);
+        out.writeInt(info.height);
+        out.writeInt(info.tileWidth);
+        out.writeInt(info.tileHeight);
+
+        out.writeInt(info.tilesets.size());
+        for (TmxReader.TilesetInfo tileset : info.tilesets) {
+            out.writeInt(tileset.firstGid);
+            out.writeInt(tileset.tileWidth);
+            out.writeInt(tileset.tileHeight);
+            out.writeInt(tileset.spacing);
+            out.writeInt(tileset.margin);
+            out.writeInt(tileset.columns);
+            out.writeInt(tileset.tileCount);
+            out.writeUTF(tileset.image);
+            out.writeInt(tileset.properties.size());
+            for (Map.Entry<Integer, ? extends Map<String, String>> tile : tileset.properties.entrySet()) {
+                out.writeInt(tile.getKey());
+                out.writeInt(tile.getValue().size());
+                for (Map.Entry<String, String> property : tile.getValue().entrySet()) {
+                    out.writeUTF(String.valueOf(property.getKey()));
+                    out.writeUTF(String.valueOf(property.getValue()));
+                }
+            }
+            out.writeInt(tileset.animations.size());
+            for (Map.Entry<Integer, int[]> tile : tileset.animations.entrySet()) {
+                out.writeInt(tile.getKey());
+                out.writeInt(tile.getValue().length);
+                for (int value : tile.getValue()) {
+                    out.writeInt(value);
+                }
+            }
+        }
+
+        out.writeInt(info.layers.size());
+        for (TmxReader.LayerInfo layer : info.layers) {
+            out.writeUTF(null == layer.name ? "" : layer.name);
+            out.writeBoolean(layer.visible);
+            out.writeBoolean(layer.tiles);
+        }
+
+        out.writeInt(info.objects.size());
+        for (TmxReader.ObjectInfo object : info.objects) {
+            out.writeInt(object.layer);
+            out.writeInt(object.id);
+            out.writeInt(object.gid);
+            out.writeUTF(null == object.name ? "" : object.name);
+            out.writeUTF(null == object.type ? "" : object.type);
+            out.writeFloat(object.x);
+            out.writeFloat(object.y);
+            out.writeFloat(object.width);
+            out.writeFloat(object.height);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Collects REGION rows of a tile layer, then writes one record per
+     * region.
+     */
+    private static class RegionWriter implements TmxReader.TileSink {
+
+        private final TmxReader info;
+        private final FileChannel out;
+        private final ByteBuffer record = ByteBuffer.allocate(REGION_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private int[] band;
+        private int slot = -1;
+        private int lastLayer = -1;
+
+        RegionWriter(TmxReader info, FileChannel out) {
+            this.info = info;
+            this.out = out;
+        }
+
+        @Override
+        public void row(int layer, int y, int[] gids) throws IOException {
+            if (layer != lastLayer) {
+                lastLayer = layer;
+                slot++;
+                band = new int[REGION * info.width];
+            }
+            System.arraycopy(gids, 0, band, (y % REGION) * info.width, info.width);
+            if (y % REGION != REGION - 1 && y != info.height - 1) {
+                return;
+            }
+            int ry = y / REGION;
+            int regionsX = getRegionsX(info);
+            for (int rx = 0; rx < regionsX; rx++) {
+                record.clear();
+                for (int j = 0; j < REGION; j++) {
+                    for (int i = 0; i < REGION; i++) {
+                        int x = rx * REGION + i;
+                        record.putInt(x < info.width ? band[j * info.width + x] : 0);
+                    }
+                }
+                record.flip();
+                long offset = ((long) (slot * getRegionsY(info) + ry) * regionsX + rx) * REGION_BYTES;
+                while (record.hasRemaining()) {
+                    offset += out.write(record, offset);
+                }
+            }
+            Arrays.fill(band, 0);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+/**
+ * Tracks a map requested with MapLoader.loadMapAsync.
+ *
+ * The map is read on a background thread, its tileset textures are loaded at
+ * the start of the following frames and then it replaces the loaded map. The
+ * handle is done from the frame the new map is drawn.
+ *
+ * @author tor
+ */
+public class MapLoadHandle {
+
+    private final String name;
+    private volatile boolean done;
+    private volatile boolean failed;
+    private boolean cancelled;
+    //true once the background thread is done with the handle
+    private boolean settled;
+    //the map read by the background thread, guarded by this handle
+    private MapLoader.PreparedMap map;
+
+    MapLoadHandle(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true once the map replaced the loaded one
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return true when the map could not be read or another map was
+     * requested before it was done, the loaded map is kept then
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return true while the map is still being read or uploaded
+     */
+    public boolean isLoading() {
+        return !done && !failed;
+    }
+
+    //the map now belongs to the MapLoader
+    synchronized void finish() {
+        map = null;
+        done = true;
+    }
+
+    synchronized void fail() {
+        failed = true;
+        settled = true;
+    }
+
+    synchronized MapLoader.PreparedMap getPrepared() {
+        return cancelled ? null : map;
+    }
+
+    //the map is kept even when cancelled, the render thread releases it
+    synchronized void setPrepared(MapLoader.PreparedMap map) {
+        this.map = map;
+        settled = true;
+    }
+
+    //the MapLoader releases the map of a cancelled handle once it is settled
+    synchronized void cancel() {
+        cancelled = true;
+        failed = !done;
+    }
+
+    synchronized boolean isSettled() {
+        return settled;
+    }
+
+    //hands the map over to the caller, null when there is none
+    synchronized MapLoader.PreparedMap takePrepared() {
+        MapLoader.PreparedMap taken = map;
+        map = null;
+        return taken;
+    }
+}
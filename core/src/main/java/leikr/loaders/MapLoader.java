@@ -15,6 +15,14 @@
  */
 package leikr.loaders;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import leikr.GameRuntime;
@@ -22,6 +30,7 @@ import leikr.customProperties.CustomSystemProperties;
 import leikr.screens.EngineScreen;
 import org.mini2Dx.core.Graphics;
 import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.graphics.FrameBuffer;
 import org.mini2Dx.tiled.TiledMap;
 
 /**
@@ -32,19 +41,234 @@ public class MapLoader {
     //TODO: Add handlers for object layers and collisions.  
 
     TiledMap tiledMap;
+    String mapName;
+    //true once the loaded map tiles were changed by the program
+    boolean modified;
+    //pre-rendered tile layer chunks of the loaded map
+    MapChunkCache chunks;
+    //tile ids of the loaded map for lookups
+    TileGrid grid;
+    //the loaded map when it was compiled, tiledMap is null then
+    CompiledMap compiled;
+    //true to read compiled maps ahead instead of caching chunks
+    boolean streaming;
+    //true when the program opted into the chunk cache with map_chunks
+    boolean chunked;
+
+    //the map requested with loadMapAsync, null when there is none
+    MapLoadHandle pending;
+    //cancelled requests whose maps are released on the render thread
+    final List<MapLoadHandle> cancelled = new ArrayList<>();
+    //ResidentCache key of the loaded map
+    String residentKey;
+
+    private static final String RESIDENT_KEY = "map:";
 
     String rootPath;
 
+    private final ExecutorService mapPool;
+
     private static MapLoader instance;
 
     private MapLoader() {
+        mapPool = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Leikr-MapLoader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * A map read without its tileset textures, so it can be read off the
+     * render thread.
+     */
+    static class PreparedMap {
+
+        CompiledMap compiled;
+        TiledMap tiledMap;
+        TileGrid grid;
+        String key;
+        //true when taken back from the ResidentCache with its textures
+        boolean resident;
+
+        //loads one tileset at a time for compiled maps, returns true when done
+        boolean loadTextures() {
+            if (resident) {
+                return true;
+            }
+            if (null != compiled) {
+                return compiled.loadNextTileset();
+            }
+            tiledMap.loadTilesetTextures();
+            return true;
+        }
+
+        //the tile layers of a TiledMap are estimated at 8 bytes a cell
+        long getSize() {
+            if (null != compiled) {
+                return compiled.getMemorySize();
+            }
+            return 8L * tiledMap.getWidth() * tiledMap.getHeight() * tiledMap.getTotalLayers();
+        }
+
+        void dispose() {
+            if (null != compiled) {
+                compiled.dispose();
+            }
+            if (null != tiledMap) {
+                tiledMap.dispose();
+            }
+        }
     }
 
     public void loadMap(String name) {
-        if (null != tiledMap) {
-            tiledMap.dispose();
+        cancelPending();
+        releaseCancelled();
+        //a code only reload keeps the map, reuse it while it is unchanged
+        if (isMapLoaded() && name.equals(mapName) && !modified) {
+            return;
+        }
+        disposeMap();
+        PreparedMap map = prepareMap(name, rootPath, GameRuntime.getProgramPath(), streaming);
+        boolean loaded = map.loadTextures();
+        while (!loaded) {
+            loaded = map.loadTextures();
+        }
+        install(name, map);
+    }
+
+    /**
+     * Loads a map without stalling the program. The map is read on a
+     * background thread and its tileset textures are loaded over the next
+     * frames. The loaded map stays drawable until the new one replaces it at
+     * the start of a frame. Requesting another map cancels this one.
+     *
+     * @param name
+     * @return a handle to check on the load
+     */
+    public MapLoadHandle loadMapAsync(String name) {
+        if (null != pending && name.equals(pending.getName())) {
+            return pending;
+        }
+        cancelPending();
+        MapLoadHandle handle = new MapLoadHandle(name);
+        if (isMapLoaded() && name.equals(mapName) && !modified) {
+            handle.finish();
+            return handle;
+        }
+        pending = handle;
+        String root = rootPath;
+        String programPath = GameRuntime.getProgramPath();
+        boolean stream = streaming;
+        mapPool.submit(() -> {
+            try {
+                handle.setPrepared(prepareMap(name, root, programPath, stream));
+            } catch (RuntimeException ex) {
+                Logger.getLogger(MapLoader.class.getName()).log(Level.WARNING, "Unable to load map " + name, ex);
+                handle.fail();
+            }
+        });
+        return handle;
+    }
+
+    //reads the map, the compiled one when it can be compiled
+    private static PreparedMap prepareMap(String name, String root, String programPath, boolean stream) {
+        String key = getResidentKey(root + name + ".tmx", stream);
+        PreparedMap map = null == key ? null : ResidentCache.getResidentCache().take(key, PreparedMap.class);
+        if (null != map) {
+            return map;
+        }
+        map = new PreparedMap();
+        map.key = key;
+        try {
+            Path lmap = MapCompiler.compile(root + name + ".tmx", MapCompiler.getCacheDirectory(programPath));
+            if (null != lmap) {
+                map.compiled = new CompiledMap(lmap, stream);
+                return map;
+            }
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(MapLoader.class.getName()).log(Level.WARNING, "Unable to load compiled map " + name + ", loading the .tmx", ex);
+        }
+        map.tiledMap = new TiledMap(Mdx.files.local(root + name + ".tmx"), false, false);
+        map.grid = new TileGrid(map.tiledMap);
+        return map;
+    }
+
+    //the stamp of the .tmx, its .tsx files and images, null when unreadable
+    private static String getResidentKey(String tmxPath, boolean stream) {
+        try {
+            List<String> files = TmxReader.readDependencies(Paths.get(Mdx.files.local(tmxPath).path()));
+            files.add(0, tmxPath);
+            return RESIDENT_KEY + stream + ":" + ResidentCache.getStamp(files.toArray(new String[0]));
+        } catch (IOException ex) {
+            Logger.getLogger(MapLoader.class.getName()).log(Level.FINE, "Map " + tmxPath + " is not kept resident", ex);
+            return null;
+        }
+    }
+
+    //replaces the loaded map with a prepared one that has its textures
+    private void install(String name, PreparedMap map) {
+        disposeMap();
+        mapName = name;
+        modified = false;
+        compiled = map.compiled;
+        tiledMap = map.tiledMap;
+        grid = map.grid;
+        residentKey = map.key;
+        if (chunked && null != compiled) {
+            if (!streaming) {
+                chunks = new MapChunkCache(compiled);
+            }
+        } else if (chunked) {
+            chunks = new MapChunkCache(new TiledMapSource(tiledMap));
+        }
+    }
+
+    //uploads one tileset of the pending map per frame, then swaps it in
+    private void updatePending() {
+        releaseCancelled();
+        if (null == pending) {
+            return;
+        }
+        if (pending.isFailed()) {
+            pending = null;
+            return;
+        }
+        PreparedMap map = pending.getPrepared();
+        if (null == map || !map.loadTextures()) {
+            return;
+        }
+        install(pending.getName(), map);
+        pending.finish();
+        pending = null;
+    }
+
+    private void cancelPending() {
+        if (null != pending) {
+            pending.cancel();
+            cancelled.add(pending);
+            pending = null;
+        }
+    }
+
+    //parks or disposes the maps of cancelled requests the worker is done with
+    private void releaseCancelled() {
+        Iterator<MapLoadHandle> it = cancelled.iterator();
+        while (it.hasNext()) {
+            MapLoadHandle handle = it.next();
+            if (handle.isSettled()) {
+                it.remove();
+                PreparedMap map = handle.takePrepared();
+                if (null == map) {
+                    continue;
+                }
+                if (map.resident) {
+                    ResidentCache.getResidentCache().put(map.key, map, map.getSize(), map::dispose);
+                } else {
+                    map.dispose();
+                }
+            }
         }
-        tiledMap = new TiledMap(Mdx.files.local(rootPath + name + ".tmx"));
     }
 
     public static MapLoader getMapLoader() {
@@ -57,14 +281,56 @@ public class MapLoader {
 
     private void resetMapLoader() {
         rootPath = GameRuntime.getProgramPath() + "/Maps/";
+        EngineLoader engineLoader = EngineLoader.getEngineLoader(false);
+        streaming = null != engineLoader.cp && engineLoader.cp.STREAM_MAPS;
+        chunked = null != engineLoader.cp && engineLoader.cp.MAP_CHUNKS;
     }
 
+    /**
+     * @return the loaded TiledMap, null when there is none or the map is
+     * compiled
+     */
     public TiledMap getMap() {
         return tiledMap;
     }
 
+    public boolean isMapLoaded() {
+        return null != tiledMap || null != compiled;
+    }
+
+    public int getMapWidth() {
+        return null != compiled ? compiled.getWidth() : tiledMap.getWidth();
+    }
+
+    public int getMapHeight() {
+        return null != compiled ? compiled.getHeight() : tiledMap.getHeight();
+    }
+
+    public int getTileWidth() {
+        return null != compiled ? compiled.getTileWidth() : tiledMap.getTileWidth();
+    }
+
+    public int getTileHeight() {
+        return null != compiled ? compiled.getTileHeight() : tiledMap.getTileHeight();
+    }
+
+    /**
+     * Swaps in a map loaded with loadMapAsync once it is ready and advances
+     * tile animations.
+     *
+     * @param delta
+     */
+    public void update(float delta) {
+        updatePending();
+        if (null != compiled) {
+            compiled.update(delta);
+        } else if (null != tiledMap) {
+            tiledMap.update(delta);
+        }
+    }
+
     private boolean checkMap() {
-        if (tiledMap != null) {
+        if (isMapLoaded()) {
             return true;
         } else {
             EngineScreen.errorEngine("Error in program `render` method. `drawMap()` called with null map. Load a map with `loadMap(String name)`");
@@ -78,42 +344,92 @@ public class MapLoader {
 
     public void drawMap(Graphics g, int x, int y) {
         if (checkMap()) {
-            tiledMap.draw(g, x, y);
+            draw(g, x, y, 0, 0, getMapWidth(), getMapHeight(), MapChunkCache.ALL_LAYERS);
         }
     }
 
     public void drawMap(Graphics g, int x, int y, int layer) {
         if (checkMap()) {
-            tiledMap.draw(g, x, y, layer);
+            draw(g, x, y, 0, 0, getMapWidth(), getMapHeight(), layer);
         }
     }
 
     public void drawMap(Graphics g, int x, int y, int sx, int sy, int w, int h) {
         if (checkMap()) {
-            tiledMap.draw(g, x, y, sx, sy, w, h);
+            draw(g, x, y, sx, sy, w, h, MapChunkCache.ALL_LAYERS);
         }
     }
 
     public void drawMap(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer) {
         if (checkMap()) {
+            draw(g, x, y, sx, sy, w, h, layer);
+        }
+    }
+
+    private void draw(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer) {
+        if (null != chunks) {
+            chunks.draw(g, x, y, sx, sy, w, h, layer);
+        } else if (null != compiled) {
+            compiled.draw(g, x, y, sx, sy, w, h, layer);
+        } else if (layer == MapChunkCache.ALL_LAYERS) {
+            tiledMap.draw(g, x, y, sx, sy, w, h);
+        } else {
             tiledMap.draw(g, x, y, sx, sy, w, h, layer);
         }
     }
 
+    /**
+     * Renders the map chunks that changed since they were drawn last. Called
+     * at the start of a frame, while the screen frame buffer is bound.
+     *
+     * @param g
+     * @param target the screen frame buffer
+     */
+    public void renderChunks(Graphics g, FrameBuffer target) {
+        if (null != chunks) {
+            chunks.render(g, target);
+        }
+    }
+
     // Gets the tileId of the cell located at x and y. 
     public int getMapTile(int x, int y) {
         return getMapTile(x, y, 0);
     }
 
     public int getMapTile(int x, int y, int layer) {
-        try {
-            return tiledMap.getTile(x, y, layer).getTileId(1);
-        } catch (Exception ex) {
-            if (CustomSystemProperties.DEBUG) {
-                Logger.getLogger(MapLoader.class.getName()).log(Level.INFO, null, ex);
-            }
-            return -1;
+        if (null != compiled) {
+            return compiled.getTile(x, y, layer);
+        }
+        return null == grid ? -1 : grid.getTile(x, y, layer);
+    }
+
+    /**
+     * Reads a block of tile ids row by row, -1 for empty cells and cells
+     * outside of the map.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param layer
+     * @param out receives w * h ids, a new array is used when it is too small
+     * @return the array holding the ids
+     */
+    public int[] getMapTiles(int x, int y, int w, int h, int layer, int[] out) {
+        if (null != compiled) {
+            return compiled.getTiles(x, y, w, h, layer, out);
+        }
+        if (null == grid) {
+            return null == out ? new int[Math.max(w, 0) * Math.max(h, 0)] : out;
+        }
+        return grid.getTiles(x, y, w, h, layer, out);
+    }
+
+    public boolean hasMapTileProperty(String property, int x, int y, int layer) {
+        if (null != compiled) {
+            return compiled.hasProperty(property, x, y, layer);
         }
+        return null != grid && grid.hasProperty(property, x, y, layer);
     }
 
     public void setMapTile(int id, int x, int y) {
@@ -121,8 +437,17 @@ public class MapLoader {
     }
 
     public void setMapTile(int id, int x, int y, int layer) {
+        if (null != compiled) {
+            if (compiled.setTile(id, x, y, layer)) {
+                markChanged(x, y, layer);
+            }
+            return;
+        }
         try {
             tiledMap.getTileLayer(layer).setTileId(x, y, id);
+            chunks.markDirty(x, y, layer);
+            grid.update(x, y, layer);
+            modified = true;
         } catch (Exception ex) {
             if (CustomSystemProperties.DEBUG) {
                 Logger.getLogger(MapLoader.class.getName()).log(Level.INFO, null, ex);
@@ -135,8 +460,17 @@ public class MapLoader {
     }
 
     public void removeMapTile(int x, int y, int layer) {
+        if (null != compiled) {
+            if (compiled.setTile(-1, x, y, layer)) {
+                markChanged(x, y, layer);
+            }
+            return;
+        }
         try {
             tiledMap.getTileLayer(layer).setTileId(x, y, -1);
+            chunks.markDirty(x, y, layer);
+            grid.update(x, y, layer);
+            modified = true;
         } catch (Exception ex) {
             if (CustomSystemProperties.DEBUG) {
                 Logger.getLogger(MapLoader.class.getName()).log(Level.INFO, null, ex);
@@ -144,10 +478,54 @@ public class MapLoader {
         }
     }
 
+    private void markChanged(int x, int y, int layer) {
+        if (null != chunks) {
+            chunks.markDirty(x, y, layer);
+        }
+        modified = true;
+    }
+
+    /**
+     * Disposes the loaded map and cancels a map requested with loadMapAsync.
+     * A cancelled map still being read is released on a later update.
+     */
+    public void disposeAll() {
+        cancelPending();
+        releaseCancelled();
+        disposeMap();
+    }
+
+    /**
+     * Disposes the loaded map. An unchanged map is parked in the
+     * ResidentCache, so loading it again takes it back.
+     */
     public void disposeMap() {
+        if (null != chunks) {
+            chunks.dispose();
+            chunks = null;
+        }
+        if (isMapLoaded() && !modified && null != residentKey) {
+            PreparedMap map = new PreparedMap();
+            map.compiled = compiled;
+            map.tiledMap = tiledMap;
+            map.grid = grid;
+            map.key = residentKey;
+            map.resident = true;
+            ResidentCache.getResidentCache().put(residentKey, map, map.getSize(), map::dispose);
+            compiled = null;
+            tiledMap = null;
+        }
+        residentKey = null;
+        grid = null;
+        if (null != compiled) {
+            compiled.dispose();
+            compiled = null;
+        }
         if (null != tiledMap) {
             tiledMap.dispose();
+            tiledMap = null;
         }
+        mapName = null;
     }
 
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import org.mini2Dx.core.Graphics;
+
+/**
+ * The parts of a loaded map the MapChunkCache needs, implemented for mini2Dx
+ * TiledMaps and for CompiledMaps.
+ *
+ * @author tor
+ */
+public interface MapSource {
+
+    int getWidth();
+
+    int getHeight();
+
+    int getTileWidth();
+
+    int getTileHeight();
+
+    int getLayerCount();
+
+    boolean isTileLayer(int layer);
+
+    boolean isLayerVisible(int layer);
+
+    /**
+     * @param x
+     * @param y
+     * @param layer
+     * @return true when the tile of the cell changes over time
+     */
+    boolean isAnimated(int x, int y, int layer);
+
+    /**
+     * Draws a region of tiles of one layer like TiledMap.draw.
+     *
+     * @param g
+     * @param x
+     * @param y
+     * @param sx first tile column
+     * @param sy first tile row
+     * @param w width in tiles
+     * @param h height in tiles
+     * @param layer
+     */
+    void drawLayer(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer);
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import leikr.customProperties.CustomSystemProperties;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.files.FileHandle;
+
+/**
+ * Keeps loaded assets after a program is torn down, so a reload or relaunch
+ * of the same program takes them back instead of reading the files again.
+ *
+ * Assets are keyed by their file paths with the size and date of each file,
+ * so a changed file never matches. Parked assets are disposed, oldest first,
+ * when they go over the resident_cache budget of the system properties or
+ * the heap runs low. Assets are parked and evicted on the render thread,
+ * taking them back is safe from the loading threads.
+ *
+ * @author tor
+ */
+public class ResidentCache {
+
+    public static final int DEFAULT_BUDGET_MB = 128;
+    //parked assets are dropped while less of the heap is free
+    private static final double MIN_FREE_HEAP = 0.1;
+
+    private static class Entry {
+
+        final Object asset;
+        final long size;
+        final Runnable dispose;
+
+        Entry(Object asset, long size, Runnable dispose) {
+            this.asset = asset;
+            this.size = size;
+            this.dispose = dispose;
+        }
+    }
+
+    //in access order, the oldest first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long used;
+
+    private static ResidentCache instance;
+
+    private ResidentCache() {
+    }
+
+    public static synchronized ResidentCache getResidentCache() {
+        if (instance == null) {
+            instance = new ResidentCache();
+        }
+        return instance;
+    }
+
+    /**
+     * @param paths files relative to the working directory
+     * @return the paths with the size and date of each file
+     */
+    public static String getStamp(String... paths) {
+        StringBuilder sb = new StringBuilder();
+        for (String path : paths) {
+            FileHandle file = Mdx.files.local(path);
+            sb.append(path).append(':').append(file.length()).append(':').append(file.lastModified()).append('|');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parks an asset that is no longer used. Must be called on the render
+     * thread, since it may dispose older assets.
+     *
+     * @param key
+     * @param asset
+     * @param size the memory used by the asset in bytes
+     * @param dispose disposes the asset when it is evicted
+     */
+    public synchronized void put(String key, Object asset, long size, Runnable dispose) {
+        Entry old = entries.remove(key);
+        if (null != old) {
+            used -= old.size;
+            old.dispose.run();
+        }
+        entries.put(key, new Entry(asset, size, dispose));
+        used += size;
+        trim();
+    }
+
+    /**
+     * Takes a parked asset back, the caller owns it again.
+     *
+     * @param <T>
+     * @param key
+     * @param type
+     * @return the asset, null when none is parked for the key
+     */
+    public synchronized <T> T take(String key, Class<T> type) {
+        Entry entry = entries.get(key);
+        if (null == entry || !type.isInstance(entry.asset)) {
+            return null;
+        }
+        entries.remove(key);
+        used -= entry.size;
+        return type.cast(entry.asset);
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    private void trim() {
+        int budget = CustomSystemProperties.RESIDENT_CACHE > 0 ? CustomSystemProperties.RESIDENT_CACHE : DEFAULT_BUDGET_MB;
+        long limit = budget * 1024L * 1024L;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext() && (used > limit || isHeapLow())) {
+            Entry entry = it.next();
+            it.remove();
+            used -= entry.size;
+            try {
+                entry.dispose.run();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(ResidentCache.class.getName()).log(Level.WARNING, "Unable to dispose a resident asset", ex);
+            }
+        }
+    }
+
+    private static boolean isHeapLow() {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+        return free < runtime.maxMemory() * MIN_FREE_HEAP;
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.mini2Dx.core.audio.Sound;
+
+/**
+ * A fixed number of voices for playing sounds.
+ *
+ * Sounds are played through int handles resolved once by name, so playing a
+ * sound does no string work. Each sound has a priority and a maximum number
+ * of voices. A sound at its maximum replaces its own oldest voice. When every
+ * voice is busy the weakest voice of the same or a lower priority is stolen,
+ * the lowest priority first, then the quietest, then the oldest. A sound
+ * that finds only stronger voices is not played.
+ *
+ * The audio backend does not report when a sound ends, so each voice is
+ * busy for the length read from the sound file.
+ *
+ * @author tor
+ */
+public class SoundVoicePool {
+
+    public static final int DEFAULT_VOICES = 12;
+    public static final int MAX_VOICES = 64;
+    //used when the length of a sound file can not be read
+    private static final long DEFAULT_DURATION = 2_000_000_000L;
+
+    //per handle
+    private final HashMap<String, Integer> handleIds = new HashMap<>();
+    private String[] names = new String[16];
+    private Sound[] sounds = new Sound[16];
+    private long[] durations = new long[16];
+    private int[] priorities = new int[16];
+    private int[] maxVoices = new int[16];
+    private int handles;
+
+    //per voice, voiceHandle is -1 for free voices
+    private final int[] voiceHandle;
+    private final long[] voiceId;
+    private final int[] voicePriority;
+    private final float[] voiceVolume;
+    private final long[] voiceStart;
+    private final long[] voiceEnd;
+    private final int[] generation;
+    //nanoTime the voice was paused, -1 while it plays
+    private final long[] voicePausedAt;
+
+    /**
+     * @param voices the number of sounds that can play at once, at most
+     * MAX_VOICES
+     */
+    public SoundVoicePool(int voices) {
+        voices = Math.max(1, Math.min(voices, MAX_VOICES));
+        voiceHandle = new int[voices];
+        voiceId = new long[voices];
+        voicePriority = new int[voices];
+        voiceVolume = new float[voices];
+        voiceStart = new long[voices];
+        voiceEnd = new long[voices];
+        generation = new int[voices];
+        voicePausedAt = new long[voices];
+        Arrays.fill(voiceHandle, -1);
+        Arrays.fill(voicePausedAt, -1);
+    }
+
+    /**
+     * @param name the sound file name
+     * @return the handle of the sound, the same for every call with the name
+     */
+    public int getHandle(String name) {
+        Integer id = handleIds.get(name);
+        if (null != id) {
+            return id;
+        }
+        if (handles == names.length) {
+            int size = handles * 2;
+            names = Arrays.copyOf(names, size);
+            sounds = Arrays.copyOf(sounds, size);
+            durations = Arrays.copyOf(durations, size);
+            priorities = Arrays.copyOf(priorities, size);
+            maxVoices = Arrays.copyOf(maxVoices, size);
+        }
+        names[handles] = name;
+        maxVoices[handles] = voiceHandle.length;
+        handleIds.put(name, handles);
+        return handles++;
+    }
+
+    public boolean isHandle(int handle) {
+        return handle >= 0 && handle < handles;
+    }
+
+    public String getName(int handle) {
+        return isHandle(handle) ? names[handle] : null;
+    }
+
+    /**
+     * @param handle
+     * @return the resolved sound, null until setSound is called
+     */
+    public Sound getSound(int handle) {
+        return isHandle(handle) ? sounds[handle] : null;
+    }
+
+    /**
+     * @param handle
+     * @param sound
+     * @param duration the length of the sound in nanoseconds, 0 when unknown
+     */
+    public void setSound(int handle, Sound sound, long duration) {
+        if (isHandle(handle)) {
+            sounds[handle] = sound;
+            durations[handle] = duration > 0 ? duration : DEFAULT_DURATION;
+        }
+    }
+
+    /**
+     * @param handle
+     * @param priority voices of a higher priority are never stolen by this
+     * sound
+     */
+    public void setPriority(int handle, int priority) {
+        if (isHandle(handle)) {
+            priorities[handle] = priority;
+        }
+    }
+
+    /**
+     * @param handle
+     * @param max the number of voices the sound can use at once
+     */
+    public void setMaxVoices(int handle, int max) {
+        if (isHandle(handle)) {
+            maxVoices[handle] = Math.max(1, Math.min(max, voiceHandle.length));
+        }
+    }
+
+    /**
+     * Plays a resolved sound on a free or stolen voice.
+     *
+     * @param handle
+     * @param volume
+     * @param pitch
+     * @param pan
+     * @return the voice id, -1 when the sound was not played
+     */
+    public int play(int handle, float volume, float pitch, float pan) {
+        if (!isHandle(handle) || null == sounds[handle]) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        int free = -1;
+        int same = 0;
+        int oldestSame = -1;
+        int weakest = -1;
+        for (int v = 0; v < voiceHandle.length; v++) {
+            if (isEnded(v, now)) {
+                voiceHandle[v] = -1;
+            }
+            if (voiceHandle[v] < 0) {
+                if (free < 0) {
+                    free = v;
+                }
+                continue;
+            }
+            if (voiceHandle[v] == handle) {
+                same++;
+                if (oldestSame < 0 || voiceStart[v] < voiceStart[oldestSame]) {
+                    oldestSame = v;
+                }
+            }
+            if (voicePriority[v] <= priorities[handle] && (weakest < 0 || isWeaker(v, weakest))) {
+                weakest = v;
+            }
+        }
+        int v;
+        if (same >= maxVoices[handle]) {
+            v = oldestSame;
+        } else if (free >= 0) {
+            v = free;
+        } else if (weakest >= 0) {
+            v = weakest;
+        } else {
+            return -1;
+        }
+        stopVoice(v);
+        long id = sounds[handle].play(volume, pitch, pan);
+        if (id < 0) {
+            return -1;
+        }
+        voiceHandle[v] = handle;
+        voiceId[v] = id;
+        voicePriority[v] = priorities[handle];
+        voiceVolume[v] = volume;
+        voiceStart[v] = now;
+        voiceEnd[v] = now + (long) (durations[handle] / Math.max(pitch, 0.01f));
+        voicePausedAt[v] = -1;
+        generation[v] = (generation[v] + 1) & 0x7FFFFF;
+        return generation[v] << 8 | v;
+    }
+
+    //paused voices never end on their own
+    private boolean isEnded(int v, long now) {
+        return voiceHandle[v] >= 0 && voicePausedAt[v] < 0 && voiceEnd[v] <= now;
+    }
+
+    //lower priority first, then the quieter, then the older voice
+    private boolean isWeaker(int a, int b) {
+        if (voicePriority[a] != voicePriority[b]) {
+            return voicePriority[a] < voicePriority[b];
+        }
+        if (voiceVolume[a] != voiceVolume[b]) {
+            return voiceVolume[a] < voiceVolume[b];
+        }
+        return voiceStart[a] < voiceStart[b];
+    }
+
+    /**
+     * Stops a voice returned by play, unless it was stolen since.
+     *
+     * @param voice
+     */
+    public void stop(int voice) {
+        int v = voice & 0xFF;
+        if (voice >= 0 && v < voiceHandle.length && generation[v] == voice >>> 8) {
+            stopVoice(v);
+        }
+    }
+
+    private void stopVoice(int v) {
+        if (voiceHandle[v] >= 0) {
+            sounds[voiceHandle[v]].stop(voiceId[v]);
+            voiceHandle[v] = -1;
+        }
+    }
+
+    public void stopAll() {
+        for (int v = 0; v < voiceHandle.length; v++) {
+            stopVoice(v);
+        }
+    }
+
+    /**
+     * Pauses every playing voice. Sounds played while paused play normally.
+     */
+    public void pauseAll() {
+        long now = System.nanoTime();
+        for (int v = 0; v < voiceHandle.length; v++) {
+            if (isEnded(v, now)) {
+                voiceHandle[v] = -1;
+            } else if (voiceHandle[v] >= 0 && voicePausedAt[v] < 0) {
+                sounds[voiceHandle[v]].pause(voiceId[v]);
+                voicePausedAt[v] = now;
+            }
+        }
+    }
+
+    /**
+     * Resumes the voices paused by pauseAll, their end is moved by the time
+     * they were paused.
+     */
+    public void resumeAll() {
+        long now = System.nanoTime();
+        for (int v = 0; v < voiceHandle.length; v++) {
+            if (voiceHandle[v] >= 0 && voicePausedAt[v] >= 0) {
+                voiceEnd[v] += now - voicePausedAt[v];
+                voicePausedAt[v] = -1;
+                sounds[voiceHandle[v]].resume(voiceId[v]);
+            }
+        }
+    }
+
+    /**
+     * @param sound
+     * @return true while a voice plays the sound or holds it paused
+     */
+    public boolean isPlaying(Sound sound) {
+        long now = System.nanoTime();
+        for (int v = 0; v < voiceHandle.length; v++) {
+            if (voiceHandle[v] >= 0 && sounds[voiceHandle[v]] == sound && !isEnded(v, now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops a sound that is being disposed, its handles resolve again on the
+     * next play.
+     *
+     * @param sound
+     */
+    public void forget(Sound sound) {
+        for (int v = 0; v < voiceHandle.length; v++) {
+            if (voiceHandle[v] >= 0 && sounds[voiceHandle[v]] == sound) {
+                voiceHandle[v] = -1;
+            }
+        }
+        for (int h = 0; h < handles; h++) {
+            if (sounds[h] == sound) {
+                sounds[h] = null;
+            }
+        }
+    }
+
+    /**
+     * Stops every voice and drops the resolved sounds, the handles stay
+     * valid.
+     */
+    public void reset() {
+        stopAll();
+        Arrays.fill(sounds, null);
+    }
+
+    /**
+     * Reads the length of a wav, ogg or mp3 file from its headers. The mp3
+     * length is estimated from the bit rate of the first frame.
+     *
+     * @param path
+     * @return the length in nanoseconds, 0 when it can not be read
+     */
+    public static long readDuration(String path) {
+        try (RandomAccessFile in = new RandomAccessFile(path, "r")) {
+            String lower = path.toLowerCase();
+            double seconds;
+            if (lower.endsWith(".wav")) {
+                seconds = readWavSeconds(in);
+            } else if (lower.endsWith(".ogg")) {
+                seconds = readOggSeconds(in);
+            } else {
+                seconds = readMp3Seconds(in);
+            }
+            return (long) (seconds * 1_000_000_000L);
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(SoundVoicePool.class.getName()).log(Level.FINE, "Unable to read the length of: " + path, ex);
+            return 0;
+        }
+    }
+
+    private static double readWavSeconds(RandomAccessFile in) throws IOException {
+        long byteRate = 0;
+        long offset = 12;
+        while (offset + 8 <= in.length()) {
+            in.seek(offset);
+            byte[] id = new byte[4];
+            in.readFully(id);
+            long size = Integer.toUnsignedLong(Integer.reverseBytes(in.readInt()));
+            String chunk = new String(id, StandardCharsets.US_ASCII);
+            if (chunk.equals("fmt ")) {
+                in.skipBytes(8);
+                byteRate = Integer.toUnsignedLong(Integer.reverseBytes(in.readInt()));
+            } else if (chunk.equals("data")) {
+                return byteRate > 0 ? (double) Math.min(size, in.length() - offset - 8) / byteRate : 0;
+            }
+            offset += 8 + size + (size & 1);
+        }
+        return 0;
+    }
+
+    //the granule position of the last page in samples over the sample rate
+    private static double readOggSeconds(RandomAccessFile in) throws IOException {
+        byte[] head = new byte[(int) Math.min(in.length(), 4096)];
+        in.readFully(head);
+        int vorbis = indexOf(head, "\u0001vorbis".getBytes(StandardCharsets.ISO_8859_1), 0, false);
+        if (vorbis < 0 || vorbis + 16 > head.length) {
+            return 0;
+        }
+        long rate = readIntLE(head, vorbis + 12) & 0xFFFFFFFFL;
+        byte[] tail = new byte[(int) Math.min(in.length(), 65536)];
+        in.seek(in.length() - tail.length);
+        in.readFully(tail);
+        int page = indexOf(tail, "OggS".getBytes(StandardCharsets.ISO_8859_1), tail.length - 14, true);
+        if (rate == 0 || page < 0) {
+            return 0;
+        }
+        long granule = (readIntLE(tail, page + 6) & 0xFFFFFFFFL) | (long) readIntLE(tail, page + 10) << 32;
+        return (double) granule / rate;
+    }
+
+    private static final int[] MPEG1_L3_KBPS = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] MPEG2_L3_KBPS = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+
+    private static double readMp3Seconds(RandomAccessFile in) throws IOException {
+        byte[] head = new byte[(int) Math.min(in.length(), 8192)];
+        in.readFully(head);
+        int start = 0;
+        //an ID3v2 tag has a syncsafe size
+        if (head.length >= 10 && head[0] == 'I' && head[1] == 'D' && head[2] == '3') {
+            start = 10 + ((head[6] & 0x7F) << 21 | (head[7] & 0x7F) << 14 | (head[8] & 0x7F) << 7 | (head[9] & 0x7F));
+            head = new byte[(int) Math.max(0, Math.min(in.length() - start, 8192))];
+            in.seek(start);
+            in.readFully(head);
+        }
+        for (int i = 0; i + 3 < head.length; i++) {
+            if ((head[i] & 0xFF) == 0xFF && (head[i + 1] & 0xE0) == 0xE0) {
+                boolean mpeg1 = (head[i + 1] & 0x18) == 0x18;
+                int index = (head[i + 2] & 0xF0) >> 4;
+                if (index == 0 || index == 15) {
+                    continue;
+                }
+                int kbps = mpeg1 ? MPEG1_L3_KBPS[index] : MPEG2_L3_KBPS[index];
+                return (in.length() - start - i) * 8.0 / (kbps * 1000.0);
+            }
+        }
+        return 0;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from, boolean backwards) {
+        int step = backwards ? -1 : 1;
+        for (int i = from; i >= 0 && i + pattern.length <= data.length; i += step) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int readIntLE(byte[] data, int at) {
+        return (data[at] & 0xFF) | (data[at + 1] & 0xFF) << 8 | (data[at + 2] & 0xFF) << 16 | (data[at + 3] & 0xFF) << 24;
+    }
+}
@@ -15,16 +15,22 @@
  */
 package leikr.loaders;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import leikr.GameRuntime;
+import leikr.managers.PixelManager;
 import leikr.screens.EngineScreen;
 import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.assets.AssetManager;
 import org.mini2Dx.core.assets.loader.TextureLoader;
 import org.mini2Dx.core.files.LocalFileHandleResolver;
+import org.mini2Dx.core.graphics.Pixmap;
+import org.mini2Dx.core.graphics.PixmapFormat;
 import org.mini2Dx.core.graphics.Sprite;
-import org.mini2Dx.core.graphics.SpriteSheet;
 import org.mini2Dx.core.graphics.Texture;
 
 /**
@@ -36,13 +42,29 @@ public class SpriteLoader {
     AssetManager assetManager;
     TextureLoader assetLoader;
 
-    SpriteSheet spriteBank;
-    SpriteSheet spriteBank16;
-    SpriteSheet spriteBank32;
-    SpriteSheet spriteBank64;
+    /*
+    Sprite banks.
+    The sheet is split into 8, 16, 32 and 64 pixel sprites. All four banks
+    share one flat table, bank n starts at bankStart[n]. Sprites are created
+    the first time they are drawn. The sheet is usually packed into an atlas
+    page, sheetX and sheetY give its place on the page.
+     */
+    static final int BANKS = 4;
+    Texture sheet;
+    int sheetX;
+    int sheetY;
+    Sprite[] sprites;
+    final int[] bankStart = new int[BANKS + 1];
+    final int[] bankColumns = new int[BANKS];
 
     String rootPath;
 
+    //colors outside of the palette named in the warning of an indexed sheet
+    private static final int MAX_LOGGED_COLORS = 16;
+    //palette indexed copy of the sheet, see palette_sprites
+    boolean paletteIndexed;
+    Texture indexedSheet;
+
     private static SpriteLoader instance;
 
     private SpriteLoader() {
@@ -50,15 +72,26 @@ public class SpriteLoader {
     }
 
     public static SpriteLoader getSpriteLoader() {
+        return getSpriteLoader(true);
+    }
+
+    /**
+     * @param reload when false the sprite sheets already loaded are kept, so
+     * a code only reload does not read the sheets from disk again.
+     * @return the SpriteLoader instance
+     */
+    public static SpriteLoader getSpriteLoader(boolean reload) {
         if (instance == null) {
             instance = new SpriteLoader();
         }
+        if (!reload && null != instance.sheet) {
+            return instance;
+        }
         if (Mdx.files.local(GameRuntime.getProgramPath() + "/Sprites/Sprites.png").exists()) {
             instance.disposeSprites();
 
             instance.resetSpriteLoader();
-            instance.loadSpriteSheets();
-            instance.addSpritesToSpriteBank();
+            instance.addAtlasSpritesToSpriteBank();
         } else {
             Logger.getLogger(SpriteLoader.class.getName()).log(Level.WARNING, "No sprites found for: {0}", GameRuntime.getProgramPath());
         }
@@ -67,6 +100,8 @@ public class SpriteLoader {
     }
 
     private void resetSpriteLoader() {
+        EngineLoader engineLoader = EngineLoader.getEngineLoader(false);
+        paletteIndexed = null != engineLoader.cp && engineLoader.cp.PALETTE_SPRITES;
         rootPath = GameRuntime.getProgramPath() + "/Sprites/Sprites.png";
         assetLoader = new TextureLoader();
         assetManager = new AssetManager(new LocalFileHandleResolver());
@@ -78,46 +113,123 @@ public class SpriteLoader {
         assetManager.finishLoading();
     }
 
+    private void addAtlasSpritesToSpriteBank() {
+        if (!paletteIndexed) {
+            AtlasLoader atlas = AtlasLoader.getAtlasLoader();
+            atlas.load();
+            AtlasLoader.AtlasEntry e = atlas.getEntry(AtlasLoader.SPRITES);
+            if (null != e) {
+                setSheet(e.page, e.x, e.y, e.width, e.height);
+                return;
+            }
+        }
+        loadSpriteSheets();
+        addSpritesToSpriteBank();
+    }
+
     private void addSpritesToSpriteBank() {
-        spriteBank = new SpriteSheet(assetManager.get(rootPath, Texture.class), 8, 8);
-        spriteBank16 = new SpriteSheet(assetManager.get(rootPath, Texture.class), 16, 16);
-        spriteBank32 = new SpriteSheet(assetManager.get(rootPath, Texture.class), 32, 32);
-        spriteBank64 = new SpriteSheet(assetManager.get(rootPath, Texture.class), 64, 64);
+        Texture t = assetManager.get(rootPath, Texture.class);
+        if (paletteIndexed) {
+            t = createIndexedSheet();
+        }
+        setSheet(t, 0, 0, t.getWidth(), t.getHeight());
+    }
+
+    private void setSheet(Texture t, int x, int y, int width, int height) {
+        sheet = t;
+        sheetX = x;
+        sheetY = y;
+        for (int size = 0; size < BANKS; size++) {
+            int cell = getCellSize(size);
+            bankColumns[size] = width / cell;
+            bankStart[size + 1] = bankStart[size] + bankColumns[size] * (height / cell);
+        }
+        sprites = new Sprite[bankStart[BANKS]];
+    }
+
+    private static int getCellSize(int size) {
+        return 8 << size;
+    }
+
+    /**
+     * Converts the sprite sheet to palette ids. Each pixel stores the id of
+     * the closest palette color in the red channel and keeps its alpha, the
+     * palette shader resolves the id when drawing. Colors that are not in the
+     * palette are logged, since they are drawn with a different color.
+     */
+    private Texture createIndexedSheet() {
+        Pixmap source = Mdx.graphics.newPixmap(Mdx.files.local(rootPath));
+        Pixmap indexed = Mdx.graphics.newPixmap(source.getWidth(), source.getHeight(), PixmapFormat.RGBA8888);
+        PixelManager palette = PixelManager.getPixelManager();
+        HashMap<Integer, Integer> ids = new HashMap<>();
+        List<String> snapped = new ArrayList<>();
+        ByteBuffer buffer = indexed.getPixels();
+        buffer.position(0);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                int c = source.getPixel(x, y);
+                int id = ids.computeIfAbsent(c, k -> {
+                    if (!palette.isPaletteColor(k)) {
+                        snapped.add(String.format("#%06X", k >>> 8));
+                    }
+                    return palette.findPaletteIndex(k);
+                });
+                buffer.put((byte) id).put((byte) 0).put((byte) 0).put((byte) c);
+            }
+        }
+        buffer.position(0);
+        if (!snapped.isEmpty()) {
+            Logger.getLogger(SpriteLoader.class.getName()).log(Level.WARNING, "{0} has {1} colors outside of the palette, drawn with the closest palette color: {2}",
+                    new Object[]{rootPath, snapped.size(), String.join(", ", snapped.subList(0, Math.min(snapped.size(), MAX_LOGGED_COLORS)))});
+        }
+        if (null != indexedSheet) {
+            indexedSheet.dispose();
+        }
+        indexedSheet = Mdx.graphics.newTexture(indexed);
+        source.dispose();
+        indexed.dispose();
+        return indexedSheet;
+    }
+
+    /**
+     * @return true when the sprites are palette indexed and must be drawn
+     * with the palette shader
+     */
+    public boolean isPaletteIndexed() {
+        return paletteIndexed && null != indexedSheet;
     }
 
     /**
-     * Get a sprite from one of the 4 banks.
+     * Get a sprite from one of the 4 banks. Sizes outside of 0 to 3 use the
+     * 8x8 bank.
      *
      * If the id is outside of the index range of a bank, the error screen will
-     * be invoked with the message in the catch.
-     *
-     * If a localized message exists, it will append it.
-     *
-     * The first sprite in default bank is returned to prevent followup errors
-     * in the EngineScreen render method.
+     * be invoked and the first sprite in default bank is returned to prevent
+     * followup errors in the EngineScreen render method.
      *
      * @param id The id of the sprite to return
      * @param size Which bank size to index
      * @return The sprite given the ID and size
      */
     public Sprite getSprite(int id, int size) {
-        try {
-            switch (size) {
-                case 0:
-                default:
-                    return spriteBank.getSprite(id);
-                case 1:
-                    return spriteBank16.getSprite(id);
-                case 2:
-                    return spriteBank32.getSprite(id);
-                case 3:
-                    return spriteBank64.getSprite(id);
-            }
-        } catch (Exception ex) {
-            EngineScreen.errorEngine("Error in program `render` method. Sprite index out of bounds. " + (ex.getLocalizedMessage() != null ? ex.getLocalizedMessage() : ""));
-            Logger.getLogger(SpriteLoader.class.getName()).log(Level.SEVERE, null, ex);
-            return spriteBank.getSprite(0);
+        if (size < 0 || size >= BANKS) {
+            size = 0;
+        }
+        int index = bankStart[size] + id;
+        if (id < 0 || index >= bankStart[size + 1]) {
+            EngineScreen.errorEngine("Error in program `render` method. Sprite index out of bounds. Sprite " + id + " of size " + size + " does not exist.");
+            Logger.getLogger(SpriteLoader.class.getName()).log(Level.SEVERE, "Sprite index out of bounds: {0}", id);
+            size = 0;
+            index = 0;
         }
+        Sprite sprite = sprites[index];
+        if (null == sprite) {
+            int cell = getCellSize(size);
+            int frame = index - bankStart[size];
+            sprite = new Sprite(sheet, sheetX + (frame % bankColumns[size]) * cell, sheetY + (frame / bankColumns[size]) * cell, cell, cell);
+            sprites[index] = sprite;
+        }
+        return sprite;
     }
 
     public void loadManualSpritesheets(String programName) {
@@ -137,10 +249,16 @@ public class SpriteLoader {
     }
 
     public void disposeSprites() {
+        sheet = null;
+        sprites = null;
         if (null != assetManager) {
             assetManager.clearAssetLoaders();
             assetManager.dispose();
         }
+        if (null != indexedSheet) {
+            indexedSheet.dispose();
+            indexedSheet = null;
+        }
     }
 
 }
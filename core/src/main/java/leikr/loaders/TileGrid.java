@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.mini2Dx.tiled.Layer;
+import org.mini2Dx.tiled.LayerType;
+import org.mini2Dx.tiled.Tile;
+import org.mini2Dx.tiled.TileLayer;
+import org.mini2Dx.tiled.TiledMap;
+
+/**
+ * A flat copy of the tile ids of every tile layer of a map, so tile lookups
+ * are array reads instead of walking the map and its tilesets.
+ *
+ * The grid holds the raw cell ids of the layers. The id returned to programs
+ * and the properties of a tile are looked up per cell id in small tables that
+ * are filled the first time a cell id is seen.
+ *
+ * @author tor
+ */
+public class TileGrid {
+
+    //properties that can be looked up, one bit each
+    public static final int MAX_PROPERTIES = 64;
+
+    private final TiledMap map;
+    private final int width;
+    private final int height;
+    //row by row cell ids per layer, null for layers without tiles
+    private final int[][] cells;
+
+    //per cell id: the program tile id, the Tile and its property bits
+    private int[] tileIds = new int[0];
+    private Tile[] tiles = new Tile[0];
+    private long[] propertyBits = new long[0];
+    private boolean[] known = new boolean[0];
+    private final HashMap<String, Integer> properties = new HashMap<>();
+
+    public TileGrid(TiledMap map) {
+        this.map = map;
+        width = map.getWidth();
+        height = map.getHeight();
+        List<Layer> layers = map.getLayers();
+        cells = new int[layers.size()][];
+        for (int l = 0; l < layers.size(); l++) {
+            if (layers.get(l).getLayerType() != LayerType.TILE) {
+                continue;
+            }
+            int[] grid = new int[width * height];
+            TileLayer layer = map.getTileLayer(l);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int cell = layer.getTileId(x, y);
+                    grid[y * width + x] = cell;
+                    learn(cell, x, y, l);
+                }
+            }
+            cells[l] = grid;
+        }
+    }
+
+    //fills the tables for a cell id, using a cell of the map that holds it
+    private void learn(int cell, int x, int y, int layer) {
+        if (cell < 0 || (cell < known.length && known[cell])) {
+            return;
+        }
+        if (cell >= known.length) {
+            int size = Math.max(cell + 1, known.length * 2);
+            tileIds = Arrays.copyOf(tileIds, size);
+            tiles = Arrays.copyOf(tiles, size);
+            propertyBits = Arrays.copyOf(propertyBits, size);
+            known = Arrays.copyOf(known, size);
+        }
+        Tile tile = map.getTile(x, y, layer);
+        known[cell] = true;
+        tiles[cell] = tile;
+        tileIds[cell] = null == tile ? -1 : tile.getTileId(1);
+        long bits = 0;
+        if (null != tile) {
+            for (HashMap.Entry<String, Integer> e : properties.entrySet()) {
+                if (tile.containsProperty(e.getKey())) {
+                    bits |= 1L << e.getValue();
+                }
+            }
+        }
+        propertyBits[cell] = bits;
+    }
+
+    private boolean inGrid(int x, int y, int layer) {
+        return x >= 0 && y >= 0 && x < width && y < height && layer >= 0 && layer < cells.length && null != cells[layer];
+    }
+
+    private int getCell(int x, int y, int layer) {
+        return inGrid(x, y, layer) ? cells[layer][y * width + x] : -1;
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @param layer
+     * @return the tile id, -1 for empty cells and cells outside of the map
+     */
+    public int getTile(int x, int y, int layer) {
+        int cell = getCell(x, y, layer);
+        return cell < 0 || cell >= known.length || !known[cell] ? -1 : tileIds[cell];
+    }
+
+    /**
+     * Reads a block of tile ids row by row.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param layer
+     * @param out receives w * h ids, a new array is used when it is too small
+     * @return the array holding the ids
+     */
+    public int[] getTiles(int x, int y, int w, int h, int layer, int[] out) {
+        w = Math.max(w, 0);
+        h = Math.max(h, 0);
+        if (null == out || out.length < w * h) {
+            out = new int[w * h];
+        }
+        for (int j = 0; j < h; j++) {
+            for (int i = 0; i < w; i++) {
+                out[j * w + i] = getTile(x + i, y + j, layer);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Re-reads one cell after it was changed on the map.
+     *
+     * @param x
+     * @param y
+     * @param layer
+     */
+    public void update(int x, int y, int layer) {
+        if (!inGrid(x, y, layer)) {
+            return;
+        }
+        int cell = map.getTileLayer(layer).getTileId(x, y);
+        cells[layer][y * width + x] = cell;
+        learn(cell, x, y, layer);
+    }
+
+    /**
+     * @param property name of a tile property set in the tileset
+     * @return the bit of the property, -1 when too many properties are used
+     */
+    public int getPropertyBit(String property) {
+        Integer bit = properties.get(property);
+        if (null != bit) {
+            return bit;
+        }
+        if (properties.size() == MAX_PROPERTIES) {
+            return -1;
+        }
+        bit = properties.size();
+        properties.put(property, bit);
+        for (int cell = 0; cell < known.length; cell++) {
+            if (known[cell] && null != tiles[cell] && tiles[cell].containsProperty(property)) {
+                propertyBits[cell] |= 1L << bit;
+            }
+        }
+        return bit;
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @param layer
+     * @return the property bits of the tile, see getPropertyBit
+     */
+    public long getPropertyBits(int x, int y, int layer) {
+        int cell = getCell(x, y, layer);
+        return cell < 0 || cell >= known.length ? 0 : propertyBits[cell];
+    }
+
+    /**
+     * @param property
+     * @param x
+     * @param y
+     * @param layer
+     * @return true when the tile has the property
+     */
+    public boolean hasProperty(String property, int x, int y, int layer) {
+        int bit = getPropertyBit(property);
+        if (bit < 0) {
+            int cell = getCell(x, y, layer);
+            return cell >= 0 && cell < known.length && null != tiles[cell] && tiles[cell].containsProperty(property);
+        }
+        return (getPropertyBits(x, y, layer) & (1L << bit)) != 0;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import org.mini2Dx.core.Graphics;
+import org.mini2Dx.tiled.LayerType;
+import org.mini2Dx.tiled.Tile;
+import org.mini2Dx.tiled.TiledMap;
+
+/**
+ * A MapSource over a mini2Dx TiledMap.
+ *
+ * @author tor
+ */
+class TiledMapSource implements MapSource {
+
+    private final TiledMap map;
+
+    TiledMapSource(TiledMap map) {
+        this.map = map;
+    }
+
+    @Override
+    public int getWidth() {
+        return map.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return map.getHeight();
+    }
+
+    @Override
+    public int getTileWidth() {
+        return map.getTileWidth();
+    }
+
+    @Override
+    public int getTileHeight() {
+        return map.getTileHeight();
+    }
+
+    @Override
+    public int getLayerCount() {
+        return map.getLayers().size();
+    }
+
+    @Override
+    public boolean isTileLayer(int layer) {
+        return layer >= 0 && layer < getLayerCount() && map.getLayers().get(layer).getLayerType() == LayerType.TILE;
+    }
+
+    @Override
+    public boolean isLayerVisible(int layer) {
+        return map.getLayers().get(layer).isVisible();
+    }
+
+    @Override
+    public boolean isAnimated(int x, int y, int layer) {
+        Tile tile = map.getTile(x, y, layer);
+        return null != tile && tile.isAnimated();
+    }
+
+    @Override
+    public void drawLayer(Graphics g, int x, int y, int sx, int sy, int w, int h, int layer) {
+        map.draw(g, x, y, sx, sy, w, h, layer);
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.loaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads a Tiled .tmx map without building a TiledMap. Tile layer data is
+ * handed to a TileSink one row at a time, so the whole map never has to be in
+ * memory.
+ *
+ * Supports orthogonal, finite maps with csv, base64, zlib, gzip or xml tile
+ * data, and tilesets made from one image, embedded or in a .tsx file. Tile
+ * flip flags are dropped from the ids, hasFlippedTiles tells if there were
+ * any.
+ *
+ * @author tor
+ */
+public class TmxReader {
+
+    private static final int GID_MASK = 0x1FFFFFFF;
+
+    /**
+     * Receives the rows of the tile layers in order.
+     */
+    public interface TileSink {
+
+        /**
+         * @param layer index of the layer among all layers
+         * @param y the row
+         * @param gids the tile ids of the row, reused for the next row
+         * @throws IOException
+         */
+        void row(int layer, int y, int[] gids) throws IOException;
+    }
+
+    public static class TilesetInfo {
+
+        public int firstGid;
+        public int tileWidth;
+        public int tileHeight;
+        public int spacing;
+        public int margin;
+        public int columns;
+        public int tileCount;
+        //path of the image, relative to the working directory
+        public String image;
+        //by local tile id
+        public final HashMap<Integer, HashMap<String, String>> properties = new HashMap<>();
+        //by local tile id, pairs of local tile id and duration in ms
+        public final HashMap<Integer, int[]> animations = new HashMap<>();
+    }
+
+    public static class LayerInfo {
+
+        public String name;
+        public boolean visible = true;
+        public boolean tiles;
+        public boolean image;
+    }
+
+    public static class ObjectInfo {
+
+        public int layer;
+        public int id;
+        public int gid;
+        public String name;
+        public String type;
+        public float x;
+        public float y;
+        public float width;
+        public float height;
+    }
+
+    public int width;
+    public int height;
+    public int tileWidth;
+    public int tileHeight;
+    public final List<TilesetInfo> tilesets = new ArrayList<>();
+    public final List<LayerInfo> layers = new ArrayList<>();
+    public final List<ObjectInfo> objects = new ArrayList<>();
+    private boolean flipped;
+
+    /**
+     * Reads a map.
+     *
+     * @param tmx path of the map
+     * @param sink receives the tile rows, null to skip the tile data
+     * @throws IOException
+     */
+    public void read(Path tmx, TileSink sink) throws IOException {
+        try (InputStream in = Files.newInputStream(tmx)) {
+            XMLStreamReader r = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            while (r.hasNext()) {
+                if (r.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (r.getLocalName()) {
+                    case "map":
+                        if ("1".equals(r.getAttributeValue(null, "infinite"))) {
+                            throw new IOException("Infinite maps are not supported: " + tmx);
+                        }
+                        width = intAttribute(r, "width", 0);
+                        height = intAttribute(r, "height", 0);
+                        tileWidth = intAttribute(r, "tilewidth", 0);
+                        tileHeight = intAttribute(r, "tileheight", 0);
+                        break;
+                    case "tileset":
+                        readTileset(r, tmx);
+                        break;
+                    case "layer":
+                        readLayer(r, sink);
+                        break;
+                    case "objectgroup":
+                        readObjects(r);
+                        break;
+                    case "imagelayer":
+                        addLayer(r, false).image = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            r.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Unable to read map: " + tmx, ex);
+        }
+    }
+
+    /**
+     * Lists the files a map is made from besides the .tmx, the .tsx tilesets
+     * and every tileset, tile and image layer image.
+     *
+     * @param tmx path of the map
+     * @return the paths of the files
+     * @throws IOException
+     */
+    public static List<String> readDependencies(Path tmx) throws IOException {
+        List<String> files = new ArrayList<>();
+        readDependencies(tmx, files);
+        return files;
+    }
+
+    private static void readDependencies(Path file, List<String> files) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader r = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            while (r.hasNext()) {
+                if (r.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String source = r.getAttributeValue(null, "source");
+                if (null == source) {
+                    continue;
+                }
+                Path path = file.resolveSibling(source).normalize();
+                if (r.getLocalName().equals("image")) {
+                    files.add(path.toString());
+                } else if (r.getLocalName().equals("tileset")) {
+                    files.add(path.toString());
+                    readDependencies(path, files);
+                }
+            }
+            r.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Unable to read map: " + file, ex);
+        }
+    }
+
+    /**
+     * @return true when a tile layer used the flip flags of Tiled
+     */
+    public boolean hasFlippedTiles() {
+        return flipped;
+    }
+
+    //drops the flip flags of a tile layer id
+    private int gid(long value) {
+        if ((value & ~GID_MASK) != 0) {
+            flipped = true;
+        }
+        return (int) (value & GID_MASK);
+    }
+
+    private static int intAttribute(XMLStreamReader r, String name, int fallback) {
+        String value = r.getAttributeValue(null, name);
+        return null == value ? fallback : Integer.parseInt(value.trim());
+    }
+
+    private static long gidAttribute(XMLStreamReader r) {
+        String value = r.getAttributeValue(null, "gid");
+        return null == value ? 0 : Long.parseLong(value.trim());
+    }
+
+    private static float floatAttribute(XMLStreamReader r, String name) {
+        String value = r.getAttributeValue(null, name);
+        return null == value ? 0 : Float.parseFloat(value.trim());
+    }
+
+    private LayerInfo addLayer(XMLStreamReader r, boolean tiles) {
+        LayerInfo layer = new LayerInfo();
+        layer.name = r.getAttributeValue(null, "name");
+        layer.visible = !"0".equals(r.getAttributeValue(null, "visible"));
+        layer.tiles = tiles;
+        layers.add(layer);
+        return layer;
+    }
+
+    private void readTileset(XMLStreamReader r, Path tmx) throws IOException, XMLStreamException {
+        TilesetInfo tileset = new TilesetInfo();
+        tileset.firstGid = intAttribute(r, "firstgid", 1);
+        String source = r.getAttributeValue(null, "source");
+        if (null != source) {
+            Path tsx = tmx.resolveSibling(source).normalize();
+            try (InputStream in = Files.newInputStream(tsx)) {
+                XMLStreamReader t = XMLInputFactory.newInstance().createXMLStreamReader(in);
+                while (t.hasNext()) {
+                    if (t.next() == XMLStreamConstants.START_ELEMENT && t.getLocalName().equals("tileset")) {
+                        readTilesetBody(t, tileset, tsx);
+                        break;
+                    }
+                }
+                t.close();
+            }
+        } else {
+            readTilesetBody(r, tileset, tmx);
+        }
+        tilesets.add(tileset);
+    }
+
+    //reads from the tileset start element to its end element
+    private void readTilesetBody(XMLStreamReader r, TilesetInfo tileset, Path base) throws XMLStreamException {
+        tileset.tileWidth = intAttribute(r, "tilewidth", tileWidth);
+        tileset.tileHeight = intAttribute(r, "tileheight", tileHeight);
+        tileset.spacing = intAttribute(r, "spacing", 0);
+        tileset.margin = intAttribute(r, "margin", 0);
+        tileset.columns = intAttribute(r, "columns", 0);
+        tileset.tileCount = intAttribute(r, "tilecount", 0);
+        int tile = -1;
+        List<Integer> frames = new ArrayList<>();
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if (r.getLocalName().equals("tileset")) {
+                    return;
+                }
+                if (r.getLocalName().equals("animation") && tile >= 0 && !frames.isEmpty()) {
+                    tileset.animations.put(tile, frames.stream().mapToInt(Integer::intValue).toArray());
+                    frames.clear();
+                }
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (r.getLocalName()) {
+                case "image":
+                    if (tile < 0) {
+                        tileset.image = base.resolveSibling(r.getAttributeValue(null, "source")).normalize().toString();
+                        int imageWidth = intAttribute(r, "width", 0);
+                        if (tileset.columns == 0 && tileset.tileWidth > 0) {
+                            tileset.columns = (imageWidth - 2 * tileset.margin + tileset.spacing) / (tileset.tileWidth + tileset.spacing);
+                        }
+                    }
+                    break;
+                case "tile":
+                    tile = intAttribute(r, "id", -1);
+                    break;
+                case "property":
+                    if (tile >= 0) {
+                        tileset.properties.computeIfAbsent(tile, k -> new HashMap<>())
+                                .put(r.getAttributeValue(null, "name"), r.getAttributeValue(null, "value"));
+                    }
+                    break;
+                case "frame":
+                    frames.add(intAttribute(r, "tileid", 0));
+                    frames.add(intAttribute(r, "duration", 100));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void readLayer(XMLStreamReader r, TileSink sink) throws IOException, XMLStreamException {
+        int index = layers.size();
+        addLayer(r, true);
+        int[] row = new int[width];
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.END_ELEMENT && r.getLocalName().equals("layer")) {
+                return;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals("data")) {
+                String encoding = r.getAttributeValue(null, "encoding");
+                String compression = r.getAttributeValue(null, "compression");
+                if (null == sink) {
+                    skipElement(r);
+                } else if ("csv".equals(encoding)) {
+                    readCsv(r, index, row, sink);
+                } else if ("base64".equals(encoding)) {
+                    readBase64(r, compression, index, row, sink);
+                } else {
+                    readXmlTiles(r, index, row, sink);
+                }
+            }
+        }
+    }
+
+    private void skipElement(XMLStreamReader r) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    //parses the numbers as the text arrives, one row at a time
+    private void readCsv(XMLStreamReader r, int layer, int[] row, TileSink sink) throws IOException, XMLStreamException {
+        long value = 0;
+        boolean digits = false;
+        int count = 0;
+        int y = 0;
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+            if (event != XMLStreamConstants.CHARACTERS) {
+                continue;
+            }
+            char[] text = r.getTextCharacters();
+            int end = r.getTextStart() + r.getTextLength();
+            for (int i = r.getTextStart(); i < end; i++) {
+                char c = text[i];
+                if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    digits = true;
+                } else if (digits) {
+                    row[count++] = gid(value);
+                    value = 0;
+                    digits = false;
+                    if (count == width) {
+                        sink.row(layer, y++, row);
+                        count = 0;
+                    }
+                }
+            }
+        }
+        if (digits && y < height) {
+            row[count++] = gid(value);
+            if (count == width) {
+                sink.row(layer, y, row);
+            }
+        }
+    }
+
+    private void readBase64(XMLStreamReader r, String compression, int layer, int[] row, TileSink sink) throws IOException, XMLStreamException {
+        String text = r.getElementText().trim();
+        InputStream in = Base64.getMimeDecoder().wrap(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+        if ("zlib".equals(compression)) {
+            in = new InflaterInputStream(in);
+        } else if ("gzip".equals(compression)) {
+            in = new GZIPInputStream(in);
+        } else if (null != compression) {
+            throw new IOException("Unsupported tile layer compression: " + compression);
+        }
+        try (DataInputStream data = new DataInputStream(in)) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    row[x] = gid(Integer.toUnsignedLong(Integer.reverseBytes(data.readInt())));
+                }
+                sink.row(layer, y, row);
+            }
+        }
+    }
+
+    private void readXmlTiles(XMLStreamReader r, int layer, int[] row, TileSink sink) throws IOException, XMLStreamException {
+        int count = 0;
+        int y = 0;
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.END_ELEMENT && r.getLocalName().equals("data")) {
+                return;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals("tile")) {
+                row[count++] = gid(gidAttribute(r));
+                if (count == width) {
+                    sink.row(layer, y++, row);
+                    count = 0;
+                }
+            }
+        }
+    }
+
+    private void readObjects(XMLStreamReader r) throws XMLStreamException {
+        int index = layers.size();
+        addLayer(r, false);
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.END_ELEMENT && r.getLocalName().equals("objectgroup")) {
+                return;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals("object")) {
+                ObjectInfo object = new ObjectInfo();
+                object.layer = index;
+                object.id = intAttribute(r, "id", 0);
+                object.gid = (int) (gidAttribute(r) & GID_MASK);
+                object.name = r.getAttributeValue(null, "name");
+                object.type = r.getAttributeValue(null, "type");
+                object.x = floatAttribute(r, "x");
+                object.y = floatAttribute(r, "y");
+                object.width = floatAttribute(r, "width");
+                object.height = floatAttribute(r, "height");
+                objects.add(object);
+            }
+        }
+    }
+}
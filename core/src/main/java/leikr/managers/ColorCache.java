@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.managers;
+
+import java.util.HashMap;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.graphics.Color;
+import org.mini2Dx.core.graphics.Colors;
+
+/**
+ * Interns Color objects by their "r,g,b" string or packed RGBA8888 value so
+ * the String and packed color API does not parse and allocate a Color on
+ * every call.
+ *
+ * The returned Colors are shared and must not be modified, so they are only
+ * used inside the engine. Colors handed to programs are copies.
+ *
+ * @author tor
+ */
+public class ColorCache {
+
+    //programs that build color strings every frame would grow the cache forever
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final HashMap<String, Color> STRING_COLORS = new HashMap<>();
+    private static final HashMap<Integer, Color> PACKED_COLORS = new HashMap<>();
+
+    private ColorCache() {
+    }
+
+    /**
+     * @param rgb color String, ex: "255,255,255"
+     * @return the shared Color for the String
+     */
+    public static Color getColor(String rgb) {
+        Color c = STRING_COLORS.get(rgb);
+        if (null == c) {
+            if (STRING_COLORS.size() >= MAX_ENTRIES) {
+                STRING_COLORS.clear();
+            }
+            c = Colors.rgbToColor(rgb);
+            STRING_COLORS.put(rgb, c);
+        }
+        return c;
+    }
+
+    /**
+     * @param rgba packed RGBA8888 color, ex: 0xFF0000FF for red
+     * @return the shared Color for the packed value
+     */
+    public static Color getColor(int rgba) {
+        Color c = PACKED_COLORS.get(rgba);
+        if (null == c) {
+            if (PACKED_COLORS.size() >= MAX_ENTRIES) {
+                PACKED_COLORS.clear();
+            }
+            c = Mdx.graphics.newColor(rgba);
+            PACKED_COLORS.put(rgba, c);
+        }
+        return c;
+    }
+
+    /**
+     * Packs color components into an RGBA8888 int.
+     *
+     * @param r red 0-255
+     * @param g green 0-255
+     * @param b blue 0-255
+     * @param a alpha 0-255
+     * @return the packed color
+     */
+    public static int pack(int r, int g, int b, int a) {
+        return (r & 0xFF) << 24 | (g & 0xFF) << 16 | (b & 0xFF) << 8 | (a & 0xFF);
+    }
+}
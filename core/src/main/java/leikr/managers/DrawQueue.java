@@ -0,0 +1,598 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.managers;
+
+import java.util.Arrays;
+import org.mini2Dx.core.Graphics;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.graphics.Color;
+import org.mini2Dx.core.graphics.Sprite;
+import org.mini2Dx.core.graphics.TextureRegion;
+
+/**
+ * Records the draw calls of a frame and submits them once at the end of the
+ * frame.
+ *
+ * Commands are kept in primitive arrays that are reused every frame, colors
+ * as packed RGBA8888 ints, so a Color the program changes later in the frame
+ * does not change the commands recorded before. Before
+ * submission they are sorted by layer. Within a layer a command is moved back
+ * to the last batch with its texture and view state, but only over commands
+ * it does not overlap, so painter's order holds wherever draws overlap. The
+ * view state is the clip and camera in use when the command was recorded.
+ * Text, maps and the pixel layer have no known bounds and are never moved
+ * over.
+ *
+ * Enabled with the draw_queue program property.
+ *
+ * @author tor
+ */
+public class DrawQueue {
+
+    static final int SPRITE = 0;
+    static final int REGION = 1;
+    static final int TEXT = 2;
+    static final int MAP = 3;
+    static final int FILL_RECT = 4;
+    static final int FILL_CIRCLE = 5;
+    static final int PIXEL_LAYER = 6;
+
+    //sprite flags
+    static final int FLIP_X = 1;
+    static final int FLIP_Y = 2;
+    //text flag when no align is given
+    static final int NO_ALIGN = Integer.MIN_VALUE;
+    //ints kept per map command: variant, x, y, sx, sy, w, h, layer
+    static final int MAP_INTS = 8;
+
+    //sort key: layer | order 28 bits
+    private static final int MAX_COMMANDS = 1 << 28;
+    private static final long ORDER_MASK = MAX_COMMANDS - 1;
+    //batches a command is moved back over at most to join one with its texture
+    private static final int MAX_BATCH_SCAN = 32;
+
+    //groups for draws that do not use a single texture
+    private static final Object FONT = new Object();
+    private static final Object SHAPES = new Object();
+    private static final Object MAPS = new Object();
+
+    private int count;
+    private int[] type;
+    private int[] layer;
+    private int[] state;
+    private int[] group;
+    private int[] flags;
+    private float[] x;
+    private float[] y;
+    private float[] w;
+    private float[] h;
+    private float[] rotation;
+    private float[] scaleX;
+    private float[] scaleY;
+    private Object[] ref;
+    //RGBA8888 colors of text and shapes, and the tint when tinted is set
+    private int[] color;
+    private int[] tint;
+    private boolean[] tinted;
+    private long[] keys;
+
+    //filled in submit: left, top, right and bottom of each command, and the
+    //next command of its batch
+    private float[] bounds;
+    private int[] next;
+    //per batch: texture group, view state, first and last command, bounds
+    private int[] batchGroup;
+    private int[] batchState;
+    private int[] batchFirst;
+    private int[] batchLast;
+    private float[] batchBounds;
+
+    private int[] ints = new int[MAP_INTS * 16];
+    private int intCount;
+
+    //view states: clip x, y, w, h, camera x, y, zoom. A NaN clip width is no clip
+    private static final int STATE_FLOATS = 7;
+    private float[] states = new float[STATE_FLOATS * 16];
+    private int stateCount;
+
+    private Object[] groups = new Object[16];
+    private int groupCount;
+
+    private int currentLayer;
+    private int currentState;
+    private int currentTint;
+    private boolean currentTinted;
+
+    //reused to hand the recorded colors to the Graphics
+    private Color drawColor;
+    private Color tintColor;
+
+    public DrawQueue() {
+        allocate(1024);
+        reset(0, 0, 1);
+    }
+
+    private void allocate(int size) {
+        type = new int[size];
+        layer = new int[size];
+        state = new int[size];
+        group = new int[size];
+        flags = new int[size];
+        x = new float[size];
+        y = new float[size];
+        w = new float[size];
+        h = new float[size];
+        rotation = new float[size];
+        scaleX = new float[size];
+        scaleY = new float[size];
+        ref = new Object[size];
+        color = new int[size];
+        tint = new int[size];
+        tinted = new boolean[size];
+        keys = new long[size];
+        bounds = new float[size * 4];
+        next = new int[size];
+        batchGroup = new int[size];
+        batchState = new int[size];
+        batchFirst = new int[size];
+        batchLast = new int[size];
+        batchBounds = new float[size * 4];
+    }
+
+    private void grow() {
+        int size = type.length * 2;
+        type = Arrays.copyOf(type, size);
+        layer = Arrays.copyOf(layer, size);
+        state = Arrays.copyOf(state, size);
+        group = Arrays.copyOf(group, size);
+        flags = Arrays.copyOf(flags, size);
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        w = Arrays.copyOf(w, size);
+        h = Arrays.copyOf(h, size);
+        rotation = Arrays.copyOf(rotation, size);
+        scaleX = Arrays.copyOf(scaleX, size);
+        scaleY = Arrays.copyOf(scaleY, size);
+        ref = Arrays.copyOf(ref, size);
+        color = Arrays.copyOf(color, size);
+        tint = Arrays.copyOf(tint, size);
+        tinted = Arrays.copyOf(tinted, size);
+        keys = Arrays.copyOf(keys, size);
+        bounds = Arrays.copyOf(bounds, size * 4);
+        next = Arrays.copyOf(next, size);
+        batchGroup = Arrays.copyOf(batchGroup, size);
+        batchState = Arrays.copyOf(batchState, size);
+        batchFirst = Arrays.copyOf(batchFirst, size);
+        batchLast = Arrays.copyOf(batchLast, size);
+        batchBounds = Arrays.copyOf(batchBounds, size * 4);
+    }
+
+    /**
+     * Drops the commands of the last frame and resets the layer, clip and
+     * tint state.
+     *
+     * @param cameraX camera the frame starts with
+     * @param cameraY
+     * @param zoom
+     */
+    public void reset(float cameraX, float cameraY, float zoom) {
+        Arrays.fill(ref, 0, count, null);
+        Arrays.fill(groups, 0, groupCount, null);
+        count = 0;
+        intCount = 0;
+        groupCount = 0;
+        currentLayer = 0;
+        currentTinted = false;
+        stateCount = 0;
+        currentState = 0;
+        pushState(0, 0, Float.NaN, 0, cameraX, cameraY, zoom);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    //start state methods
+    public void setLayer(int z) {
+        currentLayer = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, z));
+    }
+
+    public int getLayer() {
+        return currentLayer;
+    }
+
+    private void pushState(float cx, float cy, float cw, float ch, float cameraX, float cameraY, float zoom) {
+        if ((stateCount + 1) * STATE_FLOATS > states.length) {
+            states = Arrays.copyOf(states, states.length * 2);
+        }
+        int i = stateCount * STATE_FLOATS;
+        states[i] = cx;
+        states[i + 1] = cy;
+        states[i + 2] = cw;
+        states[i + 3] = ch;
+        states[i + 4] = cameraX;
+        states[i + 5] = cameraY;
+        states[i + 6] = zoom;
+        currentState = stateCount++;
+    }
+
+    public void setClip(float cx, float cy, float cw, float ch) {
+        int c = currentState * STATE_FLOATS;
+        pushState(cx, cy, cw, ch, states[c + 4], states[c + 5], states[c + 6]);
+    }
+
+    public void removeClip() {
+        int c = currentState * STATE_FLOATS;
+        pushState(0, 0, Float.NaN, 0, states[c + 4], states[c + 5], states[c + 6]);
+    }
+
+    public void setCamera(float cameraX, float cameraY, float zoom) {
+        int c = currentState * STATE_FLOATS;
+        pushState(states[c], states[c + 1], states[c + 2], states[c + 3], cameraX, cameraY, zoom);
+    }
+
+    /**
+     * @param c the tint of the following draws, null for none
+     */
+    public void setTint(Color c) {
+        currentTinted = null != c;
+        currentTint = currentTinted ? c.rgba8888() : 0;
+    }
+    //end state methods
+
+    //start record methods
+    private int add(int kind, Object groupRef) {
+        if (count == MAX_COMMANDS) {
+            return -1;
+        }
+        if (count == type.length) {
+            grow();
+        }
+        int i = count++;
+        type[i] = kind;
+        layer[i] = currentLayer;
+        state[i] = currentState;
+        tint[i] = currentTint;
+        tinted[i] = currentTinted;
+        group[i] = getGroup(groupRef);
+        return i;
+    }
+
+    //groups are numbered in order of first use, a frame only uses a few
+    private int getGroup(Object groupRef) {
+        for (int i = 0; i < groupCount; i++) {
+            if (groups[i] == groupRef) {
+                return i;
+            }
+        }
+        if (groupCount == groups.length) {
+            groups = Arrays.copyOf(groups, groups.length * 2);
+        }
+        groups[groupCount] = groupRef;
+        return groupCount++;
+    }
+
+    public void addSprite(Sprite s, float sx, float sy, float degr, float scX, float scY, boolean flipX, boolean flipY) {
+        int i = add(SPRITE, s.getTexture());
+        if (i < 0) {
+            return;
+        }
+        ref[i] = s;
+        x[i] = sx;
+        y[i] = sy;
+        rotation[i] = degr;
+        scaleX[i] = scX;
+        scaleY[i] = scY;
+        flags[i] = (flipX ? FLIP_X : 0) | (flipY ? FLIP_Y : 0);
+    }
+
+    /**
+     * @param r
+     * @param rx
+     * @param ry
+     * @param rw NaN to draw at the region size
+     * @param rh
+     */
+    public void addRegion(TextureRegion r, float rx, float ry, float rw, float rh) {
+        int i = add(REGION, r.getTexture());
+        if (i < 0) {
+            return;
+        }
+        ref[i] = r;
+        x[i] = rx;
+        y[i] = ry;
+        w[i] = rw;
+        h[i] = rh;
+    }
+
+    /**
+     * @param c
+     * @param text
+     * @param tx
+     * @param ty
+     * @param width NaN when no width is given
+     * @param align NO_ALIGN when no align is given
+     */
+    public void addText(Color c, String text, float tx, float ty, float width, int align) {
+        int i = add(TEXT, FONT);
+        if (i < 0) {
+            return;
+        }
+        ref[i] = text;
+        color[i] = c.rgba8888();
+        x[i] = tx;
+        y[i] = ty;
+        w[i] = width;
+        flags[i] = align;
+    }
+
+    public void addMap(Object map, int variant, int mx, int my, int sx, int sy, int mw, int mh, int mapLayer) {
+        int i = add(MAP, null == map ? MAPS : map);
+        if (i < 0) {
+            return;
+        }
+        if (intCount + MAP_INTS > ints.length) {
+            ints = Arrays.copyOf(ints, ints.length * 2);
+        }
+        flags[i] = intCount;
+        ints[intCount++] = variant;
+        ints[intCount++] = mx;
+        ints[intCount++] = my;
+        ints[intCount++] = sx;
+        ints[intCount++] = sy;
+        ints[intCount++] = mw;
+        ints[intCount++] = mh;
+        ints[intCount++] = mapLayer;
+    }
+
+    public void addFillRect(Color c, float rx, float ry, float rw, float rh) {
+        int i = add(FILL_RECT, SHAPES);
+        if (i < 0) {
+            return;
+        }
+        color[i] = c.rgba8888();
+        x[i] = rx;
+        y[i] = ry;
+        w[i] = rw;
+        h[i] = rh;
+    }
+
+    public void addFillCircle(Color c, float cx, float cy, float r) {
+        int i = add(FILL_CIRCLE, SHAPES);
+        if (i < 0) {
+            return;
+        }
+        color[i] = c.rgba8888();
+        x[i] = cx;
+        y[i] = cy;
+        w[i] = r;
+    }
+
+    public void addPixelLayer(PixelLayer pixelLayer) {
+        int i = add(PIXEL_LAYER, pixelLayer);
+        if (i < 0) {
+            return;
+        }
+        ref[i] = pixelLayer;
+    }
+    //end record methods
+
+    /**
+     * Sorts the recorded commands into batches and draws them. Clip, camera
+     * and tint are only changed between commands that differ. Clip and tint
+     * are removed again at the end, the camera is left to the screen manager.
+     *
+     * @param g
+     * @param screen draws the commands the same way as without the queue
+     */
+    public void submit(Graphics g, LeikrScreenManager screen) {
+        for (int i = 0; i < count; i++) {
+            keys[i] = (long) layer[i] << 32 | i;
+        }
+        Arrays.sort(keys, 0, count);
+        int batches = 0;
+        int layerStart = 0;
+        for (int k = 0; k < count; k++) {
+            int i = (int) (keys[k] & ORDER_MASK);
+            if (k > 0 && layer[i] != layer[(int) (keys[k - 1] & ORDER_MASK)]) {
+                layerStart = batches;
+            }
+            setBounds(i);
+            next[i] = -1;
+            int b = findBatch(i, layerStart, batches);
+            if (b < 0) {
+                b = batches++;
+                batchGroup[b] = group[i];
+                batchState[b] = state[i];
+                batchFirst[b] = i;
+                System.arraycopy(bounds, i * 4, batchBounds, b * 4, 4);
+            } else {
+                next[batchLast[b]] = i;
+                int c = b * 4;
+                int d = i * 4;
+                batchBounds[c] = Math.min(batchBounds[c], bounds[d]);
+                batchBounds[c + 1] = Math.min(batchBounds[c + 1], bounds[d + 1]);
+                batchBounds[c + 2] = Math.max(batchBounds[c + 2], bounds[d + 2]);
+                batchBounds[c + 3] = Math.max(batchBounds[c + 3], bounds[d + 3]);
+            }
+            batchLast[b] = i;
+        }
+        //draw order, batch by batch
+        int n = 0;
+        for (int b = 0; b < batches; b++) {
+            for (int i = batchFirst[b]; i >= 0; i = next[i]) {
+                keys[n++] = i;
+            }
+        }
+
+        if (null == drawColor) {
+            drawColor = Mdx.graphics.newColor(0);
+            tintColor = Mdx.graphics.newColor(0);
+        }
+        int activeState = -1;
+        boolean clipped = false;
+        boolean activeTinted = false;
+        int activeTint = 0;
+        for (int k = 0; k < count; k++) {
+            int i = (int) keys[k];
+            if (state[i] != activeState) {
+                int c = state[i] * STATE_FLOATS;
+                if (activeState < 0 || !sameCamera(activeState * STATE_FLOATS, c)) {
+                    screen.applyCamera(states[c + 4], states[c + 5], states[c + 6]);
+                }
+                if (activeState < 0 || !sameClip(activeState * STATE_FLOATS, c)) {
+                    if (clipped) {
+                        g.removeClip();
+                    }
+                    clipped = !Float.isNaN(states[c + 2]);
+                    if (clipped) {
+                        g.setClip(states[c], states[c + 1], states[c + 2], states[c + 3]);
+                    }
+                }
+                activeState = state[i];
+            }
+            if (tinted[i] != activeTinted || tinted[i] && tint[i] != activeTint) {
+                activeTinted = tinted[i];
+                activeTint = tint[i];
+                if (activeTinted) {
+                    g.setTint(setColor(tintColor, activeTint));
+                } else {
+                    g.removeTint();
+                }
+            }
+            switch (type[i]) {
+                case SPRITE:
+                    screen.drawSpriteNow((Sprite) ref[i], x[i], y[i], rotation[i], scaleX[i], scaleY[i], (flags[i] & FLIP_X) != 0, (flags[i] & FLIP_Y) != 0);
+                    break;
+                case REGION:
+                    screen.drawRegionNow((TextureRegion) ref[i], x[i], y[i], w[i], h[i]);
+                    break;
+                case TEXT:
+                    screen.drawStringNow(setColor(drawColor, color[i]), (String) ref[i], x[i], y[i], w[i], flags[i]);
+                    break;
+                case MAP:
+                    int m = flags[i];
+                    screen.drawMapNow(ints[m], ints[m + 1], ints[m + 2], ints[m + 3], ints[m + 4], ints[m + 5], ints[m + 6], ints[m + 7]);
+                    break;
+                case FILL_RECT:
+                    screen.fillRectNow(setColor(drawColor, color[i]), x[i], y[i], w[i], h[i]);
+                    break;
+                case FILL_CIRCLE:
+                    screen.fillCircleNow(setColor(drawColor, color[i]), x[i], y[i], (int) w[i]);
+                    break;
+                case PIXEL_LAYER:
+                    screen.drawPixelLayerNow((PixelLayer) ref[i]);
+                    break;
+                default:
+            }
+        }
+        if (activeTinted) {
+            g.removeTint();
+        }
+        if (clipped) {
+            g.removeClip();
+        }
+        int c = currentState * STATE_FLOATS;
+        reset(states[c + 4], states[c + 5], states[c + 6]);
+    }
+
+    /**
+     * Finds the batch a command joins: the last one with its texture and view
+     * state that it can be moved back to without passing over a command it
+     * overlaps. Batches with another view state are not passed over, their
+     * bounds are in other coordinates.
+     *
+     * @return the batch, -1 to start a new one
+     */
+    private int findBatch(int i, int from, int to) {
+        for (int b = to - 1; b >= from && b >= to - MAX_BATCH_SCAN; b--) {
+            if (batchState[b] != state[i]) {
+                return -1;
+            }
+            if (batchGroup[b] == group[i]) {
+                return b;
+            }
+            int c = b * 4;
+            int d = i * 4;
+            if (bounds[d] < batchBounds[c + 2] && batchBounds[c] < bounds[d + 2]
+                    && bounds[d + 1] < batchBounds[c + 3] && batchBounds[c + 1] < bounds[d + 3]) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    //the area a command draws to, unbounded when it is not known
+    private void setBounds(int i) {
+        int d = i * 4;
+        float bw;
+        float bh;
+        switch (type[i]) {
+            case SPRITE:
+                Sprite s = (Sprite) ref[i];
+                float sw = s.getWidth();
+                float sh = s.getHeight();
+                //scaled and rotated around the center, like the culling
+                float hw = Math.abs(sw * scaleX[i]) / 2;
+                float hh = Math.abs(sh * scaleY[i]) / 2;
+                if (rotation[i] != 0) {
+                    hw = (float) Math.sqrt(hw * hw + hh * hh);
+                    hh = hw;
+                }
+                setBounds(d, x[i] + sw / 2 - hw, y[i] + sh / 2 - hh, hw * 2, hh * 2);
+                return;
+            case REGION:
+                TextureRegion region = (TextureRegion) ref[i];
+                bw = Float.isNaN(w[i]) ? region.getRegionWidth() : w[i];
+                bh = Float.isNaN(h[i]) ? region.getRegionHeight() : h[i];
+                setBounds(d, x[i], y[i], bw, bh);
+                return;
+            case FILL_RECT:
+                setBounds(d, x[i], y[i], w[i], h[i]);
+                return;
+            case FILL_CIRCLE:
+                setBounds(d, x[i] - w[i], y[i] - w[i], w[i] * 2, w[i] * 2);
+                return;
+            default:
+                bounds[d] = Float.NEGATIVE_INFINITY;
+                bounds[d + 1] = Float.NEGATIVE_INFINITY;
+                bounds[d + 2] = Float.POSITIVE_INFINITY;
+                bounds[d + 3] = Float.POSITIVE_INFINITY;
+        }
+    }
+
+    private void setBounds(int d, float bx, float by, float bw, float bh) {
+        bounds[d] = Math.min(bx, bx + bw);
+        bounds[d + 1] = Math.min(by, by + bh);
+        bounds[d + 2] = Math.max(bx, bx + bw);
+        bounds[d + 3] = Math.max(by, by + bh);
+    }
+
+    private static Color setColor(Color c, int rgba) {
+        return c.set((rgba >>> 24) / 255f, ((rgba >>> 16) & 0xFF) / 255f, ((rgba >>> 8) & 0xFF) / 255f, (rgba & 0xFF) / 255f);
+    }
+
+    private boolean sameCamera(int a, int b) {
+        return states[a + 4] == states[b + 4] && states[a + 5] == states[b + 5] && states[a + 6] == states[b + 6];
+    }
+
+    private boolean sameClip(int a, int b) {
+        if (Float.isNaN(states[a + 2]) || Float.isNaN(states[b + 2])) {
+            return Float.isNaN(states[a + 2]) && Float.isNaN(states[b + 2]);
+        }
+        return states[a] == states[b] && states[a + 1] == states[b + 1] && states[a + 2] == states[b + 2] && states[a + 3] == states[b + 3];
+    }
+}
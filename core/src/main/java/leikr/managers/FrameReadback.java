@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.managers;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.BufferUtils;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Keeps a copy of the last completed frame so reading pixels does not stall
+ * the GPU for every call.
+ *
+ * Once active, the frame buffer is read back a single time at the end of
+ * each frame into a reused buffer. Reads during the next frame are served
+ * from the copy of the previous frame, reads before the first copy return 0.
+ * The copies stop after IDLE_FRAMES frames without a read, the next read
+ * starts them again.
+ *
+ * @author tor
+ */
+public class FrameReadback {
+
+    //frames copied without a read before the copies stop
+    public static final int IDLE_FRAMES = 60;
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer buffer;
+    //RGBA8888 pixels of the last completed frame, row 0 is the top of the screen
+    private final int[] frame;
+    private boolean active;
+    private int idleFrames;
+
+    public FrameReadback(int width, int height) {
+        this.width = width;
+        this.height = height;
+        buffer = BufferUtils.newByteBuffer(width * height * 4);
+        frame = new int[width * height];
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Starts reading back frames from the end of the current frame, or keeps
+     * it going. Called for every read. Safe to call at any time, nothing is
+     * read until capture.
+     */
+    public void activate() {
+        idleFrames = 0;
+        if (!active) {
+            active = true;
+            Arrays.fill(frame, 0);
+        }
+    }
+
+    public void deactivate() {
+        active = false;
+    }
+
+    /**
+     * Copies the bound frame buffer. Called once at the end of each frame,
+     * while the screen frame buffer is bound. Deactivates instead when
+     * nothing was read for IDLE_FRAMES frames.
+     */
+    public void capture() {
+        if (++idleFrames > IDLE_FRAMES) {
+            deactivate();
+            return;
+        }
+        buffer.clear();
+        Gdx.gl.glPixelStorei(GL20.GL_PACK_ALIGNMENT, 1);
+        Gdx.gl.glReadPixels(0, 0, width, height, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, buffer);
+        //GL rows start at the bottom, the screen starts at the top
+        for (int row = 0; row < height; row++) {
+            int src = row * width * 4;
+            int dst = (height - 1 - row) * width;
+            for (int col = 0; col < width; col++) {
+                int i = src + col * 4;
+                frame[dst + col] = (buffer.get(i) & 0xFF) << 24
+                        | (buffer.get(i + 1) & 0xFF) << 16
+                        | (buffer.get(i + 2) & 0xFF) << 8
+                        | 0xFF;
+            }
+        }
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @return the RGBA8888 color of the pixel in the last frame, 0 outside of
+     * the screen
+     */
+    public int getPixel(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return 0;
+        }
+        return frame[y * width + x];
+    }
+
+    /**
+     * Copies a region of the last frame row by row into out. Pixels outside
+     * of the screen are 0.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param out array of at least w * h ints
+     */
+    public void getPixels(int x, int y, int w, int h, int[] out) {
+        int x0 = Math.max(x, 0);
+        int x1 = Math.min(x + w, width);
+        for (int row = 0; row < h; row++) {
+            int sy = y + row;
+            Arrays.fill(out, row * w, row * w + w, 0);
+            if (sy >= 0 && sy < height && x0 < x1) {
+                System.arraycopy(frame, sy * width + x0, out, row * w + (x0 - x), x1 - x0);
+            }
+        }
+    }
+}
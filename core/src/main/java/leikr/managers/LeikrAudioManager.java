@@ -29,19 +29,27 @@ public class LeikrAudioManager {
     private static LeikrAudioManager instance;
 
     private LeikrAudioManager() {
-        audioLoader = AudioLoader.getAudioLoader();
     }
 
     public static LeikrAudioManager getLeikrAudioManager() {
+        return getLeikrAudioManager(true);
+    }
+
+    /**
+     * @param reloadAssets false to keep the sounds and music that are already
+     * loaded
+     * @return the LeikrAudioManager instance
+     */
+    public static LeikrAudioManager getLeikrAudioManager(boolean reloadAssets) {
         if (instance == null) {
             instance = new LeikrAudioManager();
         }
-        instance.resetLeikrAudioManager();
+        instance.resetLeikrAudioManager(reloadAssets);
         return instance;
     }
 
-    private void resetLeikrAudioManager() {
-        audioLoader = AudioLoader.getAudioLoader();
+    private void resetLeikrAudioManager(boolean reloadAssets) {
+        audioLoader = AudioLoader.getAudioLoader(reloadAssets);
     }
 
     //START loaded audio methods
@@ -57,6 +65,38 @@ public class LeikrAudioManager {
         audioLoader.stopSound();
     }
 
+    public final int getSoundHandle(String name) {
+        return audioLoader.getSoundHandle(name);
+    }
+
+    public final int playSound(int handle) {
+        return audioLoader.playSound(handle, 1f, 1f, 0f);
+    }
+
+    public final int playSound(int handle, float vol, float pit, float pan) {
+        return audioLoader.playSound(handle, vol, pit, pan);
+    }
+
+    public final int playSound(int handle, double vol, double pit, double pan) {
+        return audioLoader.playSound(handle, (float) vol, (float) pit, (float) pan);
+    }
+
+    public final int playSound(int handle, BigDecimal vol, BigDecimal pit, BigDecimal pan) {
+        return audioLoader.playSound(handle, vol.floatValue(), pit.floatValue(), pan.floatValue());
+    }
+
+    public final void stopVoice(int voice) {
+        audioLoader.stopVoice(voice);
+    }
+
+    public final void setSoundPriority(int handle, int priority) {
+        audioLoader.setSoundPriority(handle, priority);
+    }
+
+    public final void setSoundMaxVoices(int handle, int max) {
+        audioLoader.setSoundMaxVoices(handle, max);
+    }
+
     public final void playMusic(String name) {
         audioLoader.playMusic(name);
     }
@@ -83,6 +123,10 @@ public class LeikrAudioManager {
     //END loaded audio methods
 
     //Engine methods
+    public void stopAudio() {
+        audioLoader.stopAudio();
+    }
+
     public void dispose() {
         audioLoader.disposeAudioLoader();
     }
@@ -16,11 +16,17 @@
 package leikr.managers;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.graphics.GL20;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import leikr.GameRuntime;
+import leikr.loaders.AssetBudget;
+import leikr.loaders.AtlasLoader;
+import leikr.loaders.EngineLoader;
 import leikr.loaders.ImageLoader;
+import leikr.loaders.ImagePixelCache;
+import leikr.loaders.MapLoadHandle;
 import leikr.loaders.MapLoader;
 import leikr.loaders.SpriteLoader;
 import org.mini2Dx.core.Graphics;
@@ -28,11 +34,11 @@ import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.graphics.Color;
 import org.mini2Dx.core.graphics.Colors;
 import org.mini2Dx.core.graphics.FrameBuffer;
-import org.mini2Dx.core.graphics.Pixmap;
+import org.mini2Dx.core.graphics.Shader;
 import org.mini2Dx.core.graphics.Sprite;
+import org.mini2Dx.core.graphics.TextureRegion;
 import org.mini2Dx.core.graphics.viewport.FitViewport;
 import org.mini2Dx.core.graphics.viewport.Viewport;
-import org.mini2Dx.gdx.math.MathUtils;
 
 /**
  * This class is used to manage the drawing API for the Engine. It also provides
@@ -61,6 +67,46 @@ public class LeikrScreenManager {
      */
     Color bgColor;
     PixelManager pixelManager;
+    PixelLayer pixelLayer;
+    FrameReadback readback;
+    //true when the program sprites are palette indexed, see palette_sprites
+    boolean paletteSprites;
+    //true while the palette shader is set on the Graphics
+    boolean paletteActive;
+    SpanRasterizer.SpanTarget spanTarget = this::drawSpan;
+    //records the draws of a frame when draw_queue is set, null otherwise
+    DrawQueue drawQueue;
+    //private copies of the sprites drawn rotated, flipped or scaled
+    final IdentityHashMap<Sprite, Sprite> transformed = new IdentityHashMap<>();
+
+    /*
+    Camera.
+    The camera position is the world coordinate drawn at the top left of the
+    screen. Draws that miss the view, or the clip inside of it, are culled.
+     */
+    float cameraX;
+    float cameraY;
+    float cameraZoom = 1;
+    //the visible world area, updated when the camera or clip changes
+    float viewLeft;
+    float viewTop;
+    float viewRight;
+    float viewBottom;
+    //current clip, NaN clipW when there is none
+    float clipX;
+    float clipY;
+    float clipW = Float.NaN;
+    float clipH;
+    //Graphics transform before the camera is applied
+    float baseX;
+    float baseY;
+    float baseScaleX = 1;
+    float baseScaleY = 1;
+    boolean rendering;
+    int drawnCount;
+    int culledCount;
+    int lastDrawnCount;
+    int lastCulledCount;
 
     private static LeikrScreenManager instance;
 
@@ -84,19 +130,46 @@ public class LeikrScreenManager {
     }
 
     public static LeikrScreenManager getLeikrScreenManager(int mSprites) {
+        return getLeikrScreenManager(mSprites, true);
+    }
+
+    /**
+     * @param mSprites maximum allowed sprites to draw at one time
+     * @param reloadAssets false to keep the sprites, images and map that are
+     * already loaded
+     * @return the LeikrScreenManager instance
+     */
+    public static LeikrScreenManager getLeikrScreenManager(int mSprites, boolean reloadAssets) {
         if (instance == null) {
             instance = new LeikrScreenManager();
         }
-        instance.resetLeikrScreenManager(mSprites);
+        instance.resetLeikrScreenManager(mSprites, reloadAssets);
         return instance;
     }
 
-    private void resetLeikrScreenManager(int mSprites) {
+    private void resetLeikrScreenManager(int mSprites, boolean reloadAssets) {
         MAX_SPRITES = mSprites;
-        spriteLoader = SpriteLoader.getSpriteLoader();
-        imageLoader = ImageLoader.getImageLoader();
+        spriteLoader = SpriteLoader.getSpriteLoader(reloadAssets);
+        imageLoader = ImageLoader.getImageLoader(reloadAssets);
         mapLoader = MapLoader.getMapLoader();
         pixelManager = PixelManager.getPixelManager();
+        pixelManager.resetPalette();
+        paletteSprites = spriteLoader.isPaletteIndexed();
+        transformed.clear();
+        cameraX = 0;
+        cameraY = 0;
+        cameraZoom = 1;
+        clipW = Float.NaN;
+        updateView();
+        EngineLoader engineLoader = EngineLoader.getEngineLoader(false);
+        if (null != engineLoader.cp && engineLoader.cp.DRAW_QUEUE) {
+            if (null == drawQueue) {
+                drawQueue = new DrawQueue();
+            }
+            drawQueue.reset(cameraX, cameraY, cameraZoom);
+        } else {
+            drawQueue = null;
+        }
         bgColor = Colors.BLACK();
     }
 
@@ -104,25 +177,71 @@ public class LeikrScreenManager {
     public void preCreate(FrameBuffer f, FitViewport v) {
         this.frameBuffer = f;
         this.v = v;
+        if (null != readback) {
+            readback.deactivate();
+        }
     }
 
     public void preRender(Graphics g) {
         //set to 0 before drawing anything
         USED_SPRITES = 0;
         this.g = g;
+        if (paletteActive) {
+            g.clearShader();
+            paletteActive = false;
+        }
+        mapLoader.renderChunks(g, frameBuffer);
         this.g.clearContext(bgColor);
+        drawnCount = 0;
+        culledCount = 0;
+        clipW = Float.NaN;
+        updateView();
+        baseX = g.getTranslationX();
+        baseY = g.getTranslationY();
+        baseScaleX = g.getScaleX();
+        baseScaleY = g.getScaleY();
+        rendering = true;
+        if (null != drawQueue) {
+            drawQueue.reset(cameraX, cameraY, cameraZoom);
+        } else {
+            applyCamera(cameraX, cameraY, cameraZoom);
+        }
     }
 
-    public void preUpdate(float delta) {
-        if (null != mapLoader.getMap()) {
-            mapLoader.getMap().update(delta);
+    /**
+     * Runs after the Engine render method while the frame buffer is still
+     * bound. Submits the recorded draws when the draw queue is used and
+     * copies the finished frame when pixel readback is active.
+     */
+    public void postRender() {
+        if (null != drawQueue) {
+            drawQueue.submit(g, this);
+        }
+        usePalette(false);
+        if (null != readback && readback.isActive()) {
+            g.flush();
+            readback.capture();
         }
+        applyCamera(0, 0, 1);
+        rendering = false;
+        lastDrawnCount = drawnCount;
+        lastCulledCount = culledCount;
+    }
+
+    public void preUpdate(float delta) {
+        AssetBudget.getAssetBudget().nextFrame();
+        mapLoader.update(delta);
     }
 
     public void dispose() {
         spriteLoader.disposeSprites();
         imageLoader.disposeImages();
-        mapLoader.disposeMap();
+        mapLoader.disposeAll();
+        AtlasLoader.getAtlasLoader().release();
+        transformed.clear();
+        if (null != pixelLayer) {
+            pixelLayer.dispose();
+        }
     }
     //End Engine methods
 
@@ -130,23 +249,189 @@ public class LeikrScreenManager {
     public int getUsedSprites() {
         return USED_SPRITES;
     }
+
+    /**
+     * @return sprites, textures and maps drawn in the last frame
+     */
+    public int getDrawnCount() {
+        return lastDrawnCount;
+    }
+
+    /**
+     * @return sprites, textures and maps dropped in the last frame because
+     * they were outside of the view
+     */
+    public int getCulledCount() {
+        return lastCulledCount;
+    }
     //End helper methods
 
+    //start camera methods
+    /**
+     * Moves the camera. Everything drawn afterwards is offset by the camera
+     * position and scaled by the zoom. The camera is kept between frames.
+     *
+     * @param x world x drawn at the left of the screen
+     * @param y world y drawn at the top of the screen
+     * @param zoom greater than 0, 2 draws everything twice as big
+     */
+    public final void setCamera(float x, float y, float zoom) {
+        if (zoom <= 0) {
+            return;
+        }
+        cameraX = x;
+        cameraY = y;
+        cameraZoom = zoom;
+        updateView();
+        if (rendering) {
+            if (null != drawQueue) {
+                drawQueue.setCamera(x, y, zoom);
+            } else {
+                applyCamera(x, y, zoom);
+            }
+        }
+    }
+
+    public final void setCamera(double x, double y, double zoom) {
+        setCamera((float) x, (float) y, (float) zoom);
+    }
+
+    public final void setCamera(BigDecimal x, BigDecimal y, BigDecimal zoom) {
+        setCamera(x.floatValue(), y.floatValue(), zoom.floatValue());
+    }
+
+    public final void setCamera(float x, float y) {
+        setCamera(x, y, cameraZoom);
+    }
+
+    public final void setCamera(double x, double y) {
+        setCamera((float) x, (float) y, cameraZoom);
+    }
+
+    public final void setCamera(BigDecimal x, BigDecimal y) {
+        setCamera(x.floatValue(), y.floatValue(), cameraZoom);
+    }
+
+    public final void resetCamera() {
+        setCamera(0f, 0f, 1f);
+    }
+
+    public final float getCameraX() {
+        return cameraX;
+    }
+
+    public final float getCameraY() {
+        return cameraY;
+    }
+
+    public final float getCameraZoom() {
+        return cameraZoom;
+    }
+
+    /**
+     * Sets the Graphics transform for a camera, used directly and by the
+     * DrawQueue.
+     */
+    void applyCamera(float x, float y, float zoom) {
+        float tx = baseX + x;
+        float ty = baseY + y;
+        float sx = baseScaleX * zoom;
+        float sy = baseScaleY * zoom;
+        if (g.getTranslationX() == tx && g.getTranslationY() == ty && g.getScaleX() == sx && g.getScaleY() == sy) {
+            return;
+        }
+        //batched draws keep the transform they were made with
+        g.flush();
+        g.setScale(sx, sy);
+        g.setTranslation(tx, ty);
+    }
+
+    private void updateView() {
+        viewLeft = cameraX;
+        viewTop = cameraY;
+        viewRight = cameraX + GameRuntime.WIDTH / cameraZoom;
+        viewBottom = cameraY + GameRuntime.HEIGHT / cameraZoom;
+        if (!Float.isNaN(clipW)) {
+            viewLeft = Math.max(viewLeft, clipX);
+            viewTop = Math.max(viewTop, clipY);
+            viewRight = Math.min(viewRight, clipX + clipW);
+            viewBottom = Math.min(viewBottom, clipY + clipH);
+        }
+    }
+
+    /**
+     * Counts the draw as drawn or culled.
+     *
+     * @return true when any part of the area is visible
+     */
+    private boolean inView(float x, float y, float w, float h) {
+        float left = Math.min(x, x + w);
+        float top = Math.min(y, y + h);
+        if (left >= viewRight || top >= viewBottom || left + Math.abs(w) <= viewLeft || top + Math.abs(h) <= viewTop) {
+            culledCount++;
+            return false;
+        }
+        drawnCount++;
+        return true;
+    }
+    //end camera methods
+
     //Image methods
     public final void loadImages() {
         imageLoader.load();
     }
 
+    //images are atlas regions, see AtlasLoader
+    private void queueImage(TextureRegion image, float x, float y, float w, float h) {
+        boolean sized = !Float.isNaN(w);
+        if (!inView(x, y, sized ? w : image.getRegionWidth(), sized ? h : image.getRegionHeight())) {
+            return;
+        }
+        if (null != drawQueue) {
+            drawQueue.addRegion(image, x, y, w, h);
+        } else {
+            drawRegionNow(image, x, y, w, h);
+        }
+    }
+
+    public final void drawTexture(String name, float x, float y) {
+        queueImage(imageLoader.getImage(name), x, y, Float.NaN, Float.NaN);
+    }
+
+    public final void drawTexture(String name, double x, double y) {
+        drawTexture(name, (float) x, (float) y);
+    }
+
     public final void drawTexture(String name, BigDecimal x, BigDecimal y) {
-        g.drawTexture(imageLoader.getImage(name), x.floatValue(), y.floatValue());
+        drawTexture(name, x.floatValue(), y.floatValue());
+    }
+
+    public final void drawTexture(String name, float x, float y, float w, float h) {
+        queueImage(imageLoader.getImage(name), x, y, w, h);
+    }
+
+    public final void drawTexture(String name, double x, double y, double w, double h) {
+        drawTexture(name, (float) x, (float) y, (float) w, (float) h);
     }
 
     public final void drawTexture(String name, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        g.drawTexture(imageLoader.getImage(name), x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue());
+        drawTexture(name, x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue());
+    }
+
+    /**
+     * Like the Graphics drawTexture, flipv true draws the image the right way
+     * up and false upside down.
+     */
+    public final void drawTexture(String name, float x, float y, float w, float h, boolean flipv) {
+        queueImage(flipv ? imageLoader.getImage(name) : imageLoader.getFlippedImage(name), x, y, w, h);
+    }
+
+    public final void drawTexture(String name, double x, double y, double w, double h, boolean flipv) {
+        drawTexture(name, (float) x, (float) y, (float) w, (float) h, flipv);
     }
 
     public final void drawTexture(String name, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h, boolean flipv) {
-        g.drawTexture(imageLoader.getImage(name), x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue(), flipv);
+        drawTexture(name, x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue(), flipv);
     }
     //end Image methods
 
@@ -155,56 +440,285 @@ public class LeikrScreenManager {
         mapLoader.loadMap(map);
     }
 
+    public final MapLoadHandle loadMapAsync(String map) {
+        return mapLoader.loadMapAsync(map);
+    }
+
+    //drawMap variants, by the arguments they take
+    static final int MAP_ALL = 0;
+    static final int MAP_AT = 1;
+    static final int MAP_AT_LAYER = 2;
+    static final int MAP_REGION = 3;
+    static final int MAP_REGION_LAYER = 4;
+
+    /**
+     * Draws the map now, used directly and by the DrawQueue.
+     */
+    void drawMapNow(int variant, int x, int y, int sx, int sy, int w, int h, int layer) {
+        usePalette(false);
+        switch (variant) {
+            case MAP_AT:
+                mapLoader.drawMap(g, x, y);
+                break;
+            case MAP_AT_LAYER:
+                mapLoader.drawMap(g, x, y, layer);
+                break;
+            case MAP_REGION:
+                mapLoader.drawMap(g, x, y, sx, sy, w, h);
+                break;
+            case MAP_REGION_LAYER:
+                mapLoader.drawMap(g, x, y, sx, sy, w, h, layer);
+                break;
+            default:
+                mapLoader.drawMap(g);
+        }
+    }
+
+    private void queueMap(int variant, int x, int y, int sx, int sy, int w, int h, int layer) {
+        if (mapLoader.isMapLoaded() && mapLoader.getTileWidth() > 0 && mapLoader.getTileHeight() > 0) {
+            if (variant == MAP_ALL || variant == MAP_AT || variant == MAP_AT_LAYER) {
+                sx = 0;
+                sy = 0;
+                w = mapLoader.getMapWidth();
+                h = mapLoader.getMapHeight();
+                variant = variant == MAP_AT_LAYER ? MAP_REGION_LAYER : MAP_REGION;
+            }
+            //only the tiles inside of the view are drawn
+            int tw = mapLoader.getTileWidth();
+            int th = mapLoader.getTileHeight();
+            int x0 = Math.max(sx, sx + (int) Math.floor((viewLeft - x) / tw));
+            int y0 = Math.max(sy, sy + (int) Math.floor((viewTop - y) / th));
+            int x1 = Math.min(sx + w, sx + (int) Math.ceil((viewRight - x) / tw));
+            int y1 = Math.min(sy + h, sy + (int) Math.ceil((viewBottom - y) / th));
+            if (x0 >= x1 || y0 >= y1) {
+                culledCount++;
+                return;
+            }
+            drawnCount++;
+            x += (x0 - sx) * tw;
+            y += (y0 - sy) * th;
+            sx = x0;
+            sy = y0;
+            w = x1 - x0;
+            h = y1 - y0;
+        }
+        if (null != drawQueue) {
+            drawQueue.addMap(mapLoader.getMap(), variant, x, y, sx, sy, w, h, layer);
+        } else {
+            drawMapNow(variant, x, y, sx, sy, w, h, layer);
+        }
+    }
+
     public final void drawMap() {
-        mapLoader.drawMap(g);
+        queueMap(MAP_ALL, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public final void drawMap(int x, int y) {
+        queueMap(MAP_AT, x, y, 0, 0, 0, 0, 0);
+    }
+
+    public final void drawMap(float x, float y) {
+        drawMap((int) x, (int) y);
+    }
+
+    public final void drawMap(double x, double y) {
+        drawMap((int) x, (int) y);
     }
 
     public final void drawMap(BigDecimal x, BigDecimal y) {
-        mapLoader.drawMap(g, x.intValue(), y.intValue());
+        drawMap(x.intValue(), y.intValue());
+    }
+
+    public final void drawMap(int x, int y, int layer) {
+        queueMap(MAP_AT_LAYER, x, y, 0, 0, 0, 0, layer);
+    }
+
+    public final void drawMap(float x, float y, int layer) {
+        drawMap((int) x, (int) y, layer);
+    }
+
+    public final void drawMap(double x, double y, int layer) {
+        drawMap((int) x, (int) y, layer);
     }
 
     public final void drawMap(BigDecimal x, BigDecimal y, int layer) {
-        mapLoader.drawMap(g, x.intValue(), y.intValue(), layer);
+        drawMap(x.intValue(), y.intValue(), layer);
+    }
+
+    public final void drawMap(int x, int y, int sx, int sy, int w, int h) {
+        queueMap(MAP_REGION, x, y, sx, sy, w, h, 0);
+    }
+
+    public final void drawMap(float x, float y, float sx, float sy, float w, float h) {
+        drawMap((int) x, (int) y, (int) sx, (int) sy, (int) w, (int) h);
+    }
+
+    public final void drawMap(double x, double y, double sx, double sy, double w, double h) {
+        drawMap((int) x, (int) y, (int) sx, (int) sy, (int) w, (int) h);
     }
 
     public final void drawMap(BigDecimal x, BigDecimal y, BigDecimal sx, BigDecimal sy, BigDecimal w, BigDecimal h) {
-        mapLoader.drawMap(g, x.intValue(), y.intValue(), sx.intValue(), sy.intValue(), w.intValue(), h.intValue());
+        drawMap(x.intValue(), y.intValue(), sx.intValue(), sy.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void drawMap(int x, int y, int sx, int sy, int w, int h, int layer) {
+        queueMap(MAP_REGION_LAYER, x, y, sx, sy, w, h, layer);
+    }
+
+    public final void drawMap(float x, float y, float sx, float sy, float w, float h, int layer) {
+        drawMap((int) x, (int) y, (int) sx, (int) sy, (int) w, (int) h, layer);
+    }
+
+    public final void drawMap(double x, double y, double sx, double sy, double w, double h, int layer) {
+        drawMap((int) x, (int) y, (int) sx, (int) sy, (int) w, (int) h, layer);
     }
 
     public final void drawMap(BigDecimal x, BigDecimal y, BigDecimal sx, BigDecimal sy, BigDecimal w, BigDecimal h, int layer) {
-        mapLoader.drawMap(g, x.intValue(), y.intValue(), sx.intValue(), sy.intValue(), w.intValue(), h.intValue(), layer);
+        drawMap(x.intValue(), y.intValue(), sx.intValue(), sy.intValue(), w.intValue(), h.intValue(), layer);
+    }
+
+    public final int getMapTile(int x, int y) {
+        return mapLoader.getMapTile(x, y);
+    }
+
+    public final int getMapTile(float x, float y) {
+        return getMapTile((int) x, (int) y);
+    }
+
+    public final int getMapTile(double x, double y) {
+        return getMapTile((int) x, (int) y);
     }
 
     public final int getMapTile(BigDecimal x, BigDecimal y) {
-        return mapLoader.getMapTile(x.intValue(), y.intValue());
+        return getMapTile(x.intValue(), y.intValue());
+    }
+
+    public final int getMapTile(int x, int y, int layer) {
+        return mapLoader.getMapTile(x, y, layer);
+    }
+
+    public final int getMapTile(float x, float y, int layer) {
+        return getMapTile((int) x, (int) y, layer);
+    }
+
+    public final int getMapTile(double x, double y, int layer) {
+        return getMapTile((int) x, (int) y, layer);
     }
 
     public final int getMapTile(BigDecimal x, BigDecimal y, int layer) {
-        return mapLoader.getMapTile(x.intValue(), y.intValue(), layer);
+        return getMapTile(x.intValue(), y.intValue(), layer);
+    }
+
+    public final int[] getMapTiles(int x, int y, int w, int h, int[] out) {
+        return getMapTiles(x, y, w, h, 0, out);
+    }
+
+    public final int[] getMapTiles(int x, int y, int w, int h, int layer, int[] out) {
+        return mapLoader.getMapTiles(x, y, w, h, layer, out);
+    }
+
+    public final int[] getMapTiles(float x, float y, int w, int h, int layer, int[] out) {
+        return getMapTiles((int) x, (int) y, w, h, layer, out);
+    }
+
+    public final int[] getMapTiles(double x, double y, int w, int h, int layer, int[] out) {
+        return getMapTiles((int) x, (int) y, w, h, layer, out);
+    }
+
+    public final int[] getMapTiles(BigDecimal x, BigDecimal y, int w, int h, int layer, int[] out) {
+        return getMapTiles(x.intValue(), y.intValue(), w, h, layer, out);
+    }
+
+    public final boolean hasMapTileProperty(String property, int x, int y) {
+        return hasMapTileProperty(property, x, y, 0);
+    }
+
+    public final boolean hasMapTileProperty(String property, int x, int y, int layer) {
+        return mapLoader.hasMapTileProperty(property, x, y, layer);
+    }
+
+    public final boolean hasMapTileProperty(String property, float x, float y, int layer) {
+        return hasMapTileProperty(property, (int) x, (int) y, layer);
+    }
+
+    public final boolean hasMapTileProperty(String property, double x, double y, int layer) {
+        return hasMapTileProperty(property, (int) x, (int) y, layer);
+    }
+
+    public final boolean hasMapTileProperty(String property, BigDecimal x, BigDecimal y, int layer) {
+        return hasMapTileProperty(property, x.intValue(), y.intValue(), layer);
+    }
+
+    public final void setMapTile(int id, int x, int y) {
+        mapLoader.setMapTile(id, x, y);
+    }
+
+    public final void setMapTile(int id, float x, float y) {
+        setMapTile(id, (int) x, (int) y);
+    }
+
+    public final void setMapTile(int id, double x, double y) {
+        setMapTile(id, (int) x, (int) y);
     }
 
     public final void setMapTile(int id, BigDecimal x, BigDecimal y) {
-        mapLoader.setMapTile(id, x.intValue(), y.intValue());
+        setMapTile(id, x.intValue(), y.intValue());
+    }
+
+    public final void setMapTile(int id, int x, int y, int layer) {
+        mapLoader.setMapTile(id, x, y, layer);
+    }
+
+    public final void setMapTile(int id, float x, float y, int layer) {
+        setMapTile(id, (int) x, (int) y, layer);
+    }
+
+    public final void setMapTile(int id, double x, double y, int layer) {
+        setMapTile(id, (int) x, (int) y, layer);
     }
 
     public final void setMapTile(int id, BigDecimal x, BigDecimal y, int layer) {
-        mapLoader.setMapTile(id, x.intValue(), y.intValue(), layer);
+        setMapTile(id, x.intValue(), y.intValue(), layer);
+    }
+
+    public final void removeMapTile(int x, int y) {
+        mapLoader.removeMapTile(x, y);
+    }
+
+    public final void removeMapTile(float x, float y) {
+        removeMapTile((int) x, (int) y);
+    }
+
+    public final void removeMapTile(double x, double y) {
+        removeMapTile((int) x, (int) y);
     }
 
     public final void removeMapTile(BigDecimal x, BigDecimal y) {
-        mapLoader.removeMapTile(x.intValue(), y.intValue());
+        removeMapTile(x.intValue(), y.intValue());
+    }
+
+    public final void removeMapTile(int x, int y, int layer) {
+        mapLoader.removeMapTile(x, y, layer);
+    }
+
+    public final void removeMapTile(float x, float y, int layer) {
+        removeMapTile((int) x, (int) y, layer);
+    }
+
+    public final void removeMapTile(double x, double y, int layer) {
+        removeMapTile((int) x, (int) y, layer);
     }
 
     public final void removeMapTile(BigDecimal x, BigDecimal y, int layer) {
-        mapLoader.removeMapTile(x.intValue(), y.intValue(), layer);
+        removeMapTile(x.intValue(), y.intValue(), layer);
     }
 
     public final int getMapHeight() {
-        return mapLoader.getMap().getHeight();
+        return mapLoader.getMapHeight();
     }
 
     public final int getMapWidth() {
-        return mapLoader.getMap().getWidth();
+        return mapLoader.getMapWidth();
     }
     //end Map methods
 
@@ -222,168 +736,448 @@ public class LeikrScreenManager {
     }
 
     public final void bgColor(String c) {
-        bgColor = Colors.rgbToColor(c);
+        bgColor = ColorCache.getColor(c);
     }
 
     public final Color getColor(int color) {
         return pixelManager.getDrawColor(color);
     }
 
+    //the cached Colors are shared, programs get their own copy
     public final Color getColor(String color) {
-        return Colors.rgbToColor(color);
+        return ColorCache.getColor(color).copy();
     }
 
-    //end color methods
-    //text methods
-    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y) {
-        g.setColor(color);
-        g.drawString(text, x.floatValue(), y.floatValue());
+    /**
+     * Plain int colors are palette ids, packed RGBA8888 colors are resolved
+     * through this method to a Color that can be kept and passed to the Color
+     * drawing methods.
+     *
+     * @param rgba packed RGBA8888 color, ex: 0xFF0000FF for red
+     * @return a new Color
+     */
+    public final Color getColorRGBA(int rgba) {
+        return ColorCache.getColor(rgba).copy();
     }
 
-    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
-        g.setColor(color);
-        g.drawString(text, x.floatValue(), y.floatValue(), width.floatValue());
+    public final Color getColor(int r, int g, int b) {
+        return ColorCache.getColor(ColorCache.pack(r, g, b, 255)).copy();
     }
 
-    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
+    public final Color getColor(int r, int g, int b, int a) {
+        return ColorCache.getColor(ColorCache.pack(r, g, b, a)).copy();
+    }
+
+    //end color methods
+    //text methods
+    /**
+     * Draws text now, used directly and by the DrawQueue.
+     *
+     * @param color
+     * @param text
+     * @param x
+     * @param y
+     * @param width NaN when no width is given
+     * @param align DrawQueue.NO_ALIGN when no align is given
+     */
+    void drawStringNow(Color color, String text, float x, float y, float width, int align) {
+        usePalette(false);
         g.setColor(color);
-        g.drawString(text, x.floatValue(), y.floatValue(), width.floatValue(), align);
+        if (Float.isNaN(width)) {
+            g.drawString(text, x, y);
+        } else if (align == DrawQueue.NO_ALIGN) {
+            g.drawString(text, x, y, width);
+        } else {
+            g.drawString(text, x, y, width, align);
+        }
     }
 
-    public final void drawString(int color, String text, BigDecimal x, BigDecimal y) {
-        drawString(pixelManager.getDrawColor(color), text, x, y);
+    private void queueString(Color color, String text, float x, float y, float width, int align) {
+        if (null != drawQueue) {
+            drawQueue.addText(color, text, x, y, width, align);
+        } else {
+            drawStringNow(color, text, x, y, width, align);
+        }
     }
 
-    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
-        drawString(pixelManager.getDrawColor(color), text, x, y, width);
+    public final void drawString(Color color, String text, float x, float y) {
+        queueString(color, text, x, y, Float.NaN, DrawQueue.NO_ALIGN);
     }
 
-    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
-        drawString(pixelManager.getDrawColor(color), text, x, y, width, align);
+    public final void drawString(Color color, String text, double x, double y) {
+        drawString(color, text, (float) x, (float) y);
     }
 
-    public final void drawString(String color, String text, BigDecimal x, BigDecimal y) {
-        drawString(Colors.rgbToColor(color), text, x, y);
+    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y) {
+        drawString(color, text, x.floatValue(), y.floatValue());
     }
 
-    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
-        drawString(Colors.rgbToColor(color), text, x, y, width);
+    public final void drawString(Color color, String text, float x, float y, float width) {
+        queueString(color, text, x, y, width, DrawQueue.NO_ALIGN);
     }
 
-    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
-        drawString(Colors.rgbToColor(color), text, x, y, width, align);
+    public final void drawString(Color color, String text, double x, double y, double width) {
+        drawString(color, text, (float) x, (float) y, (float) width);
     }
 
-    //end drawString methods
-    //sprite helper methods.
-    private void drawSpriteRotate(int id, BigDecimal x, BigDecimal y, BigDecimal degr, int size) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        Sprite t = spriteLoader.getSprite(id, size);
-        t.rotate(degr.floatValue());
-        g.drawSprite(t, x.floatValue(), y.floatValue());
-        t.rotate(-degr.floatValue());
-        USED_SPRITES++;
+    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
+        drawString(color, text, x.floatValue(), y.floatValue(), width.floatValue());
     }
 
-    private void drawSpriteFlip(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, int size) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        Sprite t = spriteLoader.getSprite(id, size);
-        t.setFlip(flipX, flipY);
-        g.drawSprite(t, x.floatValue(), y.floatValue());
-        t.setFlip(false, false);
-        USED_SPRITES++;
+    public final void drawString(Color color, String text, float x, float y, float width, int align) {
+        queueString(color, text, x, y, width, align);
     }
 
-    //start 8x8 sprites. Default size 0 (8x8)
-    public final void sprite(int id, BigDecimal x, BigDecimal y) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        g.drawSprite(spriteLoader.getSprite(id, 0), x.floatValue(), y.floatValue());
-        USED_SPRITES++;
+    public final void drawString(Color color, String text, double x, double y, double width, int align) {
+        drawString(color, text, (float) x, (float) y, (float) width, align);
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, BigDecimal degr) {
-        sprite(id, x, y, degr, 0);
+    public final void drawString(Color color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
+        drawString(color, text, x.floatValue(), y.floatValue(), width.floatValue(), align);
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY) {
-        sprite(id, x, y, flipX, flipY, 0);
+    public final void drawString(int color, String text, float x, float y) {
+        drawString(pixelManager.getDrawColor(color), text, x, y);
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr) {
-        sprite(id, x, y, flipX, flipY, degr, 0);
+    public final void drawString(int color, String text, double x, double y) {
+        drawString(pixelManager.getDrawColor(color), text, (float) x, (float) y);
     }
-    //end 8x8 sprites
 
-    //start sizable sprites
-    public final void sprite(int id, BigDecimal x, BigDecimal y, int size) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        g.drawSprite(spriteLoader.getSprite(id, size), x.floatValue(), y.floatValue());
-        USED_SPRITES++;
+    public final void drawString(int color, String text, BigDecimal x, BigDecimal y) {
+        drawString(pixelManager.getDrawColor(color), text, x.floatValue(), y.floatValue());
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, BigDecimal degr, int size) {
-        drawSpriteRotate(id, x, y, degr, size);
+    public final void drawString(int color, String text, float x, float y, float width) {
+        drawString(pixelManager.getDrawColor(color), text, x, y, width);
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, int size) {
-        drawSpriteFlip(id, x, y, flipX, flipY, size);
+    public final void drawString(int color, String text, double x, double y, double width) {
+        drawString(pixelManager.getDrawColor(color), text, (float) x, (float) y, (float) width);
     }
 
-    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr, int size) {
+    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
+        drawString(pixelManager.getDrawColor(color), text, x.floatValue(), y.floatValue(), width.floatValue());
+    }
+
+    public final void drawString(int color, String text, float x, float y, float width, int align) {
+        drawString(pixelManager.getDrawColor(color), text, x, y, width, align);
+    }
+
+    public final void drawString(int color, String text, double x, double y, double width, int align) {
+        drawString(pixelManager.getDrawColor(color), text, (float) x, (float) y, (float) width, align);
+    }
+
+    public final void drawString(int color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
+        drawString(pixelManager.getDrawColor(color), text, x.floatValue(), y.floatValue(), width.floatValue(), align);
+    }
+
+    public final void drawString(String color, String text, float x, float y) {
+        drawString(ColorCache.getColor(color), text, x, y);
+    }
+
+    public final void drawString(String color, String text, double x, double y) {
+        drawString(ColorCache.getColor(color), text, (float) x, (float) y);
+    }
+
+    public final void drawString(String color, String text, BigDecimal x, BigDecimal y) {
+        drawString(ColorCache.getColor(color), text, x.floatValue(), y.floatValue());
+    }
+
+    public final void drawString(String color, String text, float x, float y, float width) {
+        drawString(ColorCache.getColor(color), text, x, y, width);
+    }
+
+    public final void drawString(String color, String text, double x, double y, double width) {
+        drawString(ColorCache.getColor(color), text, (float) x, (float) y, (float) width);
+    }
+
+    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width) {
+        drawString(ColorCache.getColor(color), text, x.floatValue(), y.floatValue(), width.floatValue());
+    }
+
+    public final void drawString(String color, String text, float x, float y, float width, int align) {
+        drawString(ColorCache.getColor(color), text, x, y, width, align);
+    }
+
+    public final void drawString(String color, String text, double x, double y, double width, int align) {
+        drawString(ColorCache.getColor(color), text, (float) x, (float) y, (float) width, align);
+    }
+
+    public final void drawString(String color, String text, BigDecimal x, BigDecimal y, BigDecimal width, int align) {
+        drawString(ColorCache.getColor(color), text, x.floatValue(), y.floatValue(), width.floatValue(), align);
+    }
+
+    //end drawString methods
+    //sprite helper methods.
+    /**
+     * Switches the palette shader on for palette indexed sprites and off for
+     * everything else. The shader only changes when the kind of drawing
+     * changes, so runs of sprites share one batch.
+     */
+    private void usePalette(boolean on) {
+        boolean want = on && paletteSprites;
+        if (want == paletteActive) {
+            if (want) {
+                //uploads on texture unit 1 only when the palette changed
+                pixelManager.getPaletteTexture();
+            }
+            return;
+        }
+        if (want) {
+            Shader shader = pixelManager.getPaletteShader();
+            if (null == shader) {
+                paletteSprites = false;
+                return;
+            }
+            g.setShader(shader);
+            shader.setParameter("u_palette", 1, pixelManager.getPaletteTexture());
+            Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+        } else {
+            g.clearShader();
+        }
+        paletteActive = want;
+    }
+
+    /**
+     * Draws a sprite now, used directly and by the DrawQueue. Rotated,
+     * flipped or scaled sprites are drawn through a private copy so the
+     * shared sprites of the SpriteLoader are never changed.
+     */
+    void drawSpriteNow(Sprite t, float x, float y, float degr, float scaleX, float scaleY, boolean flipX, boolean flipY) {
+        usePalette(true);
+        if (degr == 0 && scaleX == 1 && scaleY == 1 && !flipX && !flipY) {
+            g.drawSprite(t, x, y);
+            return;
+        }
+        Sprite copy = transformed.get(t);
+        if (null == copy) {
+            copy = new Sprite(t);
+            transformed.put(t, copy);
+        }
+        copy.setRotation(degr);
+        copy.setScale(scaleX, scaleY);
+        copy.setFlip(flipX, flipY);
+        g.drawSprite(copy, x, y);
+    }
+
+    /**
+     * @return false when the sprite was culled
+     */
+    private boolean drawSprite(Sprite t, float x, float y, float degr, float scaleX, float scaleY, boolean flipX, boolean flipY) {
+        float w = t.getWidth();
+        float h = t.getHeight();
+        boolean visible;
+        if (degr == 0 && scaleX == 1 && scaleY == 1) {
+            visible = inView(x, y, w, h);
+        } else {
+            //scaled and rotated around the center
+            float hw = Math.abs(w * scaleX) / 2;
+            float hh = Math.abs(h * scaleY) / 2;
+            if (degr != 0) {
+                hw = (float) Math.sqrt(hw * hw + hh * hh);
+                hh = hw;
+            }
+            visible = inView(x + w / 2 - hw, y + h / 2 - hh, hw * 2, hh * 2);
+        }
+        if (!visible) {
+            return false;
+        }
+        if (null != drawQueue) {
+            drawQueue.addSprite(t, x, y, degr, scaleX, scaleY, flipX, flipY);
+        } else {
+            drawSpriteNow(t, x, y, degr, scaleX, scaleY, flipX, flipY);
+        }
+        return true;
+    }
+
+    private void drawSprite(int id, float x, float y, float degr, float scaleX, float scaleY, boolean flipX, boolean flipY, int size) {
         if (USED_SPRITES >= MAX_SPRITES) {
             return;
         }
-        Sprite t = spriteLoader.getSprite(id, size);
-        t.rotate(degr.floatValue());
-        t.setFlip(flipX, flipY);
-        g.drawSprite(t, x.floatValue(), y.floatValue());
-        t.setFlip(false, false);
-        t.rotate(-degr.floatValue());
-        USED_SPRITES++;
+        if (drawSprite(spriteLoader.getSprite(id, size), x, y, degr, scaleX, scaleY, flipX, flipY)) {
+            USED_SPRITES++;
+        }
+    }
+
+    private void drawSpriteRotate(int id, float x, float y, float degr, int size) {
+        drawSprite(id, x, y, degr, 1, 1, false, false, size);
+    }
+
+    private void drawSpriteFlip(int id, float x, float y, boolean flipX, boolean flipY, int size) {
+        drawSprite(id, x, y, 0, 1, 1, flipX, flipY, size);
+    }
+
+    //start 8x8 sprites. Default size 0 (8x8)
+    public final void sprite(int id, float x, float y) {
+        sprite(id, x, y, 0);
+    }
+
+    public final void sprite(int id, double x, double y) {
+        sprite(id, (float) x, (float) y, 0);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y) {
+        sprite(id, x.floatValue(), y.floatValue(), 0);
+    }
+
+    public final void sprite(int id, float x, float y, float degr) {
+        drawSpriteRotate(id, x, y, degr, 0);
+    }
+
+    public final void sprite(int id, double x, double y, double degr) {
+        drawSpriteRotate(id, (float) x, (float) y, (float) degr, 0);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, BigDecimal degr) {
+        drawSpriteRotate(id, x.floatValue(), y.floatValue(), degr.floatValue(), 0);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY) {
+        drawSpriteFlip(id, x, y, flipX, flipY, 0);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY) {
+        drawSpriteFlip(id, (float) x, (float) y, flipX, flipY, 0);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY) {
+        drawSpriteFlip(id, x.floatValue(), y.floatValue(), flipX, flipY, 0);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY, float degr) {
+        sprite(id, x, y, flipX, flipY, degr, 0);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY, double degr) {
+        sprite(id, (float) x, (float) y, flipX, flipY, (float) degr, 0);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr) {
+        sprite(id, x.floatValue(), y.floatValue(), flipX, flipY, degr.floatValue(), 0);
+    }
+    //end 8x8 sprites
+
+    //start sizable sprites
+    public final void sprite(int id, float x, float y, int size) {
+        drawSprite(id, x, y, 0, 1, 1, false, false, size);
+    }
+
+    public final void sprite(int id, double x, double y, int size) {
+        sprite(id, (float) x, (float) y, size);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, int size) {
+        sprite(id, x.floatValue(), y.floatValue(), size);
+    }
+
+    public final void sprite(int id, float x, float y, float degr, int size) {
+        drawSpriteRotate(id, x, y, degr, size);
+    }
+
+    public final void sprite(int id, double x, double y, double degr, int size) {
+        drawSpriteRotate(id, (float) x, (float) y, (float) degr, size);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, BigDecimal degr, int size) {
+        drawSpriteRotate(id, x.floatValue(), y.floatValue(), degr.floatValue(), size);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY, int size) {
+        drawSpriteFlip(id, x, y, flipX, flipY, size);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY, int size) {
+        drawSpriteFlip(id, (float) x, (float) y, flipX, flipY, size);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, int size) {
+        drawSpriteFlip(id, x.floatValue(), y.floatValue(), flipX, flipY, size);
+    }
+
+    public final void sprite(int id, float x, float y, boolean flipX, boolean flipY, float degr, int size) {
+        drawSprite(id, x, y, degr, 1, 1, flipX, flipY, size);
+    }
+
+    public final void sprite(int id, double x, double y, boolean flipX, boolean flipY, double degr, int size) {
+        sprite(id, (float) x, (float) y, flipX, flipY, (float) degr, size);
+    }
+
+    public final void sprite(int id, BigDecimal x, BigDecimal y, boolean flipX, boolean flipY, BigDecimal degr, int size) {
+        sprite(id, x.floatValue(), y.floatValue(), flipX, flipY, degr.floatValue(), size);
     }
     //end sizable sprites
 
     //START special sprite mode
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph) {
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph) {
         sprite(ids, px, py, pw, ph, 0);
     }
 
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, int size) {
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, 0);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, 0);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph) {
+        sprite(ids, px.intValue(), py.intValue(), pw.intValue(), ph.intValue(), 0);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph, int size) {
         if (USED_SPRITES >= MAX_SPRITES) {
             return;
         }
-        int x = px.intValue();
-        int y = py.intValue();
+        int x = px;
+        int y = py;
         int inc = (size + 1) * 8;
 
         int i = 0;
-        for (int h = 0; h < ph.intValue(); h++) {
-            for (int w = 0; w < pw.intValue(); w++) {
+        for (int h = 0; h < ph; h++) {
+            for (int w = 0; w < pw; w++) {
                 if (i < ids.size()) {
-                    g.drawSprite(spriteLoader.getSprite(ids.get(i), size), x, y);
-                    USED_SPRITES++;
+                    if (drawSprite(spriteLoader.getSprite(ids.get(i), size), x, y, 0, 1, 1, false, false)) {
+                        USED_SPRITES++;
+                    }
                 }
                 i++;
                 x += inc;
             }
-            x = px.intValue();
+            x = px;
             y += inc;
         }
     }
 
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY) {
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph, int size) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph, int size) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, int size) {
+        sprite(ids, px.intValue(), py.intValue(), pw.intValue(), ph.intValue(), size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph, boolean flipX, boolean flipY) {
         sprite(ids, px, py, pw, ph, flipX, flipY, 0);
     }
 
-    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY, int size) {
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph, boolean flipX, boolean flipY) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, flipX, flipY, 0);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph, boolean flipX, boolean flipY) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, flipX, flipY, 0);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY) {
+        sprite(ids, px.intValue(), py.intValue(), pw.intValue(), ph.intValue(), flipX, flipY, 0);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, int px, int py, int pw, int ph, boolean flipX, boolean flipY, int size) {
         if (USED_SPRITES >= MAX_SPRITES) {
             return;
         }
@@ -400,21 +1194,31 @@ public class LeikrScreenManager {
         }
     }
 
-    private void spriteArrayFlipBoth(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, int size) {
+    public final void sprite(ArrayList<Integer> ids, float px, float py, float pw, float ph, boolean flipX, boolean flipY, int size) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, flipX, flipY, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, double px, double py, double pw, double ph, boolean flipX, boolean flipY, int size) {
+        sprite(ids, (int) px, (int) py, (int) pw, (int) ph, flipX, flipY, size);
+    }
+
+    public final void sprite(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, boolean flipX, boolean flipY, int size) {
+        sprite(ids, px.intValue(), py.intValue(), pw.intValue(), ph.intValue(), flipX, flipY, size);
+    }
+
+    private void spriteArrayFlipBoth(ArrayList<Integer> ids, int px, int py, int pw, int ph, int size) {
         int inc = (size + 1) * 8;
-        int startX = px.intValue() + (pw.intValue() * inc) - inc;
-        int y = py.intValue() + (ph.intValue() * inc) - inc;
+        int startX = px + (pw * inc) - inc;
+        int y = py + (ph * inc) - inc;
         int x = startX;
 
         int i = 0;
-        for (int h = ph.intValue(); h > 0; h--) {
-            for (int w = pw.intValue(); w > 0; w--) {
+        for (int h = ph; h > 0; h--) {
+            for (int w = pw; w > 0; w--) {
                 if (i < ids.size()) {
-                    Sprite t = spriteLoader.getSprite(ids.get(i), size);
-                    t.setFlip(true, true);
-                    g.drawSprite(t, x, y);
-                    t.setFlip(false, false);
-                    USED_SPRITES++;
+                    if (drawSprite(spriteLoader.getSprite(ids.get(i), size), x, y, 0, 1, 1, true, true)) {
+                        USED_SPRITES++;
+                    }
                 }
                 i++;
                 x -= inc;
@@ -424,44 +1228,40 @@ public class LeikrScreenManager {
         }
     }
 
-    private void spriteArrayFlipY(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, int size) {
+    private void spriteArrayFlipY(ArrayList<Integer> ids, int px, int py, int pw, int ph, int size) {
         int inc = (size + 1) * 8;
-        int y = py.intValue() + (ph.intValue() * inc) - inc;
-        int x = px.intValue();
+        int y = py + (ph * inc) - inc;
+        int x = px;
 
         int i = 0;
-        for (int h = ph.intValue(); h > 0; h--) {
-            for (int w = 0; w < pw.intValue(); w++) {
+        for (int h = ph; h > 0; h--) {
+            for (int w = 0; w < pw; w++) {
                 if (i < ids.size()) {
-                    Sprite t = spriteLoader.getSprite(ids.get(i), size);
-                    t.setFlip(false, true);
-                    g.drawSprite(t, x, y);
-                    t.setFlip(false, false);
-                    USED_SPRITES++;
+                    if (drawSprite(spriteLoader.getSprite(ids.get(i), size), x, y, 0, 1, 1, false, true)) {
+                        USED_SPRITES++;
+                    }
                 }
                 i++;
                 x += inc;
             }
-            x = px.intValue();
+            x = px;
             y -= inc;
         }
     }
 
-    private void spriteArrayFlipX(ArrayList<Integer> ids, BigDecimal px, BigDecimal py, BigDecimal pw, BigDecimal ph, int size) {
+    private void spriteArrayFlipX(ArrayList<Integer> ids, int px, int py, int pw, int ph, int size) {
         int inc = (size + 1) * 8;
-        int start = px.intValue() + (pw.intValue() * inc) - inc;
-        int y = py.intValue();
+        int start = px + (pw * inc) - inc;
+        int y = py;
         int x = start;
 
         int i = 0;
-        for (int h = 0; h < ph.intValue(); h++) {
-            for (int w = pw.intValue(); w > 0; w--) {
+        for (int h = 0; h < ph; h++) {
+            for (int w = pw; w > 0; w--) {
                 if (i < ids.size()) {
-                    Sprite t = spriteLoader.getSprite(ids.get(i), size);
-                    t.setFlip(true, false);
-                    g.drawSprite(t, x, y);
-                    t.setFlip(false, false);
-                    USED_SPRITES++;
+                    if (drawSprite(spriteLoader.getSprite(ids.get(i), size), x, y, 0, 1, 1, true, false)) {
+                        USED_SPRITES++;
+                    }
                 }
                 i++;
                 x -= inc;
@@ -482,119 +1282,185 @@ public class LeikrScreenManager {
      * @param y
      * @param scale
      */
+    public final void spriteSc(int id, float x, float y, float scale) {
+        spriteSc(id, x, y, scale, scale, 0);
+    }
+
+    public final void spriteSc(int id, double x, double y, double scale) {
+        spriteSc(id, (float) x, (float) y, (float) scale, (float) scale, 0);
+    }
+
     public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scale) {
-        spriteSc(id, x, y, scale, 0);
+        spriteSc(id, x.floatValue(), y.floatValue(), scale.floatValue(), scale.floatValue(), 0);
     }
 
-    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY) {
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY) {
         spriteSc(id, x, y, scaleX, scaleY, 0);
     }
 
-    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, BigDecimal degr) {
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, 0);
+    }
+
+    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY) {
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), 0);
+    }
+
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY, float degr) {
         spriteSc(id, x, y, scaleX, scaleY, degr, 0);
     }
 
-    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY) {
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY, double degr) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, (float) degr, 0);
+    }
+
+    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, BigDecimal degr) {
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), degr.floatValue(), 0);
+    }
+
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY) {
         spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, 0);
     }
 
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, flipX, flipY, 0);
+    }
+
+    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY) {
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), flipX, flipY, 0);
+    }
+
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY, float degr) {
+        spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, degr, 0);
+    }
+
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY, double degr) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, flipX, flipY, (float) degr, 0);
+    }
+
     public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, BigDecimal degr) {
-        spriteSc(id, x, y, scaleX, scaleY, flipX, flipY, 0);
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), flipX, flipY, degr.floatValue(), 0);
     }
 
-    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scale, int size) {
+    public final void spriteSc(int id, float x, float y, float scale, int size) {
         spriteSc(id, x, y, scale, scale, size);
     }
 
+    public final void spriteSc(int id, double x, double y, double scale, int size) {
+        spriteSc(id, (float) x, (float) y, (float) scale, (float) scale, size);
+    }
+
+    public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scale, int size) {
+        spriteSc(id, x.floatValue(), y.floatValue(), scale.floatValue(), scale.floatValue(), size);
+    }
+
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY, int size) {
+        drawSprite(id, x, y, 0, scaleX, scaleY, false, false, size);
+    }
+
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY, int size) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, size);
+    }
+
     public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, int size) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        Sprite t = spriteLoader.getSprite(id, size);
-        t.setScale(scaleX.floatValue(), scaleY.floatValue());
-        g.drawSprite(t, x.floatValue(), y.floatValue());
-        t.setScale(1);
-        USED_SPRITES++;
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), size);
+    }
+
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY, float degr, int size) {
+        drawSprite(id, x, y, degr, scaleX, scaleY, false, false, size);
+    }
+
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY, double degr, int size) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, (float) degr, size);
     }
 
     public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, BigDecimal degr, int size) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        Sprite t = spriteLoader.getSprite(id, size);
-        t.setScale(scaleX.floatValue(), scaleY.floatValue());
-        t.rotate(degr.floatValue());
-        g.drawSprite(t, x.floatValue(), y.floatValue());
-        t.rotate(-degr.floatValue());
-        t.setScale(1);
-        USED_SPRITES++;
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), degr.floatValue(), size);
+    }
+
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY, int size) {
+        drawSprite(id, x, y, 0, scaleX, scaleY, flipX, flipY, size);
+    }
+
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY, int size) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, flipX, flipY, size);
     }
 
     public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, int size) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        Sprite t = spriteLoader.getSprite(id, size);
-        t.setScale(scaleX.floatValue(), scaleY.floatValue());
-        t.flip(flipX, flipY);
-        g.drawSprite(t, x.floatValue(), y.floatValue());
-        t.flip(!flipX, !flipY);
-        t.setScale(1);
-        USED_SPRITES++;
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), flipX, flipY, size);
+    }
+
+    public final void spriteSc(int id, float x, float y, float scaleX, float scaleY, boolean flipX, boolean flipY, float degr, int size) {
+        drawSprite(id, x, y, degr, scaleX, scaleY, flipX, flipY, size);
+    }
+
+    public final void spriteSc(int id, double x, double y, double scaleX, double scaleY, boolean flipX, boolean flipY, double degr, int size) {
+        spriteSc(id, (float) x, (float) y, (float) scaleX, (float) scaleY, flipX, flipY, (float) degr, size);
     }
 
     public final void spriteSc(int id, BigDecimal x, BigDecimal y, BigDecimal scaleX, BigDecimal scaleY, boolean flipX, boolean flipY, BigDecimal degr, int size) {
-        if (USED_SPRITES >= MAX_SPRITES) {
-            return;
-        }
-        Sprite t = spriteLoader.getSprite(id, size);
-        t.setScale(scaleX.floatValue(), scaleY.floatValue());
-        t.rotate(degr.floatValue());
-        t.flip(flipX, flipY);
-        g.drawSprite(t, x.floatValue(), y.floatValue());
-        t.flip(!flipX, !flipY);
-        t.rotate(-degr.floatValue());
-        t.setScale(1);
-        USED_SPRITES++;
+        spriteSc(id, x.floatValue(), y.floatValue(), scaleX.floatValue(), scaleY.floatValue(), flipX, flipY, degr.floatValue(), size);
     }
     //END special sprite mode
 
     //start shape drawing methods
     /**
-     * Internal drawPixel with color .
+     * Uses the white pixel with a colored tint to produce a pixel of the given
+     * Color.
      *
      * @param color
      * @param x
      * @param y
      */
-    private void drawPixel(Color color, int x, int y) {
+    public final void drawPixel(Color color, int x, int y) {
         tint(color);
-        g.drawSprite(pixelManager.getSprite(1), x, y);
-        g.removeTint();
+        drawSpan(x, y, 1, 1);
+        tint();
+    }
+
+    public final void drawPixel(Color color, float x, float y) {
+        drawPixel(color, (int) x, (int) y);
+    }
+
+    public final void drawPixel(Color color, double x, double y) {
+        drawPixel(color, (int) x, (int) y);
     }
 
     /**
-     * Basic drawPixel taking Integer colord ID and a BigDecimal x,y coordinate
-     * value.
+     * Uses the white pixel with a colored tint to produce a pixel of any
+     * desired RGB color String, ex: "255,255,255"
      *
      * @param color
      * @param x
      * @param y
      */
-    public final void drawPixel(int color, BigDecimal x, BigDecimal y) {
-        g.drawSprite(pixelManager.getSprite(color), x.intValue(), y.intValue());
+    public final void drawPixel(Color color, BigDecimal x, BigDecimal y) {
+        drawPixel(color, x.intValue(), y.intValue());
     }
 
     /**
-     * Uses the white pixel with a colored tint to produce a pixel of any
-     * desired RGB color String, ex: "255,255,255"
+     * Basic drawPixel taking Integer colord ID and an int x,y coordinate
+     * value.
      *
      * @param color
      * @param x
      * @param y
      */
-    public final void drawPixel(String color, BigDecimal x, BigDecimal y) {
-        drawPixel(Colors.rgbToColor(color), x.intValue(), y.intValue());
+    public final void drawPixel(int color, int x, int y) {
+        //resolved through the current palette so palette swaps apply
+        drawPixel(pixelManager.getDrawColor(color), x, y);
+    }
+
+    public final void drawPixel(int color, float x, float y) {
+        drawPixel(color, (int) x, (int) y);
+    }
+
+    public final void drawPixel(int color, double x, double y) {
+        drawPixel(color, (int) x, (int) y);
+    }
+
+    public final void drawPixel(int color, BigDecimal x, BigDecimal y) {
+        drawPixel(color, x.intValue(), y.intValue());
     }
 
     /**
@@ -605,175 +1471,642 @@ public class LeikrScreenManager {
      * @param x
      * @param y
      */
-    public final void drawPixel(Color color, BigDecimal x, BigDecimal y) {
-        tint(color);
-        g.drawSprite(pixelManager.getSprite(1), x.intValue(), y.intValue());
-        g.removeTint();
-    }
-
-    public final void drawRect(Color c, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        for (int i = x.intValue(); i < x.intValue() + w.intValue(); i++) {
-            drawPixel(c, i, y.intValue());
-            drawPixel(c, i, y.intValue() + h.intValue() - 1);
-        }
-        for (int i = y.intValue(); i < y.intValue() + h.intValue(); i++) {
-            drawPixel(c, x.intValue(), i);
-            drawPixel(c, x.intValue() + w.intValue() - 1, i);
-        }
+    public final void drawPixel(String color, int x, int y) {
+        drawPixel(ColorCache.getColor(color), x, y);
     }
 
-    public final void drawRect(int c, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        drawRect(pixelManager.getDrawColor(c), x, y, w, h);
+    public final void drawPixel(String color, float x, float y) {
+        drawPixel(ColorCache.getColor(color), (int) x, (int) y);
     }
 
-    public final void drawRect(String c, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        drawRect(Colors.rgbToColor(c), x, y, w, h);
+    public final void drawPixel(String color, double x, double y) {
+        drawPixel(ColorCache.getColor(color), (int) x, (int) y);
     }
 
-    public final void fillRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        g.setColor(color);
-        g.fillRect(x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    public final void drawPixel(String color, BigDecimal x, BigDecimal y) {
+        drawPixel(ColorCache.getColor(color), x.intValue(), y.intValue());
     }
 
-    public final void fillRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+    /**
+     * Draws a texture region now, used directly and by the DrawQueue.
+     */
+    void drawRegionNow(TextureRegion region, float x, float y, float w, float h) {
+        usePalette(false);
+        if (Float.isNaN(w)) {
+            g.drawTextureRegion(region, x, y);
+        } else {
+            g.drawTextureRegion(region, x, y, w, h);
+        }
+    }
+
+    //draws a run of pixels as one stretched white pixel, tinted by the caller
+    private void drawSpan(int x, int y, int w, int h) {
+        if (null != drawQueue) {
+            drawQueue.addRegion(pixelManager.getSprite(1), x, y, w, h);
+        } else {
+            drawRegionNow(pixelManager.getSprite(1), x, y, w, h);
+        }
+    }
+
+    public final void drawRect(Color c, int x, int y, int w, int h) {
+        tint(c);
+        SpanRasterizer.rect(spanTarget, x, y, w, h);
+        tint();
+    }
+
+    public final void drawRect(Color c, float x, float y, float w, float h) {
+        drawRect(c, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void drawRect(Color c, double x, double y, double w, double h) {
+        drawRect(c, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void drawRect(Color c, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        drawRect(c, x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void drawRect(int c, int x, int y, int w, int h) {
+        drawRect(pixelManager.getDrawColor(c), x, y, w, h);
+    }
+
+    public final void drawRect(int c, float x, float y, float w, float h) {
+        drawRect(pixelManager.getDrawColor(c), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void drawRect(int c, double x, double y, double w, double h) {
+        drawRect(pixelManager.getDrawColor(c), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void drawRect(int c, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        drawRect(pixelManager.getDrawColor(c), x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void drawRect(String c, int x, int y, int w, int h) {
+        drawRect(ColorCache.getColor(c), x, y, w, h);
+    }
+
+    public final void drawRect(String c, float x, float y, float w, float h) {
+        drawRect(ColorCache.getColor(c), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void drawRect(String c, double x, double y, double w, double h) {
+        drawRect(ColorCache.getColor(c), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void drawRect(String c, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        drawRect(ColorCache.getColor(c), x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    /**
+     * Fills a rectangle now, used directly and by the DrawQueue.
+     */
+    void fillRectNow(Color color, float x, float y, float w, float h) {
+        usePalette(false);
+        g.setColor(color);
+        g.fillRect(x, y, w, h);
+    }
+
+    public final void fillRect(Color color, int x, int y, int w, int h) {
+        if (null != drawQueue) {
+            drawQueue.addFillRect(color, x, y, w, h);
+        } else {
+            fillRectNow(color, x, y, w, h);
+        }
+    }
+
+    public final void fillRect(Color color, float x, float y, float w, float h) {
+        fillRect(color, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void fillRect(Color color, double x, double y, double w, double h) {
+        fillRect(color, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void fillRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        fillRect(color, x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void fillRect(int color, int x, int y, int w, int h) {
         fillRect(pixelManager.getDrawColor(color), x, y, w, h);
     }
 
+    public final void fillRect(int color, float x, float y, float w, float h) {
+        fillRect(pixelManager.getDrawColor(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void fillRect(int color, double x, double y, double w, double h) {
+        fillRect(pixelManager.getDrawColor(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void fillRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        fillRect(pixelManager.getDrawColor(color), x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void fillRect(String color, int x, int y, int w, int h) {
+        fillRect(ColorCache.getColor(color), x, y, w, h);
+    }
+
+    public final void fillRect(String color, float x, float y, float w, float h) {
+        fillRect(ColorCache.getColor(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void fillRect(String color, double x, double y, double w, double h) {
+        fillRect(ColorCache.getColor(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
     public final void fillRect(String color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        fillRect(Colors.rgbToColor(color), x, y, w, h);
+        fillRect(ColorCache.getColor(color), x.intValue(), y.intValue(), w.intValue(), h.intValue());
     }
 
-    private void drawHLine(Color c, int x0, int x1, int y) {
-        for (int i = x0; i < x1; i++) {
-            drawPixel(c, i, y);
-        }
+    public final void drawLineSegment(int c, int x0, int y0, int x1, int y1) {
+        drawLineSegment(pixelManager.getDrawColor(c), x0, y0, x1, y1);
     }
 
-    private void drawVLine(Color c, int x, int y0, int y1) {
-        for (int i = y0; i < y1; i++) {
-            drawPixel(c, x, i);
-        }
+    public final void drawLineSegment(int c, float x0, float y0, float x1, float y1) {
+        drawLineSegment(pixelManager.getDrawColor(c), (int) x0, (int) y0, (int) x1, (int) y1);
+    }
+
+    public final void drawLineSegment(int c, double x0, double y0, double x1, double y1) {
+        drawLineSegment(pixelManager.getDrawColor(c), (int) x0, (int) y0, (int) x1, (int) y1);
     }
 
     public final void drawLineSegment(int c, BigDecimal p0, BigDecimal v0, BigDecimal p1, BigDecimal v1) {
-        drawLineSegment(pixelManager.getDrawColor(c), p0, v0, p1, v1);
+        drawLineSegment(pixelManager.getDrawColor(c), p0.intValue(), v0.intValue(), p1.intValue(), v1.intValue());
+    }
+
+    public final void drawLineSegment(String c, int x0, int y0, int x1, int y1) {
+        drawLineSegment(ColorCache.getColor(c), x0, y0, x1, y1);
+    }
+
+    public final void drawLineSegment(String c, float x0, float y0, float x1, float y1) {
+        drawLineSegment(ColorCache.getColor(c), (int) x0, (int) y0, (int) x1, (int) y1);
+    }
+
+    public final void drawLineSegment(String c, double x0, double y0, double x1, double y1) {
+        drawLineSegment(ColorCache.getColor(c), (int) x0, (int) y0, (int) x1, (int) y1);
     }
 
     public final void drawLineSegment(String c, BigDecimal p0, BigDecimal v0, BigDecimal p1, BigDecimal v1) {
-        drawLineSegment(Colors.rgbToColor(c), p0, v0, p1, v1);
+        drawLineSegment(ColorCache.getColor(c), p0.intValue(), v0.intValue(), p1.intValue(), v1.intValue());
     }
 
-    public final void drawLineSegment(Color c, BigDecimal p0, BigDecimal v0, BigDecimal p1, BigDecimal v1) {
-        int x0 = p0.intValue();
-        int x1 = p1.intValue();
-        int y0 = v0.intValue();
-        int y1 = v1.intValue();
-
-        if (y0 == y1) {
-            if (x0 < x1) {
-                drawHLine(c, x0, x1, y0);
-            } else {
-                drawHLine(c, x1, x0, y0);
-            }
-            return;
-        }
-        if (x0 == x1) {
-            if (y0 < y1) {
-                drawVLine(c, x0, y0, y1);
-            } else {
-                drawVLine(c, x0, y1, y0);
-            }
-            return;
-        }
+    public final void drawLineSegment(Color c, float x0, float y0, float x1, float y1) {
+        drawLineSegment(c, (int) x0, (int) y0, (int) x1, (int) y1);
+    }
 
-        int dx = Math.abs(x1 - x0);
-        int sx = x0 < x1 ? 1 : -1;
-        int dy = -Math.abs(y1 - y0);
-        int sy = y0 < y1 ? 1 : -1;
+    public final void drawLineSegment(Color c, double x0, double y0, double x1, double y1) {
+        drawLineSegment(c, (int) x0, (int) y0, (int) x1, (int) y1);
+    }
 
-        int err = dx + dy;
-        while (true) {
-            drawPixel(c, x0, y0);
-            if (x0 == x1 && y0 == y1) {
-                break;
-            }
+    public final void drawLineSegment(Color c, BigDecimal p0, BigDecimal v0, BigDecimal p1, BigDecimal v1) {
+        drawLineSegment(c, p0.intValue(), v0.intValue(), p1.intValue(), v1.intValue());
+    }
 
-            int e2 = 2 * err;
-            if (e2 >= dy) {
-                err += dy;
-                x0 += sx;
-            }
-            if (e2 <= dx) {
-                err += dx;
-                y0 += sy;
-            }
-        }
+    public final void drawLineSegment(Color c, int x0, int y0, int x1, int y1) {
+        tint(c);
+        SpanRasterizer.line(spanTarget, x0, y0, x1, y1);
+        tint();
     }
 
     //https://www.geeksforgeeks.org/bresenhams-circle-drawing-algorithm/
+    public final void drawCircle(Color color, int cx, int cy, int cr) {
+        tint(color);
+        SpanRasterizer.circle(spanTarget, cx, cy, cr);
+        tint();
+    }
+
+    public final void drawCircle(Color color, float x, float y, float r) {
+        drawCircle(color, (int) x, (int) y, (int) r);
+    }
+
+    public final void drawCircle(Color color, double x, double y, double r) {
+        drawCircle(color, (int) x, (int) y, (int) r);
+    }
+
     public final void drawCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        drawCircle(color, x.intValue(), y.intValue(), r.intValue());
+    }
+
+    /**
+     * Fills a circle now, used directly and by the DrawQueue.
+     */
+    void fillCircleNow(Color color, float x, float y, int r) {
+        usePalette(false);
         g.setColor(color);
-        //g.drawCircle(x.intValue(), y.intValue(), r.intValue());
-        int cx = x.intValue();
-        int cy = y.intValue();
-        int cr = r.intValue();
-        int d = 3 - 2 * cr;
-        int nx = 0;
-        int ny = cr;
-        while (nx <= ny) {
-            drawPixel(color, cx + nx, cy + ny);
-            drawPixel(color, cx + nx, cy - ny);
-            drawPixel(color, cx - nx, cy + ny);
-            drawPixel(color, cx - nx, cy - ny);
-
-            drawPixel(color, cx + ny, cy + nx);
-            drawPixel(color, cx + ny, cy - nx);
-            drawPixel(color, cx - ny, cy + nx);
-            drawPixel(color, cx - ny, cy - nx);
-
-            if (d <= 0) {
-                d += 4 * nx + 6;
-            } else {
-                ny += -1;
-                d += 4 * (nx - ny) + 10;
-            }
-            nx++;
+        g.fillCircle(x, y, r);
+    }
+
+    public final void fillCircle(Color color, int x, int y, int r) {
+        if (null != drawQueue) {
+            drawQueue.addFillCircle(color, x, y, r);
+        } else {
+            fillCircleNow(color, x, y, r);
         }
     }
 
+    public final void fillCircle(Color color, float x, float y, float r) {
+        fillCircle(color, (int) x, (int) y, (int) r);
+    }
+
+    public final void fillCircle(Color color, double x, double y, double r) {
+        fillCircle(color, (int) x, (int) y, (int) r);
+    }
+
     public final void fillCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        g.setColor(color);
-        g.fillCircle(x.intValue(), y.intValue(), r.intValue());
+        fillCircle(color, x.intValue(), y.intValue(), r.intValue());
     }
 
-    public final void drawCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+    public final void drawCircle(int color, int x, int y, int r) {
         drawCircle(pixelManager.getDrawColor(color), x, y, r);
     }
 
-    public final void fillCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+    public final void drawCircle(int color, float x, float y, float r) {
+        drawCircle(pixelManager.getDrawColor(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void drawCircle(int color, double x, double y, double r) {
+        drawCircle(pixelManager.getDrawColor(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void drawCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        drawCircle(pixelManager.getDrawColor(color), x.intValue(), y.intValue(), r.intValue());
+    }
+
+    public final void fillCircle(int color, int x, int y, int r) {
         fillCircle(pixelManager.getDrawColor(color), x, y, r);
     }
 
+    public final void fillCircle(int color, float x, float y, float r) {
+        fillCircle(pixelManager.getDrawColor(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void fillCircle(int color, double x, double y, double r) {
+        fillCircle(pixelManager.getDrawColor(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void fillCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        fillCircle(pixelManager.getDrawColor(color), x.intValue(), y.intValue(), r.intValue());
+    }
+
+    public final void drawCircle(String color, int x, int y, int r) {
+        drawCircle(ColorCache.getColor(color), x, y, r);
+    }
+
+    public final void drawCircle(String color, float x, float y, float r) {
+        drawCircle(ColorCache.getColor(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void drawCircle(String color, double x, double y, double r) {
+        drawCircle(ColorCache.getColor(color), (int) x, (int) y, (int) r);
+    }
+
     public final void drawCircle(String color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        drawCircle(Colors.rgbToColor(color), x, y, r);
+        drawCircle(ColorCache.getColor(color), x.intValue(), y.intValue(), r.intValue());
+    }
+
+    public final void fillCircle(String color, int x, int y, int r) {
+        fillCircle(ColorCache.getColor(color), x, y, r);
+    }
+
+    public final void fillCircle(String color, float x, float y, float r) {
+        fillCircle(ColorCache.getColor(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void fillCircle(String color, double x, double y, double r) {
+        fillCircle(ColorCache.getColor(color), (int) x, (int) y, (int) r);
     }
 
     public final void fillCircle(String color, BigDecimal x, BigDecimal y, BigDecimal r) {
-        fillCircle(Colors.rgbToColor(color), x, y, r);
+        fillCircle(ColorCache.getColor(color), x.intValue(), y.intValue(), r.intValue());
     }
 //end shape drawing methods
 
+    //start palette methods
+    public final void setPaletteColor(int id, Color color) {
+        if (paletteActive) {
+            //sprites already batched keep the palette they were drawn with
+            g.flush();
+        }
+        pixelManager.setPaletteColor(id, color);
+    }
+
+    public final void setPaletteColor(int id, String color) {
+        //palette colors are handed out by getColor(int)
+        setPaletteColor(id, ColorCache.getColor(color).copy());
+    }
+
+    public final void setPalette(int[] rgba) {
+        if (paletteActive) {
+            g.flush();
+        }
+        pixelManager.setPalette(rgba);
+    }
+
+    public final void fadePalette(Color target, float amount) {
+        if (paletteActive) {
+            g.flush();
+        }
+        pixelManager.fadePalette(target, amount);
+    }
+
+    public final void fadePalette(Color target, double amount) {
+        fadePalette(target, (float) amount);
+    }
+
+    public final void fadePalette(Color target, BigDecimal amount) {
+        fadePalette(target, amount.floatValue());
+    }
+
+    public final void fadePalette(String target, float amount) {
+        fadePalette(ColorCache.getColor(target), amount);
+    }
+
+    public final void fadePalette(String target, double amount) {
+        fadePalette(ColorCache.getColor(target), (float) amount);
+    }
+
+    public final void fadePalette(String target, BigDecimal amount) {
+        fadePalette(ColorCache.getColor(target), amount.floatValue());
+    }
+
+    public final void resetPalette() {
+        if (paletteActive) {
+            g.flush();
+        }
+        pixelManager.resetPalette();
+    }
+    //end palette methods
+
+    //start pixel layer methods
+    /**
+     * The pixel layer is a screen sized array of pixels. Drawing into it only
+     * writes the array, it is shown when drawLayer is called.
+     *
+     * @return the pixel layer
+     */
+    public final PixelLayer getPixelLayer() {
+        if (null == pixelLayer) {
+            pixelLayer = new PixelLayer(GameRuntime.WIDTH, GameRuntime.HEIGHT);
+        }
+        return pixelLayer;
+    }
+
+    /**
+     * Returns the pixel layer array, one RGBA8888 int per pixel in rows of 240
+     * pixels.
+     *
+     * @return the layer pixels
+     */
+    public final int[] getLayer() {
+        return getPixelLayer().getPixels();
+    }
+
+    public final void layerClear() {
+        getPixelLayer().clear(0);
+    }
+
+    public final void layerClear(int color) {
+        getPixelLayer().clear(pixelManager.getDrawRGBA(color));
+    }
+
+    public final void layerClear(Color color) {
+        getPixelLayer().clear(color.rgba8888());
+    }
+
+    /**
+     * Uploads the pixel layer if it changed and draws it over the screen.
+     */
+    public final void drawLayer() {
+        if (null != drawQueue) {
+            drawQueue.addPixelLayer(getPixelLayer());
+        } else {
+            drawPixelLayerNow(getPixelLayer());
+        }
+    }
+
+    void drawPixelLayerNow(PixelLayer layer) {
+        usePalette(false);
+        layer.draw(g);
+    }
+
+    public final void layerPixel(Color color, int x, int y) {
+        getPixelLayer().setPixel(color.rgba8888(), x, y);
+    }
+
+    public final void layerPixel(Color color, float x, float y) {
+        layerPixel(color, (int) x, (int) y);
+    }
+
+    public final void layerPixel(Color color, double x, double y) {
+        layerPixel(color, (int) x, (int) y);
+    }
+
+    public final void layerPixel(Color color, BigDecimal x, BigDecimal y) {
+        layerPixel(color, x.intValue(), y.intValue());
+    }
+
+    public final void layerPixel(int color, int x, int y) {
+        getPixelLayer().setPixel(pixelManager.getDrawRGBA(color), x, y);
+    }
+
+    public final void layerPixel(int color, float x, float y) {
+        getPixelLayer().setPixel(pixelManager.getDrawRGBA(color), (int) x, (int) y);
+    }
+
+    public final void layerPixel(int color, double x, double y) {
+        getPixelLayer().setPixel(pixelManager.getDrawRGBA(color), (int) x, (int) y);
+    }
+
+    public final void layerPixel(int color, BigDecimal x, BigDecimal y) {
+        getPixelLayer().setPixel(pixelManager.getDrawRGBA(color), x.intValue(), y.intValue());
+    }
+
+    public final void layerRect(Color color, int x, int y, int w, int h) {
+        getPixelLayer().drawRect(color.rgba8888(), x, y, w, h);
+    }
+
+    public final void layerRect(Color color, float x, float y, float w, float h) {
+        layerRect(color, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerRect(Color color, double x, double y, double w, double h) {
+        layerRect(color, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        layerRect(color, x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void layerRect(int color, int x, int y, int w, int h) {
+        getPixelLayer().drawRect(pixelManager.getDrawRGBA(color), x, y, w, h);
+    }
+
+    public final void layerRect(int color, float x, float y, float w, float h) {
+        getPixelLayer().drawRect(pixelManager.getDrawRGBA(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerRect(int color, double x, double y, double w, double h) {
+        getPixelLayer().drawRect(pixelManager.getDrawRGBA(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        getPixelLayer().drawRect(pixelManager.getDrawRGBA(color), x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void layerFillRect(Color color, int x, int y, int w, int h) {
+        getPixelLayer().fillRect(color.rgba8888(), x, y, w, h);
+    }
+
+    public final void layerFillRect(Color color, float x, float y, float w, float h) {
+        layerFillRect(color, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerFillRect(Color color, double x, double y, double w, double h) {
+        layerFillRect(color, (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerFillRect(Color color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        layerFillRect(color, x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void layerFillRect(int color, int x, int y, int w, int h) {
+        getPixelLayer().fillRect(pixelManager.getDrawRGBA(color), x, y, w, h);
+    }
+
+    public final void layerFillRect(int color, float x, float y, float w, float h) {
+        getPixelLayer().fillRect(pixelManager.getDrawRGBA(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerFillRect(int color, double x, double y, double w, double h) {
+        getPixelLayer().fillRect(pixelManager.getDrawRGBA(color), (int) x, (int) y, (int) w, (int) h);
+    }
+
+    public final void layerFillRect(int color, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        getPixelLayer().fillRect(pixelManager.getDrawRGBA(color), x.intValue(), y.intValue(), w.intValue(), h.intValue());
+    }
+
+    public final void layerLine(Color color, int x0, int y0, int x1, int y1) {
+        getPixelLayer().drawLine(color.rgba8888(), x0, y0, x1, y1);
+    }
+
+    public final void layerLine(Color color, float x0, float y0, float x1, float y1) {
+        layerLine(color, (int) x0, (int) y0, (int) x1, (int) y1);
+    }
+
+    public final void layerLine(Color color, double x0, double y0, double x1, double y1) {
+        layerLine(color, (int) x0, (int) y0, (int) x1, (int) y1);
+    }
+
+    public final void layerLine(Color color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
+        layerLine(color, x0.intValue(), y0.intValue(), x1.intValue(), y1.intValue());
+    }
+
+    public final void layerLine(int color, int x0, int y0, int x1, int y1) {
+        getPixelLayer().drawLine(pixelManager.getDrawRGBA(color), x0, y0, x1, y1);
+    }
+
+    public final void layerLine(int color, float x0, float y0, float x1, float y1) {
+        getPixelLayer().drawLine(pixelManager.getDrawRGBA(color), (int) x0, (int) y0, (int) x1, (int) y1);
+    }
+
+    public final void layerLine(int color, double x0, double y0, double x1, double y1) {
+        getPixelLayer().drawLine(pixelManager.getDrawRGBA(color), (int) x0, (int) y0, (int) x1, (int) y1);
+    }
+
+    public final void layerLine(int color, BigDecimal x0, BigDecimal y0, BigDecimal x1, BigDecimal y1) {
+        getPixelLayer().drawLine(pixelManager.getDrawRGBA(color), x0.intValue(), y0.intValue(), x1.intValue(), y1.intValue());
+    }
+
+    public final void layerCircle(Color color, int x, int y, int r) {
+        getPixelLayer().drawCircle(color.rgba8888(), x, y, r);
+    }
+
+    public final void layerCircle(Color color, float x, float y, float r) {
+        layerCircle(color, (int) x, (int) y, (int) r);
+    }
+
+    public final void layerCircle(Color color, double x, double y, double r) {
+        layerCircle(color, (int) x, (int) y, (int) r);
+    }
+
+    public final void layerCircle(Color color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        layerCircle(color, x.intValue(), y.intValue(), r.intValue());
+    }
+
+    public final void layerCircle(int color, int x, int y, int r) {
+        getPixelLayer().drawCircle(pixelManager.getDrawRGBA(color), x, y, r);
+    }
+
+    public final void layerCircle(int color, float x, float y, float r) {
+        getPixelLayer().drawCircle(pixelManager.getDrawRGBA(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void layerCircle(int color, double x, double y, double r) {
+        getPixelLayer().drawCircle(pixelManager.getDrawRGBA(color), (int) x, (int) y, (int) r);
+    }
+
+    public final void layerCircle(int color, BigDecimal x, BigDecimal y, BigDecimal r) {
+        getPixelLayer().drawCircle(pixelManager.getDrawRGBA(color), x.intValue(), y.intValue(), r.intValue());
+    }
+    //end pixel layer methods
+
+    public final void setClip(float x, float y, float w, float h) {
+        clipX = x;
+        clipY = y;
+        clipW = w;
+        clipH = h;
+        updateView();
+        if (null != drawQueue) {
+            drawQueue.setClip(x, y, w, h);
+        } else {
+            g.setClip(x, y, w, h);
+        }
+    }
+
+    public final void setClip(double x, double y, double w, double h) {
+        setClip((float) x, (float) y, (float) w, (float) h);
+    }
+
     public final void setClip(BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
-        g.setClip(x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue());
+        setClip(x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue());
     }
 
     public final void removeClip() {
-        g.removeClip();
+        clipW = Float.NaN;
+        updateView();
+        if (null != drawQueue) {
+            drawQueue.removeClip();
+        } else {
+            g.removeClip();
+        }
+    }
+
+    /**
+     * Sets the layer of the following draws when the draw_queue program
+     * property is set. Higher layers are drawn over lower ones, every frame
+     * starts on layer 0. Without the draw queue everything is drawn in call
+     * order and the layer is ignored.
+     *
+     * @param z layer from -32768 to 32767
+     */
+    public final void setZ(int z) {
+        if (null != drawQueue) {
+            drawQueue.setLayer(z);
+        }
+    }
+
+    public final int getZ() {
+        return null != drawQueue ? drawQueue.getLayer() : 0;
     }
 
     //EXPERIMENTAL METHODS
     public void tint(Color color) {
-        g.setTint(color);
+        if (null != drawQueue) {
+            drawQueue.setTint(color);
+        } else {
+            g.setTint(color);
+        }
     }
 
     public void tint(int color) {
@@ -781,57 +2114,127 @@ public class LeikrScreenManager {
     }
 
     public void tint(String color) {
-        tint(Colors.rgbToColor(color));
+        tint(ColorCache.getColor(color));
     }
 
     public void tint() {
-        g.removeTint();
+        if (null != drawQueue) {
+            drawQueue.setTint(null);
+        } else {
+            g.removeTint();
+        }
+    }
+
+    private FrameReadback getReadback() {
+        if (null == readback) {
+            readback = new FrameReadback(GameRuntime.WIDTH, GameRuntime.HEIGHT);
+        }
+        //the first frame is copied in postRender, inside the frame buffer
+        readback.activate();
+        return readback;
     }
 
     /**
      * Convenience method to retrieve a color at a specified pixel coordinate of
      * the frame buffer.
      *
-     * note that the y coordinate must be -1 in order to get the correct pixel.
+     * The first call starts copying every finished frame, after that the
+     * pixel is served from the copy of the previous frame. Until the first
+     * frame is finished the pixels are 0. The copies stop once no pixel was
+     * read for a second.
      *
      * @param x
      * @param y
      * @return The Color at the specified coordinate of the frame buffer
      */
+    public Color getPixel(int x, int y) {
+        return Mdx.graphics.newColor(getReadback().getPixel(x, y));
+    }
+
+    public Color getPixel(float x, float y) {
+        return getPixel((int) x, (int) y);
+    }
+
+    public Color getPixel(double x, double y) {
+        return getPixel((int) x, (int) y);
+    }
+
     public Color getPixel(BigDecimal x, BigDecimal y) {
-        int gx = MathUtils.ceil((v.getX() * v.getScaleX()) + (x.floatValue() * v.getScaleX()));
-        int gy = MathUtils.ceil((v.getY() * v.getScaleY()) + (y.floatValue() * v.getScaleY()));
-        gy = Gdx.graphics.getHeight() - gy;
-        frameBuffer.end();
+        return getPixel(x.intValue(), y.intValue());
+    }
 
-        byte[] b = ScreenUtils.getFrameBufferPixels(gx, gy - 1, 1, 1, false);
-        frameBuffer.begin();
+    /**
+     * Copies a region of the previous frame into out as RGBA8888 ints, row by
+     * row. Pixels outside of the screen are 0.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param out array of at least w * h ints
+     */
+    public void getPixels(int x, int y, int w, int h, int[] out) {
+        getReadback().getPixels(x, y, w, h, out);
+    }
 
-        int re = 0xFF & b[0];
-        int gr = 0xFF & b[1];
-        int bl = 0xFF & b[2];
-        return Colors.rgbToColor(re + "," + gr + "," + bl);
-        //return (re + "," + gr + "," + bl);
+    /**
+     * Reads a pixel of an Art image. The image is decoded once and kept in
+     * the ImagePixelCache.
+     *
+     * @param name
+     * @param x
+     * @param y
+     * @return the Color of the image pixel
+     */
+    public Color getPixel(String name, int x, int y) {
+        return Mdx.graphics.newColor(getPixelRGBA(name, x, y));
     }
 
     public Color getPixel(String name, BigDecimal x, BigDecimal y) {
-        Pixmap pm = Mdx.graphics.newPixmap(Mdx.files.local(GameRuntime.getProgramPath() + "/Art/" + name));
-        Color c = Mdx.graphics.newColor(pm.getPixel(x.intValue(), y.intValue()));
-        pm.dispose();
-        return c;
+        return getPixel(name, x.intValue(), y.intValue());
     }
 
     public ArrayList<Color> getPixels(String name) {
-        Pixmap pm = Mdx.graphics.newPixmap(Mdx.files.local(GameRuntime.getProgramPath() + "/Art/" + name));
-        ArrayList<Color> colors = new ArrayList<>();
-        for (int y = 0; y < pm.getHeight(); y++) {
-            for (int x = 0; x < pm.getWidth(); x++) {
-                colors.add(Mdx.graphics.newColor(pm.getPixel(x, y)));
-            }
+        int[] pixels = ImagePixelCache.getImagePixelCache().getImage(name).pixels;
+        ArrayList<Color> colors = new ArrayList<>(pixels.length);
+        for (int p : pixels) {
+            colors.add(Mdx.graphics.newColor(p));
         }
-        pm.dispose();
         return colors;
     }
 
+    /**
+     * @param name
+     * @param x
+     * @param y
+     * @return the RGBA8888 color of the image pixel, 0 outside of the image
+     */
+    public int getPixelRGBA(String name, int x, int y) {
+        return ImagePixelCache.getImagePixelCache().getImage(name).getPixel(x, y);
+    }
+
+    public int getPixelRGBA(String name, BigDecimal x, BigDecimal y) {
+        return getPixelRGBA(name, x.intValue(), y.intValue());
+    }
+
+    /**
+     * Copies the pixels of an Art image row by row into out as RGBA8888 ints.
+     *
+     * @param name
+     * @param out array of at least width * height ints
+     */
+    public void copyPixels(String name, int[] out) {
+        int[] pixels = ImagePixelCache.getImagePixelCache().getImage(name).pixels;
+        System.arraycopy(pixels, 0, out, 0, pixels.length);
+    }
+
+    public int getImageWidth(String name) {
+        return ImagePixelCache.getImagePixelCache().getImage(name).width;
+    }
+
+    public int getImageHeight(String name) {
+        return ImagePixelCache.getImagePixelCache().getImage(name).height;
+    }
+
 //END EXPERIMENTAL
 }
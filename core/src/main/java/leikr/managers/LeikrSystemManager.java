@@ -38,6 +38,8 @@ public class LeikrSystemManager {
     private boolean RUNNING = true;
     AssetManager manager;
     MonospaceGameFont font;
+    //broadphase boxes of the running program
+    private final SpatialHash colliders = new SpatialHash();
     
     private static LeikrSystemManager instance;
 
@@ -56,6 +58,7 @@ public class LeikrSystemManager {
 
     private void reset() {
         manager.clearAssetLoaders();
+        colliders.clear(SpatialHash.DEFAULT_CELL_SIZE);
     }
 
     //START API
@@ -80,26 +83,74 @@ public class LeikrSystemManager {
     }
 
     //START Math functions
+    public float cos(float radians) {
+        return MathUtils.cos(radians);
+    }
+
+    public float cos(double radians) {
+        return MathUtils.cos((float) radians);
+    }
+
     public float cos(BigDecimal radians) {
         return MathUtils.cos(radians.floatValue());
     }
 
+    public float cosDeg(float deg) {
+        return MathUtils.cosDeg(deg);
+    }
+
+    public float cosDeg(double deg) {
+        return MathUtils.cosDeg((float) deg);
+    }
+
     public float cosDeg(BigDecimal deg) {
         return MathUtils.cosDeg(deg.floatValue());
     }
 
+    public float sin(float radians) {
+        return MathUtils.sin(radians);
+    }
+
+    public float sin(double radians) {
+        return MathUtils.sin((float) radians);
+    }
+
     public float sin(BigDecimal radians) {
         return MathUtils.sin(radians.floatValue());
     }
 
+    public float sinDeg(float deg) {
+        return MathUtils.sinDeg(deg);
+    }
+
+    public float sinDeg(double deg) {
+        return MathUtils.sinDeg((float) deg);
+    }
+
     public float sinDeg(BigDecimal deg) {
         return MathUtils.sinDeg(deg.floatValue());
     }
 
+    public int ceil(float value) {
+        return MathUtils.ceil(value);
+    }
+
+    public int ceil(double value) {
+        return MathUtils.ceil((float) value);
+    }
+
     public int ceil(BigDecimal value) {
         return MathUtils.ceil(value.floatValue());
     }
 
+    public int floor(float value) {
+        return MathUtils.floor(value);
+    }
+
+    public int floor(double value) {
+        return MathUtils.floor((float) value);
+    }
+
     public int floor(BigDecimal value) {
         return MathUtils.floor(value.floatValue());
     }
@@ -112,14 +163,38 @@ public class LeikrSystemManager {
         return MathUtils.random(start, end);
     }
 
+    public float randFloat(float range) {
+        return MathUtils.random(range);
+    }
+
+    public float randFloat(double range) {
+        return MathUtils.random((float) range);
+    }
+
     public float randFloat(BigDecimal range) {
         return MathUtils.random(range.floatValue());
     }
 
+    public float randFloat(float start, float end) {
+        return MathUtils.random(start, end);
+    }
+
+    public float randFloat(double start, double end) {
+        return MathUtils.random((float) start, (float) end);
+    }
+
     public float randFloat(BigDecimal start, BigDecimal end) {
         return MathUtils.random(start.floatValue(), end.floatValue());
     }
 
+    public int round(float number) {
+        return MathUtils.round(number);
+    }
+
+    public int round(double number) {
+        return MathUtils.round((float) number);
+    }
+
     public int round(BigDecimal number) {
         return MathUtils.round(number.floatValue());
     }
@@ -132,17 +207,125 @@ public class LeikrSystemManager {
         EngineScreen.pauseEngine();
     }
 
+    public boolean collides(int x1, int y1, int w1, int h1, int x2, int y2, int w2, int h2) {
+        return x1 + w1 >= x2 && x2 + w2 >= x1 && y1 + h1 >= y2 && y2 + h2 >= y1;
+    }
+
+    public boolean collides(float x1, float y1, float w1, float h1, float x2, float y2, float w2, float h2) {
+        return x1 + w1 >= x2 && x2 + w2 >= x1 && y1 + h1 >= y2 && y2 + h2 >= y1;
+    }
+
+    public boolean collides(double x1, double y1, double w1, double h1, double x2, double y2, double w2, double h2) {
+        return collides((float) x1, (float) y1, (float) w1, (float) h1, (float) x2, (float) y2, (float) w2, (float) h2);
+    }
+
     public boolean collides(BigDecimal x1, BigDecimal y1, BigDecimal w1, BigDecimal h1, BigDecimal x2, BigDecimal y2, BigDecimal w2, BigDecimal h2) {
-        return x1.floatValue() + w1.floatValue() >= x2.floatValue() && x2.floatValue() + w2.floatValue() >= x1.floatValue() && y1.floatValue() + h1.floatValue() >= y2.floatValue() && y2.floatValue() + h2.floatValue() >= y1.floatValue();
+        return collides(x1.floatValue(), y1.floatValue(), w1.floatValue(), h1.floatValue(), x2.floatValue(), y2.floatValue(), w2.floatValue(), h2.floatValue());
+    }
+
+    public boolean collides(int[] a, int[] b) {
+        return collides(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]);
+    }
+
+    public boolean collides(float[] a, float[] b) {
+        return collides(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]);
+    }
+
+    public boolean collides(double[] a, double[] b) {
+        return collides(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]);
     }
 
     public boolean collides(BigDecimal[] a, BigDecimal[] b) {
-        return a[0].floatValue() + a[2].floatValue() >= b[0].floatValue() && b[0].floatValue() + b[2].floatValue() >= a[0].floatValue() && a[1].floatValue() + a[3].floatValue() >= b[1].floatValue() && b[1].floatValue() + b[3].floatValue() >= a[1].floatValue();
+        return collides(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]);
+    }
+
+    public boolean point(int x, int y, int x2, int y2, int w, int h) {
+        return x >= x2 && x <= x2 + w && y >= y2 && y <= y2 + h;
+    }
+
+    public boolean point(float x, float y, float x2, float y2, float w, float h) {
+        return x >= x2 && x <= x2 + w && y >= y2 && y <= y2 + h;
+    }
+
+    public boolean point(double x, double y, double x2, double y2, double w, double h) {
+        return point((float) x, (float) y, (float) x2, (float) y2, (float) w, (float) h);
     }
 
     public boolean point(BigDecimal x, BigDecimal y, BigDecimal x2, BigDecimal y2, BigDecimal w, BigDecimal h) {
-        return x.floatValue() >= x2.floatValue() && x.floatValue() <= x2.floatValue() + w.floatValue() && y.floatValue() >= y2.floatValue() && y.floatValue() <= y2.floatValue() + h.floatValue();
+        return point(x.floatValue(), y.floatValue(), x2.floatValue(), y2.floatValue(), w.floatValue(), h.floatValue());
+    }
+
+    //START Broadphase
+    /**
+     * Removes every collider and sets the grid cell size. The cell size
+     * should be around the size of the common colliders.
+     *
+     * @param cellSize
+     */
+    public void clearColliders(float cellSize) {
+        colliders.clear(cellSize);
+    }
+
+    public void clearColliders() {
+        colliders.clear();
+    }
+
+    public int insertCollider(int x, int y, int w, int h) {
+        return colliders.insert(x, y, w, h);
+    }
+
+    public int insertCollider(float x, float y, float w, float h) {
+        return colliders.insert(x, y, w, h);
+    }
+
+    public int insertCollider(double x, double y, double w, double h) {
+        return colliders.insert((float) x, (float) y, (float) w, (float) h);
+    }
+
+    public int insertCollider(BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        return colliders.insert(x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue());
+    }
+
+    public void moveCollider(int id, int x, int y, int w, int h) {
+        colliders.move(id, x, y, w, h);
+    }
+
+    public void moveCollider(int id, float x, float y, float w, float h) {
+        colliders.move(id, x, y, w, h);
+    }
+
+    public void moveCollider(int id, double x, double y, double w, double h) {
+        colliders.move(id, (float) x, (float) y, (float) w, (float) h);
+    }
+
+    public void moveCollider(int id, BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h) {
+        colliders.move(id, x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue());
+    }
+
+    public void removeCollider(int id) {
+        colliders.remove(id);
+    }
+
+    public int queryRect(int x, int y, int w, int h, int[] out) {
+        return colliders.queryRect(x, y, w, h, out);
+    }
+
+    public int queryRect(float x, float y, float w, float h, int[] out) {
+        return colliders.queryRect(x, y, w, h, out);
+    }
+
+    public int queryRect(double x, double y, double w, double h, int[] out) {
+        return colliders.queryRect((float) x, (float) y, (float) w, (float) h, out);
+    }
+
+    public int queryRect(BigDecimal x, BigDecimal y, BigDecimal w, BigDecimal h, int[] out) {
+        return colliders.queryRect(x.floatValue(), y.floatValue(), w.floatValue(), h.floatValue(), out);
+    }
+
+    public int queryPairs(int[] out) {
+        return colliders.queryPairs(out);
     }
+    //END Broadphase
 
     //START EngineLoader API
     public void loadSpriteSheet(String sheetName) {
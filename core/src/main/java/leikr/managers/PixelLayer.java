@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.managers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import org.mini2Dx.core.Graphics;
+import org.mini2Dx.core.Mdx;
+import org.mini2Dx.core.graphics.Pixmap;
+import org.mini2Dx.core.graphics.PixmapFormat;
+import org.mini2Dx.core.graphics.Texture;
+
+/**
+ * A screen sized layer of RGBA8888 pixels kept in an int array.
+ *
+ * Pixel and shape operations only write into the array. The array is
+ * uploaded to a texture at most once per frame, when the layer is drawn after
+ * being changed, and the layer is drawn as a single quad. Once the array has
+ * been handed out with getPixels it is uploaded on every draw, since writes
+ * into it can not be seen.
+ *
+ * @author tor
+ */
+public class PixelLayer {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    private Pixmap pixmap;
+    private Texture texture;
+    private boolean dirty;
+    //true once the array was handed out, it may change at any time
+    private boolean exposed;
+
+    public PixelLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the backing array, one RGBA8888 int per pixel in rows of width
+     * pixels. Writes into it, also in later frames, are uploaded whenever the
+     * layer is drawn.
+     *
+     * @return the layer pixels
+     */
+    public int[] getPixels() {
+        exposed = true;
+        return pixels;
+    }
+
+    public void clear(int rgba) {
+        Arrays.fill(pixels, rgba);
+        dirty = true;
+    }
+
+    public int getPixel(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return 0;
+        }
+        return pixels[y * width + x];
+    }
+
+    public void setPixel(int rgba, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        pixels[y * width + x] = rgba;
+        dirty = true;
+    }
+
+    public void fillRect(int rgba, int x, int y, int w, int h) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + w, width);
+        int y1 = Math.min(y + h, height);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        for (int row = y0; row < y1; row++) {
+            Arrays.fill(pixels, row * width + x0, row * width + x1, rgba);
+        }
+        dirty = true;
+    }
+
+    public void drawRect(int rgba, int x, int y, int w, int h) {
+        SpanRasterizer.rect((sx, sy, sw, sh) -> fillRect(rgba, sx, sy, sw, sh), x, y, w, h);
+    }
+
+    /**
+     * Same rasterization as LeikrScreenManager.drawLineSegment.
+     */
+    public void drawLine(int rgba, int x0, int y0, int x1, int y1) {
+        SpanRasterizer.line((sx, sy, sw, sh) -> fillRect(rgba, sx, sy, sw, sh), x0, y0, x1, y1);
+    }
+
+    /**
+     * Same rasterization as LeikrScreenManager.drawCircle.
+     */
+    public void drawCircle(int rgba, int cx, int cy, int cr) {
+        SpanRasterizer.circle((sx, sy, sw, sh) -> fillRect(rgba, sx, sy, sw, sh), cx, cy, cr);
+    }
+
+    /**
+     * Uploads the layer if it changed since the last upload, or on every draw
+     * once the array was handed out, and draws it as a single quad.
+     *
+     * @param g
+     */
+    public void draw(Graphics g) {
+        if (null == texture) {
+            pixmap = Mdx.graphics.newPixmap(width, height, PixmapFormat.RGBA8888);
+            upload();
+            texture = Mdx.graphics.newTexture(pixmap);
+            dirty = false;
+        } else if (dirty || exposed) {
+            upload();
+            texture.draw(pixmap, 0, 0);
+            dirty = false;
+        }
+        g.drawTexture(texture, 0, 0);
+    }
+
+    private void upload() {
+        ByteBuffer buffer = pixmap.getPixels();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.position(0);
+        buffer.asIntBuffer().put(pixels);
+        buffer.position(0);
+    }
+
+    public void dispose() {
+        if (null != texture) {
+            texture.dispose();
+            texture = null;
+        }
+        if (null != pixmap) {
+            pixmap.dispose();
+            pixmap = null;
+        }
+        Arrays.fill(pixels, 0);
+        dirty = true;
+        exposed = false;
+    }
+}
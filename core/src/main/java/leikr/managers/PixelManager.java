@@ -15,16 +15,24 @@
  */
 package leikr.managers;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.mini2Dx.core.Graphics;
 import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.graphics.Color;
 import org.mini2Dx.core.graphics.Colors;
 import org.mini2Dx.core.graphics.Pixmap;
 import org.mini2Dx.core.graphics.PixmapFormat;
+import org.mini2Dx.core.graphics.Shader;
 import org.mini2Dx.core.graphics.Sprite;
 import org.mini2Dx.core.graphics.SpriteSheet;
+import org.mini2Dx.core.graphics.Texture;
 
 /**
  *
@@ -33,9 +41,53 @@ import org.mini2Dx.core.graphics.SpriteSheet;
 public class PixelManager {
 
     SpriteSheet pixels;
+    //the default palette, palette indexed sprites are mapped against it
+    List<Color> basePalette;
+    //the palette after swaps and fades
     List<Color> colorPalette;
+    int[] paletteRGBA;
+    //the colors fadePalette sets, reused by every fade
+    private Color[] fadeColors;
     private static PixelManager instance;
 
+    /*
+    Palette lookup.
+    
+    Palette indexed sprites store the palette id in the red channel. The
+    palette shader resolves the id against a 256x1 lookup texture, so swapping
+    or fading the palette is a single texture update.
+     */
+    public static final int LUT_SIZE = 256;
+    private static final String PALETTE_VERTEX = "attribute vec4 a_position;\n"
+            + "attribute vec4 a_color;\n"
+            + "attribute vec2 a_texCoord0;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "void main() {\n"
+            + "    v_color = a_color;\n"
+            + "    v_color.a = v_color.a * (255.0/254.0);\n"
+            + "    v_texCoords = a_texCoord0;\n"
+            + "    gl_Position = u_projTrans * a_position;\n"
+            + "}\n";
+    private static final String PALETTE_FRAGMENT = "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "uniform sampler2D u_texture;\n"
+            + "uniform sampler2D u_palette;\n"
+            + "void main() {\n"
+            + "    vec4 index = texture2D(u_texture, v_texCoords);\n"
+            + "    vec4 color = texture2D(u_palette, vec2((floor(index.r * 255.0 + 0.5) + 0.5) / " + LUT_SIZE + ".0, 0.5));\n"
+            + "    gl_FragColor = v_color * vec4(color.rgb, color.a * index.a);\n"
+            + "}\n";
+    private Shader paletteShader;
+    private boolean shaderFailed;
+    private Pixmap palettePixmap;
+    private Texture paletteTexture;
+    private boolean paletteDirty;
+
     private PixelManager() {
         createPalette();
         createPixmap();
@@ -49,28 +101,44 @@ public class PixelManager {
     }
 
     public Color getDrawColor(int color) {
-        if (color > colorPalette.size() || color < 0) {
+        if (color >= colorPalette.size() || color < 0) {
             return Colors.BLACK();
         }
         return colorPalette.get(color);
     }
 
+    /**
+     * @param color palette index
+     * @return the palette color as an RGBA8888 int
+     */
+    public int getDrawRGBA(int color) {
+        if (color >= paletteRGBA.length || color < 0) {
+            return Colors.BLACK().rgba8888();
+        }
+        return paletteRGBA[color];
+    }
+
     public Sprite getSprite(int id) {
         return pixels.getSprite(id);
     }
 
     private void createPalette() {
-        colorPalette = Arrays.asList(Colors.CLEAR(), Colors.WHITE(), Colors.WHITE_M1(), Colors.LIGHT_GRAY(), Colors.GRAY(),
+        basePalette = Arrays.asList(Colors.CLEAR(), Colors.WHITE(), Colors.WHITE_M1(), Colors.LIGHT_GRAY(), Colors.GRAY(),
                 Colors.DARK_GRAY(), Colors.BLACK_P1(), Colors.BLACK(), Colors.RED(), Colors.GREEN(), Colors.BLUE(), Colors.MAROON(),
                 Colors.CORAL(), Colors.SALMON(), Colors.PINK(), Colors.LIME(), Colors.FOREST(), Colors.OLIVE(), Colors.NAVY(), Colors.ROYAL(), Colors.SKY(),
                 Colors.CYAN(), Colors.TEAL(), Colors.YELLOW(), Colors.GOLD(), Colors.GOLDENROD(), Colors.ORANGE(),
                 Colors.BROWN(), Colors.TAN(), Colors.FIREBRICK(), Colors.PURPLE(), Colors.VIOLET(), Colors.MAGENTA());
+        colorPalette = new ArrayList<>(basePalette);
+        paletteRGBA = new int[colorPalette.size()];
+        for (int i = 0; i < paletteRGBA.length; i++) {
+            paletteRGBA[i] = colorPalette.get(i).rgba8888();
+        }
     }
 
     private void createPixmap() {
-        Pixmap pm = Mdx.graphics.newPixmap(colorPalette.size(), 1, PixmapFormat.RGBA8888);
-        for (int i = 0; i < colorPalette.size(); i++) {
-            pm.setColor(getDrawColor(i));
+        Pixmap pm = Mdx.graphics.newPixmap(basePalette.size(), 1, PixmapFormat.RGBA8888);
+        for (int i = 0; i < basePalette.size(); i++) {
+            pm.setColor(basePalette.get(i));
             pm.drawPixel(i, 0);
         }
         pixels = new SpriteSheet(Mdx.graphics.newTexture(pm), 1, 1);
@@ -80,4 +148,159 @@ public class PixelManager {
     public void drawPixel(Graphics g, int id, int x, int y) {
         g.drawSprite(getSprite(id), x, y);
     }
+
+    //START palette methods
+    public int getPaletteSize() {
+        return colorPalette.size();
+    }
+
+    public void setPaletteColor(int id, Color color) {
+        if (id < 0 || id >= colorPalette.size()) {
+            return;
+        }
+        colorPalette.set(id, color);
+        paletteRGBA[id] = color.rgba8888();
+        paletteDirty = true;
+    }
+
+    /**
+     * Replaces the palette colors, starting at id 0.
+     *
+     * @param rgba packed RGBA8888 colors
+     */
+    public void setPalette(int[] rgba) {
+        for (int i = 0; i < rgba.length && i < colorPalette.size(); i++) {
+            setPaletteColor(i, Mdx.graphics.newColor(rgba[i]));
+        }
+    }
+
+    /**
+     * Fades every color of the default palette towards a target color. The
+     * clear color at id 0 is left alone.
+     *
+     * @param target the color to fade to
+     * @param amount 0 for the default palette, 1 for the target color
+     */
+    public void fadePalette(Color target, float amount) {
+        float a = Math.max(0f, Math.min(1f, amount));
+        if (null == fadeColors) {
+            fadeColors = new Color[basePalette.size()];
+            for (int i = 1; i < fadeColors.length; i++) {
+                fadeColors[i] = basePalette.get(i).copy();
+            }
+        }
+        for (int i = 1; i < basePalette.size(); i++) {
+            Color base = basePalette.get(i);
+            setPaletteColor(i, fadeColors[i].set(
+                    base.rf() + (target.rf() - base.rf()) * a,
+                    base.gf() + (target.gf() - base.gf()) * a,
+                    base.bf() + (target.bf() - base.bf()) * a,
+                    base.af()));
+        }
+    }
+
+    public void resetPalette() {
+        for (int i = 0; i < basePalette.size(); i++) {
+            setPaletteColor(i, basePalette.get(i));
+        }
+    }
+
+    /**
+     * @param rgba packed RGBA8888 color
+     * @return true when the color is fully transparent or its RGB is a color
+     * of the default palette
+     */
+    public boolean isPaletteColor(int rgba) {
+        if ((rgba & 0xFF) == 0) {
+            return true;
+        }
+        for (Color c : basePalette) {
+            if ((c.rgba8888() ^ rgba) >>> 8 == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the default palette id closest to a color. Used to turn sprite
+     * sheets into palette indexed sheets.
+     *
+     * @param rgba packed RGBA8888 color
+     * @return the closest palette id, 0 for fully transparent colors
+     */
+    public int findPaletteIndex(int rgba) {
+        if ((rgba & 0xFF) == 0) {
+            return 0;
+        }
+        int r = rgba >>> 24;
+        int g = (rgba >>> 16) & 0xFF;
+        int b = (rgba >>> 8) & 0xFF;
+        int best = 1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 1; i < basePalette.size(); i++) {
+            int p = basePalette.get(i).rgba8888();
+            int dr = r - (p >>> 24);
+            int dg = g - ((p >>> 16) & 0xFF);
+            int db = b - ((p >>> 8) & 0xFF);
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the palette shader with the current palette bound to texture
+     * unit 1, or null when the shader can not be compiled on this device.
+     *
+     * @return the palette shader
+     */
+    public Shader getPaletteShader() {
+        if (null == paletteShader && !shaderFailed) {
+            paletteShader = Mdx.graphics.newShader(PALETTE_VERTEX, PALETTE_FRAGMENT);
+            if (!paletteShader.isCompiled()) {
+                Logger.getLogger(PixelManager.class.getName()).log(Level.WARNING, "Palette shader not available: {0}", paletteShader.getLog());
+                paletteShader.dispose();
+                paletteShader = null;
+                shaderFailed = true;
+            }
+        }
+        return paletteShader;
+    }
+
+    /**
+     * Uploads the palette lookup texture when the palette changed. The
+     * texture lives on unit 1 so the sprite batch texture on unit 0 is never
+     * disturbed by an upload.
+     *
+     * @return the palette lookup texture
+     */
+    public Texture getPaletteTexture() {
+        if (null == paletteTexture || paletteDirty) {
+            if (null == palettePixmap) {
+                palettePixmap = Mdx.graphics.newPixmap(LUT_SIZE, 1, PixmapFormat.RGBA8888);
+            }
+            ByteBuffer buffer = palettePixmap.getPixels();
+            buffer.position(0);
+            for (int i = 0; i < LUT_SIZE; i++) {
+                int c = i < paletteRGBA.length ? paletteRGBA[i] : 0;
+                buffer.put((byte) (c >>> 24)).put((byte) (c >>> 16)).put((byte) (c >>> 8)).put((byte) c);
+            }
+            buffer.position(0);
+
+            Gdx.gl.glActiveTexture(GL20.GL_TEXTURE1);
+            if (null == paletteTexture) {
+                paletteTexture = Mdx.graphics.newTexture(palettePixmap);
+            } else {
+                paletteTexture.draw(palettePixmap, 0, 0);
+            }
+            Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+            paletteDirty = false;
+        }
+        return paletteTexture;
+    }
+    //END palette methods
 }
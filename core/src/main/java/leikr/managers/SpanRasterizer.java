@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.managers;
+
+/**
+ * Rasterizes the outline shapes into horizontal and vertical runs of pixels
+ * instead of single pixels.
+ *
+ * The runs cover exactly the pixels of the per pixel Bresenham line and
+ * midpoint circle, including the pixels the old code drew twice, so the
+ * output does not change.
+ *
+ * @author tor
+ */
+public class SpanRasterizer {
+
+    /**
+     * Receives a run of pixels. Either w or h is 1.
+     */
+    public interface SpanTarget {
+
+        void span(int x, int y, int w, int h);
+    }
+
+    private SpanRasterizer() {
+    }
+
+    public static void rect(SpanTarget t, int x, int y, int w, int h) {
+        if (w > 0) {
+            t.span(x, y, w, 1);
+            t.span(x, y + h - 1, w, 1);
+        }
+        if (h > 0) {
+            t.span(x, y, 1, h);
+            t.span(x + w - 1, y, 1, h);
+        }
+    }
+
+    /**
+     * Horizontal and vertical lines exclude the end point, other lines
+     * include it.
+     */
+    public static void line(SpanTarget t, int x0, int y0, int x1, int y1) {
+        if (y0 == y1) {
+            if (x0 != x1) {
+                t.span(Math.min(x0, x1), y0, Math.abs(x1 - x0), 1);
+            }
+            return;
+        }
+        if (x0 == x1) {
+            t.span(x0, Math.min(y0, y1), 1, Math.abs(y1 - y0));
+            return;
+        }
+
+        int dx = Math.abs(x1 - x0);
+        int sx = x0 < x1 ? 1 : -1;
+        int dy = -Math.abs(y1 - y0);
+        int sy = y0 < y1 ? 1 : -1;
+
+        //the current run starts at rx,ry and covers rl pixels along the major axis
+        boolean horizontal = dx >= -dy;
+        int rx = x0;
+        int ry = y0;
+        int rl = 0;
+
+        int err = dx + dy;
+        while (true) {
+            if (rl > 0 && (horizontal ? y0 != ry : x0 != rx)) {
+                emit(t, horizontal, rx, ry, rl, horizontal ? sx : sy);
+                rx = x0;
+                ry = y0;
+                rl = 0;
+            }
+            rl++;
+            if (x0 == x1 && y0 == y1) {
+                break;
+            }
+
+            int e2 = 2 * err;
+            if (e2 >= dy) {
+                err += dy;
+                x0 += sx;
+            }
+            if (e2 <= dx) {
+                err += dx;
+                y0 += sy;
+            }
+        }
+        emit(t, horizontal, rx, ry, rl, horizontal ? sx : sy);
+    }
+
+    private static void emit(SpanTarget t, boolean horizontal, int x, int y, int length, int step) {
+        if (horizontal) {
+            t.span(step > 0 ? x : x - length + 1, y, length, 1);
+        } else {
+            t.span(x, step > 0 ? y : y - length + 1, 1, length);
+        }
+    }
+
+    /**
+     * Midpoint circle. Steps that keep the same ny form one run in each of
+     * the eight octants.
+     */
+    public static void circle(SpanTarget t, int cx, int cy, int cr) {
+        int d = 3 - 2 * cr;
+        int nx = 0;
+        int ny = cr;
+        int start = 0;
+        while (nx <= ny) {
+            int runY = ny;
+            if (d <= 0) {
+                d += 4 * nx + 6;
+            } else {
+                ny += -1;
+                d += 4 * (nx - ny) + 10;
+            }
+            if (ny != runY || nx + 1 > ny) {
+                octants(t, cx, cy, start, nx, runY);
+                start = nx + 1;
+            }
+            nx++;
+        }
+    }
+
+    private static void octants(SpanTarget t, int cx, int cy, int a, int b, int n) {
+        int len = b - a + 1;
+        t.span(cx + a, cy + n, len, 1);
+        t.span(cx + a, cy - n, len, 1);
+        t.span(cx - b, cy + n, len, 1);
+        t.span(cx - b, cy - n, len, 1);
+
+        t.span(cx + n, cy + a, 1, len);
+        t.span(cx + n, cy - b, 1, len);
+        t.span(cx - n, cy + a, 1, len);
+        t.span(cx - n, cy - b, 1, len);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2019 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package leikr.managers;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of boxes for finding the boxes that overlap, without testing
+ * every pair.
+ *
+ * Boxes are kept in primitive arrays and referenced by an int id. Every box is
+ * listed in each grid cell it touches. Cells are hashed into a fixed number of
+ * buckets, so the grid has no bounds. Overlap uses the same inclusive test as
+ * LeikrSystemManager.collides.
+ *
+ * Boxes spanning more than MAX_SPAN cells, or with bounds that are not finite
+ * or too far out, are kept in a list beside the grid and tested on every
+ * query. Queries that large test every box instead of walking cells.
+ *
+ * @author tor
+ */
+public class SpatialHash {
+
+    public static final int DEFAULT_CELL_SIZE = 32;
+    private static final int BUCKETS = 4096;
+    //cells a box or query may span on an axis to use the grid
+    private static final int MAX_SPAN = 64;
+    //cells further out are not used, so cell loops can not overflow
+    private static final int MAX_CELL = 1 << 24;
+
+    private float cellSize;
+
+    //per box
+    private float[] minX = new float[64];
+    private float[] minY = new float[64];
+    private float[] maxX = new float[64];
+    private float[] maxY = new float[64];
+    //cell range of a box, cellX1 is -1 for free ids
+    private int[] cellX0 = new int[64];
+    private int[] cellY0 = new int[64];
+    private int[] cellX1 = new int[64];
+    private int[] cellY1 = new int[64];
+    //stamp of the last query that reported the box
+    private int[] seen = new int[64];
+    //boxes kept beside the grid
+    private boolean[] wide = new boolean[64];
+    private int[] wideIds = new int[16];
+    private int wideCount;
+    private int stamp;
+    private int boxes;
+    private int[] freeIds = new int[16];
+    private int freeCount;
+
+    //bucket lists, nodes link a box into one bucket
+    private final int[] heads = new int[BUCKETS];
+    private int[] nodeBox = new int[256];
+    private int[] nodeNext = new int[256];
+    private int nodes;
+    private int freeNode = -1;
+
+    public SpatialHash() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialHash(float cellSize) {
+        this.cellSize = cellSize > 0 ? cellSize : DEFAULT_CELL_SIZE;
+        Arrays.fill(heads, -1);
+    }
+
+    /**
+     * Removes every box and sets the cell size, which should be around the
+     * size of the common boxes.
+     *
+     * @param cellSize
+     */
+    public void clear(float cellSize) {
+        this.cellSize = cellSize > 0 ? cellSize : DEFAULT_CELL_SIZE;
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(heads, -1);
+        nodes = 0;
+        freeNode = -1;
+        boxes = 0;
+        freeCount = 0;
+        wideCount = 0;
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @return the id of the new box
+     */
+    public int insert(float x, float y, float w, float h) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = boxes++;
+            if (id == minX.length) {
+                grow(id * 2);
+            }
+        }
+        setBounds(id, x, y, w, h);
+        link(id);
+        return id;
+    }
+
+    /**
+     * Moves a box, it only changes cells when it moved out of the ones it
+     * touched.
+     *
+     * @param id
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     */
+    public void move(int id, float x, float y, float w, float h) {
+        if (!isBox(id)) {
+            return;
+        }
+        setBounds(id, x, y, w, h);
+        if (!wide[id] && fits(minX[id], minY[id], maxX[id], maxY[id])
+                && cell(minX[id]) == cellX0[id] && cell(minY[id]) == cellY0[id]
+                && cell(maxX[id]) == cellX1[id] && cell(maxY[id]) == cellY1[id]) {
+            return;
+        }
+        unlink(id);
+        link(id);
+    }
+
+    public void remove(int id) {
+        if (!isBox(id)) {
+            return;
+        }
+        unlink(id);
+        cellX1[id] = -1;
+        cellX0[id] = 0;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    public boolean isBox(int id) {
+        return id >= 0 && id < boxes && cellX1[id] >= cellX0[id];
+    }
+
+    /**
+     * Finds the boxes overlapping a rectangle.
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param out receives the ids
+     * @return the number of ids written, at most out.length
+     */
+    public int queryRect(float x, float y, float w, float h, int[] out) {
+        return query(Math.min(x, x + w), Math.min(y, y + h), Math.max(x, x + w), Math.max(y, y + h), -1, out, 0, 1);
+    }
+
+    /**
+     * Finds every pair of overlapping boxes, each pair once.
+     *
+     * @param out receives the pairs as two ids each, the lower id first
+     * @return the number of pairs written, at most out.length / 2
+     */
+    public int queryPairs(int[] out) {
+        int written = 0;
+        for (int a = 0; a < boxes && written * 2 + 1 < out.length; a++) {
+            if (isBox(a)) {
+                written += query(minX[a], minY[a], maxX[a], maxY[a], a, out, written * 2, 2);
+            }
+        }
+        return written;
+    }
+
+    //writes ids of boxes above skip, or pairs with skip when step is 2
+    private int query(float x0, float y0, float x1, float y1, int skip, int[] out, int offset, int step) {
+        int limit = (out.length - offset) / step;
+        int written = 0;
+        stamp++;
+        if (!fits(x0, y0, x1, y1)) {
+            for (int b = skip + 1; b < boxes && written < limit; b++) {
+                if (isBox(b) && overlaps(b, skip, x0, y0, x1, y1)) {
+                    write(out, offset + written++ * step, skip, b, step);
+                }
+            }
+            return written;
+        }
+        for (int i = 0; i < wideCount && written < limit; i++) {
+            int b = wideIds[i];
+            if (overlaps(b, skip, x0, y0, x1, y1)) {
+                write(out, offset + written++ * step, skip, b, step);
+            }
+        }
+        int cx1 = cell(x1);
+        int cy1 = cell(y1);
+        for (int cy = cell(y0); cy <= cy1; cy++) {
+            for (int cx = cell(x0); cx <= cx1; cx++) {
+                for (int n = heads[bucket(cx, cy)]; n != -1 && written < limit; n = nodeNext[n]) {
+                    int b = nodeBox[n];
+                    if (overlaps(b, skip, x0, y0, x1, y1)) {
+                        write(out, offset + written++ * step, skip, b, step);
+                    }
+                }
+            }
+        }
+        return written;
+    }
+
+    //marks the box seen, true the first time a query finds it overlapping
+    private boolean overlaps(int b, int skip, float x0, float y0, float x1, float y1) {
+        if (b <= skip || seen[b] == stamp) {
+            return false;
+        }
+        seen[b] = stamp;
+        return maxX[b] >= x0 && x1 >= minX[b] && maxY[b] >= y0 && y1 >= minY[b];
+    }
+
+    private static void write(int[] out, int at, int skip, int b, int step) {
+        if (step == 2) {
+            out[at++] = skip;
+        }
+        out[at] = b;
+    }
+
+    private void setBounds(int id, float x, float y, float w, float h) {
+        minX[id] = Math.min(x, x + w);
+        minY[id] = Math.min(y, y + h);
+        maxX[id] = Math.max(x, x + w);
+        maxY[id] = Math.max(y, y + h);
+    }
+
+    private int cell(float v) {
+        return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, Math.floor(v / cellSize)));
+    }
+
+    //false for NaN and infinite bounds too
+    private boolean fits(float x0, float y0, float x1, float y1) {
+        float limit = (float) MAX_CELL * cellSize;
+        return x0 > -limit && y0 > -limit && x1 < limit && y1 < limit
+                && cell(x1) - cell(x0) < MAX_SPAN && cell(y1) - cell(y0) < MAX_SPAN;
+    }
+
+    private static int bucket(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & (BUCKETS - 1);
+    }
+
+    private void link(int id) {
+        wide[id] = !fits(minX[id], minY[id], maxX[id], maxY[id]);
+        if (wide[id]) {
+            //an empty cell range that still marks the id as a box
+            cellX0[id] = 0;
+            cellX1[id] = 0;
+            cellY0[id] = 0;
+            cellY1[id] = -1;
+            if (wideCount == wideIds.length) {
+                wideIds = Arrays.copyOf(wideIds, wideCount * 2);
+            }
+            wideIds[wideCount++] = id;
+            return;
+        }
+        cellX0[id] = cell(minX[id]);
+        cellY0[id] = cell(minY[id]);
+        cellX1[id] = cell(maxX[id]);
+        cellY1[id] = cell(maxY[id]);
+        for (int cy = cellY0[id]; cy <= cellY1[id]; cy++) {
+            for (int cx = cellX0[id]; cx <= cellX1[id]; cx++) {
+                int n = newNode();
+                int b = bucket(cx, cy);
+                nodeBox[n] = id;
+                nodeNext[n] = heads[b];
+                heads[b] = n;
+            }
+        }
+    }
+
+    //a box may be listed in a bucket more than once when its cells share it
+    private void unlink(int id) {
+        if (wide[id]) {
+            for (int i = 0; i < wideCount; i++) {
+                if (wideIds[i] == id) {
+                    wideIds[i] = wideIds[--wideCount];
+                    break;
+                }
+            }
+            wide[id] = false;
+            return;
+        }
+        for (int cy = cellY0[id]; cy <= cellY1[id]; cy++) {
+            for (int cx = cellX0[id]; cx <= cellX1[id]; cx++) {
+                int b = bucket(cx, cy);
+                int prev = -1;
+                for (int n = heads[b]; n != -1; prev = n, n = nodeNext[n]) {
+                    if (nodeBox[n] == id) {
+                        if (prev == -1) {
+                            heads[b] = nodeNext[n];
+                        } else {
+                            nodeNext[prev] = nodeNext[n];
+                        }
+                        nodeNext[n] = freeNode;
+                        freeNode = n;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private int newNode() {
+        if (freeNode != -1) {
+            int n = freeNode;
+            freeNode = nodeNext[n];
+            return n;
+        }
+        if (nodes == nodeBox.length) {
+            nodeBox = Arrays.copyOf(nodeBox, nodes * 2);
+            nodeNext = Arrays.copyOf(nodeNext, nodes * 2);
+        }
+        return nodes++;
+    }
+
+    private void grow(int size) {
+        minX = Arrays.copyOf(minX, size);
+        minY = Arrays.copyOf(minY, size);
+        maxX = Arrays.copyOf(maxX, size);
+        maxY = Arrays.copyOf(maxY, size);
+        cellX0 = Arrays.copyOf(cellX0, size);
+        cellY0 = Arrays.copyOf(cellY0, size);
+        cellX1 = Arrays.copyOf(cellX1, size);
+        cellY1 = Arrays.copyOf(cellY1, size);
+        seen = Arrays.copyOf(seen, size);
+        wide = Arrays.copyOf(wide, size);
+    }
+}
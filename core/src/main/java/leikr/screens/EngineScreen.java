@@ -18,10 +18,15 @@ package leikr.screens;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import io.anuke.gif.GifRecorder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import leikr.Engine;
 import leikr.GameRuntime;
+import leikr.loaders.CompileService;
 import leikr.loaders.EngineLoader;
 import leikr.managers.LeikrSystemManager;
 import org.mini2Dx.core.Graphics;
@@ -53,6 +58,15 @@ public class EngineScreen extends BasicGameScreen {
     SpriteBatch gifBatch;
     GifRecorder recorder;
 
+    //loads the Engine of a code reload while the running one keeps going
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Leikr-Reload");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<Engine> reload;
+    private EngineLoader reloadLoader;
+
     private static String[] engineArgs;
 
     private static boolean CONFIRM = false;
@@ -99,7 +113,7 @@ public class EngineScreen extends BasicGameScreen {
             engineState = EngineState.BACK;
         } else {
             engineState = EngineState.RUNNING;
-            //engine.lAudio.resumeAllAudio();
+            engine.lAudio.resumeAudio();
             engine.onResume();
         }
     }
@@ -108,6 +122,7 @@ public class EngineScreen extends BasicGameScreen {
         if (null != engine) {
             engine.setActive(false);
         }
+        CompileService.getCompileService().stop();
         if (GameRuntime.checkLaunchTitle()) {
             Mdx.platformUtils.exit(false);
         } else {
@@ -131,6 +146,74 @@ public class EngineScreen extends BasicGameScreen {
         sm.enterGameScreen(LoadScreen.ID, null, null);
     }
 
+    /**
+     * Starts a code reload that swaps only the Engine class. The new class is
+     * loaded in a fresh class loader on a worker thread while the running
+     * program keeps going, and the sprites, images, maps and audio stay
+     * loaded. The code cache is kept current by the CompileService so this
+     * is usually just class loading.
+     */
+    void hotReloadEngine() {
+        if (null != reload) {
+            return;
+        }
+        EngineLoader loader = EngineLoader.newEngineLoader();
+        reloadLoader = loader;
+        reload = reloader.submit(loader);
+    }
+
+    /**
+     * Swaps in the Engine of a finished code reload. When it failed to load,
+     * the running Engine is kept.
+     */
+    void finishHotReload() {
+        EngineLoader loader = reloadLoader;
+        Engine next;
+        try {
+            next = reload.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            Throwable cause = (null != ex.getCause()) ? ex.getCause() : ex;
+            Logger.getLogger(EngineScreen.class.getName()).log(Level.SEVERE, "Error reloading program, keeping the running code. {0}", cause.getMessage());
+            loader.destroy();
+            return;
+        } finally {
+            reload = null;
+            reloadLoader = null;
+        }
+        if (null == next) {
+            Logger.getLogger(EngineScreen.class.getName()).log(Level.SEVERE, "Error reloading program, keeping the running code.");
+            loader.destroy();
+            return;
+        }
+        if (null != engine) {
+            engine.setActive(false);
+            engine.dispose(true);
+        }
+        EngineLoader.setEngineLoader(loader);
+        engine = next;
+        try {
+            engineState = EngineState.RUNNING;
+            system.setRunning(true);
+            engine.preCreate(loader.cp.MAX_SPRITES, system, viewport, frameBuffer, false);
+            engine.create(engineArgs);
+            engine.create();
+            Logger.getLogger(EngineScreen.class.getName()).log(Level.INFO, "Engine code reloaded.");
+        } catch (Exception ex) {
+            engineState = EngineState.ERROR;
+            errorMessage = "Error reloading program. " + ex.getLocalizedMessage();
+            Logger.getLogger(EngineScreen.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    //drops a code reload that has not finished when the program is left
+    private void cancelHotReload() {
+        if (null != reload) {
+            reload.cancel(true);
+            reload = null;
+        }
+        reloadLoader = null;
+    }
+
     public void setEngine(Engine engine) {
         this.engine = engine;
     }
@@ -142,6 +225,7 @@ public class EngineScreen extends BasicGameScreen {
 
     @Override
     public void postTransitionOut(Transition transition) {
+        cancelHotReload();
         if (null != engine) {
             engine.setActive(false);
             engine.dispose();
@@ -182,7 +266,15 @@ public class EngineScreen extends BasicGameScreen {
 
     @Override
     public void update(GameContainer gc, ScreenManager<? extends GameScreen> sm, float delta) {
-        if (Mdx.input.isKeyJustPressed(Keys.F5) || Mdx.input.isKeyDown(Keys.CONTROL_LEFT) && Mdx.input.isKeyJustPressed(Keys.R) || Mdx.input.isKeyJustPressed(Keys.HOME)) {
+        //F5 and Ctrl+R reload only the code, HOME reloads the assets too
+        if (Mdx.input.isKeyJustPressed(Keys.F5) || Mdx.input.isKeyDown(Keys.CONTROL_LEFT) && Mdx.input.isKeyJustPressed(Keys.R)) {
+            hotReloadEngine();
+        }
+        if (null != reload && reload.isDone()) {
+            finishHotReload();
+            return;
+        }
+        if (Mdx.input.isKeyJustPressed(Keys.HOME)) {
             reloadEngine(sm);
         }
         if (Mdx.input.isKeyJustPressed(Keys.ESCAPE)) {
@@ -286,6 +378,7 @@ public class EngineScreen extends BasicGameScreen {
         try {
             engine.preRender(g);
             engine.render();
+            engine.postRender();
         } catch (Exception ex) {
             engineState = EngineState.ERROR;
             errorMessage = "Error in program `render` method. " + ex.getLocalizedMessage();
@@ -15,19 +15,17 @@
  */
 package leikr.screens;
 
-import java.util.ArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import leikr.Engine;
 import leikr.GameRuntime;
-import leikr.loaders.EngineLoader;
+import leikr.loaders.AssetPipeline;
 import org.mini2Dx.core.Graphics;
+import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.assets.AssetManager;
 import org.mini2Dx.core.game.GameContainer;
+import org.mini2Dx.core.graphics.Color;
 import org.mini2Dx.core.graphics.Colors;
 import org.mini2Dx.core.graphics.Texture;
 import org.mini2Dx.core.graphics.viewport.FitViewport;
@@ -45,32 +43,27 @@ public class LoadScreen extends BasicGameScreen {
     public static int ID = 4;
 
     FitViewport viewport;
-    ExecutorService service;
-    Future<Engine> engineGetter;
+    AssetPipeline pipeline;
 
     AssetManager assetManager;
     String loadPhrase = "Loading ";
     int frame = 0;
-    ArrayList<Integer> barItems;
+    //reused every frame for the pulsing program name
+    Color nameColor;
 
     public LoadScreen(AssetManager assetManager, FitViewport vp) {
         this.assetManager = assetManager;
         assetManager.load("./Data/Images/leikr-logo.png", Texture.class);
         assetManager.finishLoading();
-        
-        service = Executors.newFixedThreadPool(1);
-        viewport = vp;
 
-        barItems = new ArrayList<>();
-        barItems.add(12);
-        barItems.add(-56);
-        barItems.add(60);
+        pipeline = AssetPipeline.getAssetPipeline();
+        viewport = vp;
+        nameColor = Mdx.graphics.newColor(0f, 0f, 0f, 1f);
     }
 
     @Override
     public void preTransitionIn(Transition transition) {
-        service = Executors.newFixedThreadPool(1);
-        engineGetter = service.submit(EngineLoader.getEngineLoader(true));
+        pipeline.start();
     }
 
     @Override
@@ -79,15 +72,20 @@ public class LoadScreen extends BasicGameScreen {
 
     @Override
     public void update(GameContainer gc, ScreenManager<? extends GameScreen> sm, float f) {
-        if (engineGetter.isDone()) {
+        pipeline.update();
+        if (pipeline.isEngineLoaded()) {
             try {
-                EngineScreen scrn = (EngineScreen) sm.getGameScreen(EngineScreen.ID);
-                scrn.setEngine(engineGetter.get());
-                service.shutdown();
-                sm.enterGameScreen(EngineScreen.ID, null, null);
+                Engine engine = pipeline.getEngine();
+                if (pipeline.isDone()) {
+                    EngineScreen scrn = (EngineScreen) sm.getGameScreen(EngineScreen.ID);
+                    scrn.setEngine(engine);
+                    sm.enterGameScreen(EngineScreen.ID, null, null);
+                }
             } catch (InterruptedException | ExecutionException ex) {
-                service.shutdownNow();
-                ErrorScreen.setErrorMessage("Error loading engine: " + ex.getMessage());
+                pipeline.cancel();
+                //compile errors (e.g. from compile_mode=static) arrive wrapped in the ExecutionException
+                Throwable cause = (null != ex.getCause()) ? ex.getCause() : ex;
+                ErrorScreen.setErrorMessage("Error loading engine: " + cause.getMessage());
                 sm.enterGameScreen(ErrorScreen.ID, null, null);
                 Logger.getLogger(LoadScreen.class.getName()).log(Level.SEVERE, null, ex);
             }
@@ -102,7 +100,6 @@ public class LoadScreen extends BasicGameScreen {
         } else if (frame % 25 <= 20) {
             loadPhrase = "...";
         }
-        translateArrayPositions();
         ++frame;
     }
 
@@ -113,26 +110,21 @@ public class LoadScreen extends BasicGameScreen {
     @Override
     public void render(GameContainer gc, Graphics g) {
         viewport.apply(g);
-        if (!engineGetter.isDone()) {
+        if (!pipeline.isDone()) {
             // logo and loading
             g.drawTexture(assetManager.get("./Data/Images/leikr-logo.png", Texture.class), 80, 64, 48, 16);
             g.setColor(Colors.WHITE());
             g.drawString("Loading", 96, 73);
 
             // draw game name
-            g.setColor(Colors.rgbToColor(0 + "," + (155 + (frame * 2) % 100) + "," + 0));
+            nameColor.set(0f, (155 + (frame * 2) % 100) / 255f, 0f, 1f);
+            g.setColor(nameColor);
             g.drawString(GameRuntime.GAME_NAME + loadPhrase, 128, 73);
             
-            // loading bar
-            g.setColor(Colors.RED());
-            g.fillRect(82+Math.abs(barItems.get(0)), 80, 6, 4);
-            g.setColor(Colors.GREEN());
-            g.fillRect(82+Math.abs(barItems.get(1)), 80, 6, 4);
-            g.setColor(Colors.BLUE());
-            g.fillRect(82+Math.abs(barItems.get(2)), 80, 6, 4);
-
-            g.setColor(Colors.WHITE());
-            g.drawRect(82, 80, 80, 4);
+            // a progress bar for the code, images and audio
+            drawProgress(g, AssetPipeline.CODE, Colors.RED());
+            drawProgress(g, AssetPipeline.IMAGES, Colors.GREEN());
+            drawProgress(g, AssetPipeline.AUDIO, Colors.BLUE());
         }
     }
 
@@ -141,23 +133,13 @@ public class LoadScreen extends BasicGameScreen {
         return ID;
     }
 
-    private void translateArrayPositions() {
-        for (int i=0; i<barItems.size(); i++) {
-            Integer num = barItems.get(i);
-            // separate the sign
-            int sign = (num != 0) ? num / Math.abs(num) : 1;
-            num = Math.abs(num);
-
-            if (sign == 1) {
-                num++;
-            } else {
-                num--;
-            }
-            if (num <= 0 || num >= 74) {
-                sign = -sign;
-            }
-            barItems.set(i, num * sign);
-        }
+    private void drawProgress(Graphics g, int kind, Color color) {
+        int y = 80 + kind * 8;
+        g.setColor(color);
+        g.fillRect(82, y, Math.round(80 * pipeline.getProgress(kind)), 4);
+        g.setColor(Colors.WHITE());
+        g.drawRect(82, y, 80, 4);
+        g.drawString(AssetPipeline.NAMES[kind], 166, y - 1);
     }
 
 }
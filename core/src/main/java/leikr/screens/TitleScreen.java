@@ -24,7 +24,7 @@ import org.mini2Dx.core.Graphics;
 import org.mini2Dx.core.Mdx;
 import org.mini2Dx.core.assets.AssetManager;
 import org.mini2Dx.core.game.GameContainer;
-import org.mini2Dx.core.graphics.Colors;
+import org.mini2Dx.core.graphics.Color;
 import org.mini2Dx.core.graphics.Texture;
 import org.mini2Dx.core.graphics.viewport.FitViewport;
 import org.mini2Dx.core.screen.BasicGameScreen;
@@ -50,6 +50,8 @@ public class TitleScreen extends BasicGameScreen {
     int cycleLength = 25;
 
     public PixelManager pixelScreen;
+    //reused every frame for the rainbow text
+    Color textColor;
 
     public TitleScreen(AssetManager assetManager, FitViewport vp) {
         this.assetManager = assetManager;
@@ -58,6 +60,7 @@ public class TitleScreen extends BasicGameScreen {
 
         viewport = new FitViewport(GameRuntime.WIDTH, GameRuntime.HEIGHT);
         pixelScreen = PixelManager.getPixelManager();
+        textColor = Mdx.graphics.newColor(1f, 1f, 1f, 1f);
     }
 
     void checkInput(ScreenManager sm) {
@@ -122,7 +125,8 @@ public class TitleScreen extends BasicGameScreen {
                 }
             }
             
-            graphics.setColor(Colors.rgbToColor(red+","+blue+","+green));
+            textColor.set((float) red / 255f, (float) blue / 255f, (float) green / 255f, 1f);
+            graphics.setColor(textColor);
             graphics.drawString(Character.toString(c), i*4+x, yPos+y);
         }
     }